@@ -1,13 +1,10 @@
 package com.eagle.android;
 
-import android.accessibilityservice.AccessibilityService;
 import android.content.BroadcastReceiver;
 import android.content.Context;
 import android.content.Intent;
 import android.util.Log;
 
-import org.json.JSONObject;
-
 public class ActionReceiver extends BroadcastReceiver {
     private MyAccessibilityService accessibilityService;
     public ActionReceiver(MyAccessibilityService accessibilityService){
@@ -19,36 +16,12 @@ public class ActionReceiver extends BroadcastReceiver {
         try{
             String action = intent.getExtras().getString("action");
             String extra = intent.getExtras().getString("extra");
-            if(action.equals("1")){//查找聚焦框
-                this.accessibilityService.findAllFoucs();
-            }
-            if(action.equals("2")) { //节点布局
-                this.accessibilityService.findAllNodes();
-            }
-            if(action.equals("3")) { //右滑
-                this.accessibilityService.performSwipeGesture();
-            }
-            if(action.equals("4")) { //下滚动
-                this.accessibilityService.performTwoFingerScrollDownGesture();
-            }
-            if(action.equals("5")) { //第一个focus节点
-                this.accessibilityService.findFirstFocus(null);
-            }
-            if(action.equals("6")) { //找app入口
-                this.accessibilityService.getMainActivity(extra);
-            }
-            if(action.equals("7")) { //点击进入
-                this.accessibilityService.clickNode(extra);
-            }
-            if(action.equals("8")) { //回到顶部
-                this.accessibilityService.backTop();
-            }
-            if(action.equals("9")) { //按坐标 聚焦控件z
-                this.accessibilityService.touchNode(extra);
-            }
-            if(action.equals("10")) { //按id查找并关闭按钮
-                this.accessibilityService.clickByIdOrText(extra, null);
-            }
+            boolean delta = "delta".equals(intent.getExtras().getString("mode"));
+            long gen = intent.getLongExtra("gen", -1);
+            CommandBus.Command command = new CommandBus.Command(action, extra, delta, gen,
+                    intent.getLongExtra("receivedAt", 0L), true);
+            CommandBus.recordBroadcastDispatch(command);
+            this.accessibilityService.handle(command);
             Log.i("action",">>>>>>>receive action:" + action );
         }catch (Exception e){
             Log.e("",e.toString());
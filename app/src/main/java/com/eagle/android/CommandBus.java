@@ -0,0 +1,213 @@
+package com.eagle.android;
+
+import android.os.SystemClock;
+import android.util.Log;
+
+import java.util.Locale;
+import java.util.concurrent.Executor;
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * 进程内命令总线：socket线程直接把命令交给无障碍服务，不再经过广播
+ *
+ * 原来的路径 SocketServerService → sendBroadcast → 系统进程 → ActionReceiver（主线程）每条命令都要序列化、
+ * 经过system_server。两个服务在同一进程，这里直接把命令投递到执行方注册的执行器（服务的主线程Handler），
+ * 命令仍与原来一样在主线程上执行，无障碍节点与树镜像只在主线程访问：
+ * - 命令按收到的顺序逐条执行
+ * - 待执行的命令超过 {@link #QUEUE_CAPACITY} 条（客户端发得比执行得快）时拒绝并丢弃该命令
+ * - 无障碍服务未连接时返回 {@link Status#NO_HANDLER}，由调用方退回广播
+ * - 被丢弃、不认识或执行出错的命令回复 {"action":..,"error":..}
+ * 两条路径的耗时都记在这里，每 {@link #STATS_EVERY} 条打印一次用于对比：
+ * - 派发：收到命令到开始执行
+ * - 往返：收到命令到回复写入socket（动作1、2的流式回复）
+ */
+public final class CommandBus {
+
+    private static final String TAG = "CommandBus";
+    private static final int QUEUE_CAPACITY = 32;
+    private static final int STATS_EVERY = 50;
+
+    /**
+     * 一条socket命令
+     */
+    public static final class Command {
+        public final String action;
+        public final String extra;
+        /** 增量协议（见 {@link NodeSnapshots}），仅动作1、2使用 */
+        public final boolean delta;
+        public final long gen;
+        /** 收到命令的时刻，SystemClock.elapsedRealtimeNanos() */
+        public final long receivedAtNanos;
+        /** 经广播后备路径送达 */
+        public final boolean viaBroadcast;
+
+        public Command(String action, String extra, boolean delta, long gen,
+                       long receivedAtNanos, boolean viaBroadcast) {
+            this.action = action;
+            this.extra = extra;
+            this.delta = delta;
+            this.gen = gen;
+            this.receivedAtNanos = receivedAtNanos;
+            this.viaBroadcast = viaBroadcast;
+        }
+    }
+
+    /**
+     * 命令的执行方（无障碍服务）
+     */
+    public interface Handler {
+        Result handle(Command command);
+    }
+
+    public enum Status {
+        /** 已排队等待执行 */
+        QUEUED,
+        /** 已执行 */
+        DONE,
+        /** 不认识的动作 */
+        UNKNOWN_ACTION,
+        /** 执行出错 */
+        FAILED,
+        /** 队列已满，命令被丢弃 */
+        REJECTED,
+        /** 无障碍服务未连接 */
+        NO_HANDLER
+    }
+
+    /**
+     * 执行结果；value 为动作本身的返回值（如动作5是否找到焦点），没有时为null
+     */
+    public static final class Result {
+        public final Status status;
+        public final Object value;
+
+        private Result(Status status, Object value) {
+            this.status = status;
+            this.value = value;
+        }
+
+        public static Result done(Object value) {
+            return new Result(Status.DONE, value);
+        }
+
+        public static Result of(Status status) {
+            return new Result(status, null);
+        }
+    }
+
+    /** 耗时统计 */
+    private static final class Latency {
+        final String name;
+        int count;
+        long totalNanos;
+        long maxNanos;
+
+        Latency(String name) {
+            this.name = name;
+        }
+
+        void add(long nanos) {
+            count++;
+            totalNanos += nanos;
+            maxNanos = Math.max(maxNanos, nanos);
+        }
+
+        @Override
+        public String toString() {
+            if (count == 0) return name + "{n=0}";
+            return String.format(Locale.US, "%s{n=%d, avg=%.2fms, max=%.2fms}",
+                    name, count, totalNanos / 1e6 / count, maxNanos / 1e6);
+        }
+    }
+
+    private static final class Registration {
+        final Handler handler;
+        final Executor executor;
+
+        Registration(Handler handler, Executor executor) {
+            this.handler = handler;
+            this.executor = executor;
+        }
+    }
+
+    private static volatile Registration registration;
+    private static final AtomicInteger pending = new AtomicInteger();
+    private static final Latency busDispatch = new Latency("bus dispatch");
+    private static final Latency broadcastDispatch = new Latency("broadcast dispatch");
+    private static final Latency busReply = new Latency("bus reply");
+    private static final Latency broadcastReply = new Latency("broadcast reply");
+    private static int recorded = 0;
+
+    private CommandBus() {
+    }
+
+    /**
+     * @param executor 执行命令的线程，例如服务主线程Handler的 post
+     */
+    public static void register(Handler h, Executor executor) {
+        registration = new Registration(h, executor);
+    }
+
+    /** 只注销仍是当前执行方的h */
+    public static void unregister(Handler h) {
+        Registration r = registration;
+        if (r != null && r.handler == h) {
+            registration = null;
+        }
+    }
+
+    /**
+     * 提交命令，异步执行
+     *
+     * @return {@link Status#NO_HANDLER} 时调用方应退回广播；{@link Status#REJECTED} 时命令被丢弃；
+     * 否则为 {@link Status#QUEUED}
+     */
+    public static Status submit(Command command) {
+        Registration r = registration;
+        if (r == null) {
+            return Status.NO_HANDLER;
+        }
+        if (pending.incrementAndGet() > QUEUE_CAPACITY) {
+            pending.decrementAndGet();
+            Log.w(TAG, "queue full, dropped action " + command.action);
+            return Status.REJECTED;
+        }
+        r.executor.execute(() -> {
+            pending.decrementAndGet();
+            record(busDispatch, command);
+            Result result = r.handler.handle(command);
+            if (result.status != Status.DONE) {
+                Log.w(TAG, "action " + command.action + ": " + result.status);
+                SocketServerService.replyError(command.action,
+                        result.status == Status.UNKNOWN_ACTION ? "unknown_action" : "failed");
+            }
+        });
+        return Status.QUEUED;
+    }
+
+    /**
+     * 广播路径收到命令时调用，记录其派发延迟
+     */
+    public static void recordBroadcastDispatch(Command command) {
+        record(broadcastDispatch, command);
+    }
+
+    /**
+     * 命令的回复已写入socket时调用（写socket线程），记录往返耗时
+     */
+    public static void recordReplySent(Command command) {
+        record(command.viaBroadcast ? broadcastReply : busReply, command);
+    }
+
+    private static void record(Latency latency, Command command) {
+        if (command.receivedAtNanos <= 0) return;
+        long nanos = SystemClock.elapsedRealtimeNanos() - command.receivedAtNanos;
+        synchronized (CommandBus.class) {
+            latency.add(nanos);
+            if (++recorded % STATS_EVERY == 0) {
+                Log.i(TAG, "latency " + busDispatch + " " + broadcastDispatch
+                        + " " + busReply + " " + broadcastReply);
+            }
+        }
+    }
+}
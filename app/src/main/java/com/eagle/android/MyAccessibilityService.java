@@ -18,6 +18,7 @@ import android.os.Handler;
 import android.os.Looper;
 import android.os.SystemClock;
 import android.provider.Settings;
+import android.util.JsonWriter;
 import android.util.Log;
 import android.view.accessibility.AccessibilityEvent;
 import android.view.accessibility.AccessibilityNodeInfo;
@@ -28,23 +29,29 @@ import androidx.annotation.Nullable;
 import androidx.core.view.accessibility.AccessibilityNodeInfoCompat;
 import androidx.fragment.app.FragmentManager;
 
-import org.json.JSONArray;
+import com.eagle.android.a11y.AccessibilityTreeMirror;
+import com.eagle.android.a11y.NodeTraversal;
+
 import org.json.JSONException;
 import org.json.JSONObject;
 
 import java.io.BufferedReader;
 import java.io.IOException;
 import java.io.InputStreamReader;
+import java.io.StringWriter;
 import java.io.UnsupportedEncodingException;
 import java.nio.ByteBuffer;
 import java.nio.charset.Charset;
 import java.nio.charset.CharsetDecoder;
 import java.nio.charset.StandardCharsets;
 import java.util.ArrayList;
+import java.util.Collections;
+import java.util.HashMap;
 import java.util.List;
+import java.util.Map;
 import java.util.stream.Collectors;
 
-public class MyAccessibilityService extends AccessibilityService {
+public class MyAccessibilityService extends AccessibilityService implements CommandBus.Handler {
     private Handler handler;
     private Boolean run = false;
     private Boolean scrollFlag = true;
@@ -54,6 +61,9 @@ public class MyAccessibilityService extends AccessibilityService {
 
     public static String currentPackageName = null;
 
+    // 活动窗口无障碍树的镜像，命令直接从内存应答，由事件增量更新
+    private final AccessibilityTreeMirror treeMirror = new AccessibilityTreeMirror();
+
     @Override
     public void onCreate() {
         super.onCreate();
@@ -62,6 +72,58 @@ public class MyAccessibilityService extends AccessibilityService {
 
     public static ActionReceiver accessibilityReceiver = null;
 
+    @Override
+    public void onDestroy() {
+        CommandBus.unregister(this);
+        super.onDestroy();
+    }
+
+    /**
+     * 执行一条socket命令；命令总线和广播后备（ActionReceiver）都在主线程上调用
+     */
+    @Override
+    public CommandBus.Result handle(CommandBus.Command command){
+        try{
+            switch (command.action){
+                case "1": //查找聚焦框
+                    findAllFoucs(command);
+                    break;
+                case "2": //节点布局
+                    findAllNodes(command);
+                    break;
+                case "3": //右滑
+                    performSwipeGesture();
+                    break;
+                case "4": //下滚动
+                    performTwoFingerScrollDownGesture();
+                    break;
+                case "5": //第一个focus节点
+                    return CommandBus.Result.done(findFirstFocus());
+                case "6": //找app入口
+                    getMainActivity(command.extra);
+                    break;
+                case "7": //点击进入
+                    clickNode(command.extra);
+                    break;
+                case "8": //回到顶部
+                    backTop();
+                    break;
+                case "9": //按坐标 聚焦控件
+                    touchNode(command.extra);
+                    break;
+                case "10": //按id查找并关闭按钮
+                    clickByIdOrText(command.extra, null);
+                    break;
+                default:
+                    return CommandBus.Result.of(CommandBus.Status.UNKNOWN_ACTION);
+            }
+            return CommandBus.Result.done(null);
+        }catch (Exception e){
+            Log.e("action", "action " + command.action + " failed", e);
+            return CommandBus.Result.of(CommandBus.Status.FAILED);
+        }
+    }
+
     @Override
     protected void onServiceConnected() {
         super.onServiceConnected();
@@ -72,6 +134,8 @@ public class MyAccessibilityService extends AccessibilityService {
         IntentFilter filter = new IntentFilter("FIND_ALL_FOCUS_INFO");
         accessibilityReceiver = new ActionReceiver(this);
         registerReceiver(accessibilityReceiver, filter,RECEIVER_NOT_EXPORTED);
+        // socket命令优先走进程内总线，广播只作后备；命令与原来一样在主线程执行
+        CommandBus.register(this, handler::post);
 
         // 创建并启动监听套接字连接的线程
 //        new Thread(new Runnable() {
@@ -220,34 +284,22 @@ public class MyAccessibilityService extends AccessibilityService {
 //        }
     }
 
-    public Boolean findFirstFocus(AccessibilityNodeInfo parent){
-        if(parent == null){
-            parent = getRootInActiveWindow();
-        }
-        try{
-            int childCount = parent.getChildCount();
-            for (int i = 0; i < childCount; i++) {
-                AccessibilityNodeInfo child = parent.getChild(i);
-                if(isFocusable(child) || (isTopLevelScrollItem(child) && isSpeakingNode(child))){
-                    AccessibilityNodeInfoCompat node = AccessibilityNodeInfoCompat.wrap(child); // yourNode 是要设置为无障碍焦点的节点
-
-                    boolean result = node.performAction(AccessibilityNodeInfoCompat.ACTION_ACCESSIBILITY_FOCUS);
-                    child.recycle();
-                    return true;
-                }
-                if(findFirstFocus(child)){
-                    return true;
-                }
-
-            }
-        }catch (Exception e){
+    public Boolean findFirstFocus(){
+        AccessibilityTreeMirror.Node root = treeMirror.getRoot(this);
+        return root != null && findFirstFocus(root);
+    }
 
-        }finally {
-            if(parent != null){
-                parent.recycle();
+    private boolean findFirstFocus(AccessibilityTreeMirror.Node root){
+        final boolean[] found = {false};
+        NodeTraversal.mirror().walk(root, (child, depth) -> {
+            if(depth > 0 && (isFocusable(child) || (isTopLevelScrollItem(child) && isSpeakingNode(child)))){
+                child.performAction(AccessibilityNodeInfo.ACTION_ACCESSIBILITY_FOCUS);
+                found[0] = true;
+                return NodeTraversal.STOP;
             }
-        }
-        return false;
+            return NodeTraversal.CONTINUE;
+        });
+        return found[0];
     }
 
     public void performTwoFingerScrollDownGesture() {
@@ -386,28 +438,29 @@ public class MyAccessibilityService extends AccessibilityService {
     public void clickByIdOrText(String extra, AccessibilityNodeInfo node){
         String viewId = extra.split(",")[0];
         String text = extra.split(",")[1];
-        if (node == null){
+        boolean ownRoot = node == null;
+        if (ownRoot){
             node = getRootInActiveWindow();
+            if (node == null){
+                return;
+            }
         }
-        // 遍历所有子节点
-        for (int i = 0; i < node.getChildCount(); i++) {
-            AccessibilityNodeInfo childNode = node.getChild(i);
-            if (childNode != null) {
-                // 检查节点的属性
-                if (viewId.equals(childNode.getViewIdResourceName()) ||
-                        text.equals(childNode.getText())) {
+        // 遍历所有子孙节点
+        NodeTraversal.live().walk(node, (childNode, depth) -> {
+            // 检查节点的属性
+            if (depth > 0 && (viewId.equals(childNode.getViewIdResourceName()) ||
+                    text.equals(childNode.getText()))) {
 //                    childNode.performAction(AccessibilityNodeInfo.ACTION_CLICK);
-                    childNode.performAction(AccessibilityNodeInfo.ACTION_FOCUS);
-                }
-
-                // 递归查找子节点
-                clickByIdOrText(extra, childNode);
+                childNode.performAction(AccessibilityNodeInfo.ACTION_FOCUS);
             }
+            return NodeTraversal.CONTINUE;
+        });
+        if (ownRoot){
+            node.recycle();
         }
     }
 
     public void clickNode(String id){
-        AccessibilityNodeInfo rootNode = getRootInActiveWindow();
         if (lastFocusNode != null){
             if (lastFocusNode.isClickable()){
                 lastFocusNode.performAction(AccessibilityNodeInfo.ACTION_CLICK);
@@ -416,9 +469,11 @@ public class MyAccessibilityService extends AccessibilityService {
             }
             return;
         }
+        AccessibilityTreeMirror.Node rootNode = treeMirror.getRoot(this);
         if (rootNode != null) {
-            List<AccessibilityNodeInfo> targetNodes = rootNode.findAccessibilityNodeInfosByViewId(id);
-            for (AccessibilityNodeInfo node : targetNodes) {
+            List<AccessibilityTreeMirror.Node> targetNodes = new ArrayList<>();
+            findNodesByViewId(rootNode, id, targetNodes);
+            for (AccessibilityTreeMirror.Node node : targetNodes) {
                 if (node.isEnabled() && node.isClickable()) {
                     node.performAction(AccessibilityNodeInfo.ACTION_CLICK);
 //                    Intent msg = new Intent("ACTION_RESULT");
@@ -435,17 +490,24 @@ public class MyAccessibilityService extends AccessibilityService {
 //                    sendBroadcast(msg);
 //                    return;
                 }
-                node.recycle();
             }
-            rootNode.recycle();
         }
     }
 
-
+    private void findNodesByViewId(AccessibilityTreeMirror.Node root, String id, List<AccessibilityTreeMirror.Node> out){
+        NodeTraversal.mirror().walk(root, (node, depth) -> {
+            if (id != null && id.equals(node.getViewIdResourceName())) {
+                out.add(node);
+            }
+            return NodeTraversal.CONTINUE;
+        });
+    }
 
     @Override
     public void onAccessibilityEvent(AccessibilityEvent event) {
         try{
+            // 先更新树镜像，后续命令才能看到这次变化
+            treeMirror.onEvent(event);
             int eventType = event.getEventType();
             if (event.getEventType() == AccessibilityEvent.TYPE_VIEW_CLICKED) {
                 if(currentPackageName != null){
@@ -790,147 +852,114 @@ public class MyAccessibilityService extends AccessibilityService {
     }
 
     public void findAllNodes(){
-        List<AccessibilityNodeInfo> nodes = new ArrayList<>();
-        AccessibilityNodeInfo rootNode = getRootInActiveWindow();
+        findAllNodes(null);
+    }
+
+    /**
+     * @param command 来自socket的命令（可能要求增量协议，见 {@link NodeSnapshots}）；直接调用时为null
+     */
+    public void findAllNodes(CommandBus.Command command){
+        AccessibilityTreeMirror.Node rootNode = treeMirror.getRoot(this);
+        if(rootNode == null){
+            return;
+        }
+        List<AccessibilityTreeMirror.Node> nodes = new ArrayList<>();
         findNodes(nodes, rootNode);
-        rootNode.recycle();
-        JSONArray jsonArray = new JSONArray();
-        nodes.forEach(e->{
-            Rect boundsInScreen = new Rect();
+        // 在遍历线程上复制成不可变记录：写socket线程不接触镜像节点
+        List<NodeSnapshots.Record> records = nodeRecords(nodes);
+        if(command != null && command.delta && SocketServerService.streamSnapshot("2", records, command)){
+            return;
+        }
+        sendResult(writer -> NodeSnapshots.writeLegacy(writer, "2", records), command);
+    }
+
+    // 节点布局记录：className,id,text,left,top,right,bottom
+    private static List<NodeSnapshots.Record> nodeRecords(List<AccessibilityTreeMirror.Node> nodes){
+        List<NodeSnapshots.Record> records = new ArrayList<>(nodes.size());
+        Rect boundsInScreen = new Rect();
+        for (AccessibilityTreeMirror.Node e : nodes) {
             e.getBoundsInScreen(boundsInScreen);
             int left = boundsInScreen.left;
-
-
             int top = boundsInScreen.top;
             int bottom = boundsInScreen.bottom;
             int right = boundsInScreen.right;
-            try{
-                String id = e.getViewIdResourceName();
-                String text = "";
-                if(e.getText() != null){
-                    text = e.getText().toString();
-                }
-                if(e.getContentDescription() != null){
-                    text = e.getContentDescription().toString();
-                }
-                JSONObject jsonObject = new JSONObject();
-                jsonObject.put("className", e.getClassName());
-                jsonObject.put("id", id != null ? id.toString() : "");
-                jsonObject.put("text", text);
-                jsonObject.put("left", left);
-                jsonObject.put("top", top);
-                jsonObject.put("right", right);
-                jsonObject.put("bottom", bottom);
-                jsonArray.put(jsonObject);
-                e.recycle();
-                Log.d("AccessibilityService", "className: "+ e.getClassName() + "text:"+ text +", 控件坐标：left=" + left + ", top=" + top + ", right=" + right + ", bottom=" + bottom);
-            }catch (Exception ex) {
-                System.out.println(1);
+            String id = e.getViewIdResourceName();
+            String text = "";
+            if(e.getText() != null){
+                text = e.getText().toString();
             }
+            if(e.getContentDescription() != null){
+                text = e.getContentDescription().toString();
+            }
+            CharSequence className = e.getClassName();
+            records.add(new NodeSnapshots.Record(className != null ? className.toString() : null,
+                    id != null ? id : "", text, left, top, right, bottom));
+            Log.d("AccessibilityService", "className: "+ className + "text:"+ text +", 控件坐标：left=" + left + ", top=" + top + ", right=" + right + ", bottom=" + bottom);
+        }
+        return Collections.unmodifiableList(records);
+    }
 
-        });
-
-
-        Intent msg = new Intent("ACTION_RESULT");
-        JSONObject res = new JSONObject();
+    /**
+     * 把结果发给socket客户端：有连接时直接流式写入socket，否则序列化后走广播回传
+     */
+    private void sendResult(SocketServerService.ResultWriter result, CommandBus.Command command){
+        if(SocketServerService.streamRes2Client(result, command)){
+            return;
+        }
+        StringWriter buffer = new StringWriter();
         try {
-            res.put("action","2");
-            //聚焦框信息
-            res.put("list", jsonArray);
-        } catch (JSONException e) {
+            JsonWriter writer = new JsonWriter(buffer);
+            result.write(writer);
+            writer.flush();
+        } catch (IOException e) {
             throw new RuntimeException(e);
         }
-//        msg.getExtras().putString("res", res.toString());
-        msg.putExtra("res", res.toString());
+        Intent msg = new Intent("ACTION_RESULT");
+        msg.putExtra("res", buffer.toString());
         msg.setPackage("com.eagle.android");
         sendBroadcast(msg);
     }
 
-    public void findNodes(List<AccessibilityNodeInfo> nodes, AccessibilityNodeInfo parent){
-        int childCount = parent.getChildCount();
-        for (int i = 0; i < childCount; i++) {
-            AccessibilityNodeInfo child = parent.getChild(i);
-            nodes.add(child);
-
-
-            findNodes(nodes, child);
-        }
+    public void findNodes(List<AccessibilityTreeMirror.Node> nodes, AccessibilityTreeMirror.Node root){
+        NodeTraversal.mirror().walk(root, (node, depth) -> {
+            if (depth > 0) {
+                nodes.add(node);
+            }
+            return NodeTraversal.CONTINUE;
+        });
     }
 
     public void findAllFoucs(){
-        AccessibilityNodeInfo rootNode = getRootInActiveWindow();
+        findAllFoucs(null);
+    }
+
+    /**
+     * @param command 来自socket的命令（可能要求增量协议，见 {@link NodeSnapshots}）；直接调用时为null
+     */
+    public void findAllFoucs(CommandBus.Command command){
+        AccessibilityTreeMirror.Node rootNode = treeMirror.getRoot(this);
         if(rootNode == null){
             return;
         }
 
-        // 遍历子节点
-        int childCount = rootNode.getChildCount();
-        int recyclerViewIndex = 0;
-        for (int i = 0; i < childCount; i++) {
-            AccessibilityNodeInfo childNode = rootNode.getChild(i);
-            if (childNode == null){
-                continue;
-            }
-            Log.i("root",">>>>" + childNode.getClassName());
-            if(childNode.getText() != null){
-                Log.i("root",">>>>" + childNode.getText().toString());
-            }
-            if(childNode.getClassName().equals("androidx.recyclerview.widget.RecyclerView")){
-                recyclerViewIndex = i;
-            }
-            childNode.recycle();
-        }
-
-        List<AccessibilityNodeInfo> focusableNodes = new ArrayList<>();
-        Integer count = 0;
-        findFocusableNodes(null, rootNode, focusableNodes,count);
-        rootNode.refresh();
-        Log.i("aa", ">>>>>>>focus size:" + focusableNodes.size());
         List<FocusBox> list = new ArrayList<>();
-        focusableNodes.forEach(e->{
-
-            Rect boundsInScreen = new Rect();
-            e.getBoundsInScreen(boundsInScreen);
-            int left = boundsInScreen.left;
-            int top = boundsInScreen.top;
-            int bottom = boundsInScreen.bottom;
-            int right = boundsInScreen.right;
-            Log.d("AccessibilityService", "text:"+ e.getText() +", 控件坐标：left=" + left + ", top=" + top + ", right=" + right + ", bottom=" + bottom);
-            list.add(new FocusBox(top,bottom,left,right,e != null && e.getText() != null ? e.getText().toString() : e.getClassName().toString(), e.getExtras().getString("id")));
-        });
-        Intent msg = new Intent("ACTION_RESULT");
-        JSONObject res = new JSONObject();
-        try {
-            res.put("action","1");
-            //聚焦框信息
-            JSONArray jsonArray = new JSONArray();
-            for (FocusBox focusBox : list) {
-                JSONObject jsonObject = new JSONObject();
-                // 将 obj 对象的属性放入 jsonObject 中
-                // 示例：jsonObject.put("key", obj.getValue());
-                jsonObject.put("id", focusBox.id);
-                jsonObject.put("text", focusBox.text);
-                jsonObject.put("left", focusBox.left);
-                jsonObject.put("top", focusBox.top);
-                jsonObject.put("right", focusBox.right);
-                jsonObject.put("bottom", focusBox.bottom);
-                jsonArray.put(jsonObject);
-            }
-            res.put("list", jsonArray);
-        } catch (JSONException e) {
-            throw new RuntimeException(e);
+        findFocusableNodes(rootNode, list, new HashMap<>());
+        Log.i("aa", ">>>>>>>focus size:" + list.size());
+        List<NodeSnapshots.Record> records = focusRecords(list);
+        if(command != null && command.delta && SocketServerService.streamSnapshot("1", records, command)){
+            return;
         }
-//        msg.getExtras().putString("res", res.toString());
-        msg.putExtra("res", res.toString());
-        msg.setPackage("com.eagle.android");
-        sendBroadcast(msg);
-//        handler.post(new Runnable() {
-//            @Override
-//            public void run() {
-//                sendBroadcast(msg);
-//            }
-//        });
+        sendResult(writer -> NodeSnapshots.writeLegacy(writer, "1", records), command);
+    }
 
+    // 聚焦框记录：id,text,left,top,right,bottom
+    private static List<NodeSnapshots.Record> focusRecords(List<FocusBox> list){
+        List<NodeSnapshots.Record> records = new ArrayList<>(list.size());
+        for (FocusBox focusBox : list) {
+            records.add(new NodeSnapshots.Record(null, focusBox.id, focusBox.text,
+                    focusBox.left, focusBox.top, focusBox.right, focusBox.bottom));
+        }
+        return Collections.unmodifiableList(records);
     }
 
     public void scoll(){
@@ -979,19 +1008,11 @@ public class MyAccessibilityService extends AccessibilityService {
     }
 
     public Boolean scroll(AccessibilityNodeInfo rootNode, Boolean scrollRes){
-        // 遍历子节点
-        int childCount = rootNode.getChildCount();
-        for (int i = 0; i < childCount; i++) {
-            AccessibilityNodeInfo childNode = rootNode.getChild(i);
-            if(childNode == null){
-                continue;
-            }
-            AccessibilityNodeInfo scrollView = findScrollView(childNode);
-            if(scrollView != null){
-                scrollRes = scrollView.performAction(AccessibilityNodeInfo.ACTION_SCROLL_FORWARD);
-                return scrollRes;
-            }
-            scroll(childNode, scrollRes);
+        // 根节点孙辈及更深处的第一个滚动视图
+        AccessibilityNodeInfo scrollView = findScrollView(rootNode, 2);
+        if(scrollView != null){
+            scrollRes = scrollView.performAction(AccessibilityNodeInfo.ACTION_SCROLL_FORWARD);
+            scrollView.recycle();
         }
         return scrollRes;
     }
@@ -1012,437 +1033,198 @@ public class MyAccessibilityService extends AccessibilityService {
     }
 
     //是否可聚焦
-    private Boolean isFocusable(AccessibilityNodeInfo node){
+    private Boolean isFocusable(AccessibilityTreeMirror.Node node){
         if(node == null || !node.isVisibleToUser()){
             return false;
         }
-        if(node.getClassName().equals("androidx.recyclerview.widget.RecyclerView")){
+        if(isClass(node.getClassName(), "androidx.recyclerview.widget.RecyclerView")){
             return false;
         }
         if(node.getContentDescription() != null){
             return true;
         }
-        if(node.getParent().getClassName().equals("android.widget.FrameLayout") && node.getText() != null){
+        AccessibilityTreeMirror.Node parent = node.getParent();
+        if(parent != null && isClass(parent.getClassName(), "android.widget.FrameLayout") && node.getText() != null){
             return true;
         }
         if(node.isFocusable() || node.isClickable() || node.isLongClickable()){
             return true;
         }
-        AccessibilityNodeInfoCompat wrap = AccessibilityNodeInfoCompat.wrap(node);
-
-        if(wrap.isScreenReaderFocusable()){
+        if(node.isScreenReaderFocusable()){
             return true;
         }
-        if(supportsAnyAction(wrap, AccessibilityNodeInfoCompat.ACTION_FOCUS,AccessibilityNodeInfoCompat.ACTION_NEXT_HTML_ELEMENT,
-                AccessibilityNodeInfoCompat.ACTION_PREVIOUS_HTML_ELEMENT,AccessibilityNodeInfoCompat.ACTION_CLICK,AccessibilityNodeInfoCompat.ACTION_LONG_CLICK)){
-            return true;
+        final int supportedActions = node.getActions();
+        for (int action : new int[]{AccessibilityNodeInfo.ACTION_FOCUS, AccessibilityNodeInfo.ACTION_NEXT_HTML_ELEMENT,
+                AccessibilityNodeInfo.ACTION_PREVIOUS_HTML_ELEMENT, AccessibilityNodeInfo.ACTION_CLICK, AccessibilityNodeInfo.ACTION_LONG_CLICK}) {
+            if ((supportedActions & action) == action) {
+                return true;
+            }
         }
-
-//        List<AccessibilityNodeInfoCompat.AccessibilityActionCompat> actionList = wrap.getActionList();
-//        List<AccessibilityNodeInfoCompat.AccessibilityActionCompat> actions = new ArrayList();
-//        actions.add(AccessibilityNodeInfoCompat.AccessibilityActionCompat.ACTION_ACCESSIBILITY_FOCUS);
-//        for (AccessibilityNodeInfoCompat.AccessibilityActionCompat action : actions) {
-//            if (actionList.contains(action)) {
-//                return true;
-//            }
-//        }
-
         return false;
     }
-    public Boolean isTopLevelScrollItem(AccessibilityNodeInfo node){
-        AccessibilityNodeInfo parent = node.getParent();
+    private static boolean isClass(CharSequence className, String name){
+        return className != null && name.contentEquals(className);
+    }
 
-        if(parent.getClassName().equals("androidx.recyclerview.widget.RecyclerView")){
+    public Boolean isTopLevelScrollItem(AccessibilityTreeMirror.Node node){
+        AccessibilityTreeMirror.Node parent = node.getParent();
+        if(parent == null){
+            return false;
+        }
+        if(isClass(parent.getClassName(), "androidx.recyclerview.widget.RecyclerView")){
             return true;
         }
-
-
-        AccessibilityNodeInfoCompat wrap = AccessibilityNodeInfoCompat.wrap(parent);
-        List<AccessibilityNodeInfoCompat.AccessibilityActionCompat> actionList = wrap.getActionList();
-        List<AccessibilityNodeInfoCompat.AccessibilityActionCompat> actions = new ArrayList();
-        actions.add(AccessibilityNodeInfoCompat.AccessibilityActionCompat.ACTION_SCROLL_FORWARD);
-        actions.add(AccessibilityNodeInfoCompat.AccessibilityActionCompat.ACTION_SCROLL_BACKWARD);
-        actions.add(AccessibilityNodeInfoCompat.AccessibilityActionCompat.ACTION_SCROLL_DOWN);
-        actions.add(AccessibilityNodeInfoCompat.AccessibilityActionCompat.ACTION_SCROLL_UP);
-        actions.add(AccessibilityNodeInfoCompat.AccessibilityActionCompat.ACTION_SCROLL_RIGHT);
-        actions.add(AccessibilityNodeInfoCompat.AccessibilityActionCompat.ACTION_SCROLL_LEFT);
-
-        for (AccessibilityNodeInfoCompat.AccessibilityActionCompat action : actions) {
-            if (actionList.contains(action)) {
+        int[] scrollActions = {
+                AccessibilityNodeInfo.AccessibilityAction.ACTION_SCROLL_FORWARD.getId(),
+                AccessibilityNodeInfo.AccessibilityAction.ACTION_SCROLL_BACKWARD.getId(),
+                AccessibilityNodeInfo.AccessibilityAction.ACTION_SCROLL_DOWN.getId(),
+                AccessibilityNodeInfo.AccessibilityAction.ACTION_SCROLL_UP.getId(),
+                AccessibilityNodeInfo.AccessibilityAction.ACTION_SCROLL_RIGHT.getId(),
+                AccessibilityNodeInfo.AccessibilityAction.ACTION_SCROLL_LEFT.getId(),
+        };
+        for (int action : scrollActions) {
+            if (parent.hasAction(action)) {
                 return true;
             }
         }
-//
-//        final int supportedActions = wrap.getActions();
-//        List<Integer> list = new ArrayList();
-//        list.add(AccessibilityNodeInfoCompat.ACTION_FOCUS);
-//        list.add(AccessibilityNodeInfoCompat.ACTION_NEXT_HTML_ELEMENT);
-//        list.add(AccessibilityNodeInfoCompat.ACTION_PREVIOUS_HTML_ELEMENT);
-//        for (int action : list) {
-//            if ((supportedActions & action) == action) {
-//                return true;
-//            }
-//        }
-
-
         CharSequence className = parent.getClassName();
-        if(className.equals("")){
-            return true;
-        }
-        return false;
+        return className != null && className.length() == 0;
     }
 
-    public Boolean isSpeakingNode(AccessibilityNodeInfo node){
+    public Boolean isSpeakingNode(AccessibilityTreeMirror.Node node){
         if(node == null){
             return false;
         }
-        if(node.getCollectionInfo() == null && (node.getText() != "" || node.getContentDescription() != null || node.getHintText() != null)){
+        // 非集合节点都朗读（文字、描述、提示任一存在即可，原判断对文字恒为真）
+        if(!node.hasCollectionInfo()){
             return true;
         }
         if(node.getStateDescription() != null || node.isCheckable()){
             return true;
         }
-        //特殊情况，即使没焦点，威了用户体验，也需要聚焦朗读
-//        if(){
-//
-//        }
         return false;
     }
 
-    // 遍历节点，找到所有可聚焦的控件
-    private void findFocusableNodes(AccessibilityNodeInfo parent,AccessibilityNodeInfo node, List<AccessibilityNodeInfo> focusableNodes,Integer count) {
+    /**
+     * 被"收集"的容器节点：子节点的文字和id追加到容器上，容器整体作为一个聚焦框
+     */
+    private static class Collected {
+        String text;
+        String id = "";
+        FocusBox box;
 
-        if (node == null) {
-            return;
+        Collected(String text) {
+            this.text = text;
         }
+    }
 
-        // 遍历子节点
-        int childCount = node.getChildCount();
-        for (int i = 0; i < childCount; i++) {
-            AccessibilityNodeInfo childNode = node.getChild(i);
-            if (childNode == null){
-                continue;
-            }
-            String childNodeId = childNode.getViewIdResourceName();
-
-            if(childNodeId == null){
-                childNodeId = "";
-            }
-            Log.i("nodeclass",">>>>>>>>" + childNode.getClassName() + ",focusable:" + childNode.isFocusable() + ", visable: " + childNode.isVisibleToUser()
-            + "isClickable:" + childNode.isClickable() + "isLongClickable:" + childNode.isLongClickable() + "");
-
-            //是否可被聚焦
-            if(isFocusable(childNode) || (isTopLevelScrollItem(childNode) && isSpeakingNode(childNode))){
-                Log.i(">>>>>",">>>>>需要被聚焦的node：" + childNode.getClassName() + ", Id:" + childNodeId);
-                if(childNode.getText() != null){
-                    Log.i("text", ">>>>text:" + childNode.getText().toString());
-                    if("美食".equals(childNode.getText())){
-                        Rect nodeBounds = new Rect();
-                        childNode.getBoundsInScreen(nodeBounds);
-
-                        // 创建点击手势路径
-                        Path clickPath = new Path();
-                        clickPath.moveTo(nodeBounds.centerX(), nodeBounds.centerY());
-
-                        // 创建手势描述对象
-                        GestureDescription.Builder gestureBuilder = new GestureDescription.Builder();
-                        gestureBuilder.addStroke(new GestureDescription.StrokeDescription(clickPath, 0, 50));
-
-                        // 发送手势事件
-                        dispatchGesture(gestureBuilder.build(), null, null);
-                    }
-                    Log.i(">>",">>>text: " + childNode.getText().toString());
+    // 遍历节点，找到所有可聚焦的控件
+    private void findFocusableNodes(AccessibilityTreeMirror.Node root, List<FocusBox> focusBoxes, Map<AccessibilityTreeMirror.Node, Collected> collected) {
+        NodeTraversal.mirror().walk(root, new NodeTraversal.Visitor<AccessibilityTreeMirror.Node>() {
+            @Override
+            public int enter(AccessibilityTreeMirror.Node childNode, int depth) {
+                if (depth == 0) {
+                    return NodeTraversal.CONTINUE;
                 }
-                //是否被收集
-                if (collectable(childNode)){
-                    Rect boundsInScreen = new Rect();
-                    childNode.getBoundsInScreen(boundsInScreen);
-                    String text = "";
-                    if(childNode.getText() != null){
-                        text = childNode.getText().toString();
+                AccessibilityTreeMirror.Node node = childNode.getParent();
+                //是否可被聚焦
+                if(isFocusable(childNode) || (isTopLevelScrollItem(childNode) && isSpeakingNode(childNode))){
+                    if(childNode.getText() != null && "美食".equals(childNode.getText())){
+                        tapNode(childNode);
                     }
-                    if(childNode.getContentDescription() != null){
-                        text = childNode.getContentDescription().toString();
-                    }
-                    childNode.getExtras().putString("text", text);
-                    childNode.getExtras().putBoolean("collect", true);
-                    childNode.getExtras().putString("id", "");
-                    AccessibilityNodeInfo newNode = new AccessibilityNodeInfo();
-                    newNode.setBoundsInScreen(boundsInScreen);
-                    focusableNodes.add(newNode);
-                    if(childNode.getContentDescription() == null){
-                        findFocusableNodes(node, childNode, focusableNodes,count);
-                    }
-                    if(!"".equals(childNodeId)){
-                        newNode.getExtras().putString("id", childNodeId);
-                    }else{
-                        newNode.getExtras().putString("id", childNode.getExtras().getString("id"));
+                    //是否被收集：子孙的文字并入这一个框，离开该节点时定稿
+                    if (collectable(childNode)){
+                        String text = "";
+                        if(childNode.getText() != null){
+                            text = childNode.getText().toString();
+                        }
+                        if(childNode.getContentDescription() != null){
+                            text = childNode.getContentDescription().toString();
+                        }
+                        Collected c = new Collected(text);
+                        c.box = newFocusBox(childNode, null, null);
+                        collected.put(childNode, c);
+                        focusBoxes.add(c.box);
+                        return childNode.getContentDescription() == null
+                                ? NodeTraversal.CONTINUE : NodeTraversal.SKIP_CHILDREN;
                     }
-                    newNode.setText(childNode.getExtras().getString("text"));
-                    String tt = newNode.getText().toString();
-                    childNode.recycle();
-                    Log.i("1111",">>>>>>>>>>end " + newNode.getText());
-                    if("美食".equals(newNode.getText())){
-                        Rect nodeBounds = new Rect();
-                        newNode.getBoundsInScreen(nodeBounds);
-
-                        // 创建点击手势路径
-                        Path clickPath = new Path();
-                        clickPath.moveTo(nodeBounds.centerX(), nodeBounds.centerY());
-
-                        // 创建手势描述对象
-                        GestureDescription.Builder gestureBuilder = new GestureDescription.Builder();
-                        gestureBuilder.addStroke(new GestureDescription.StrokeDescription(clickPath, 0, 50));
-
-                        // 发送手势事件
-                        dispatchGesture(gestureBuilder.build(), null, null);
+                    processNode(node, childNode, focusBoxes, collected);
+                }else{ //不可被聚焦
+                    if(collected.containsKey(node)){
+                        processNode(node, childNode, focusBoxes, collected);
                     }
-                    continue;
-                }else{
-                    processNode(node, childNode, focusableNodes);
-
                 }
+                return NodeTraversal.CONTINUE;
+            }
 
-
-            }else{ //不可被聚焦
-                if(node.getExtras().getBoolean("collect")){
-                    processNode(node, childNode, focusableNodes);
+            @Override
+            public void leave(AccessibilityTreeMirror.Node childNode, int depth) {
+                Collected c = collected.get(childNode);
+                if (c == null) {
+                    return;
+                }
+                String childNodeId = childNode.getViewIdResourceName();
+                c.box.id = childNodeId != null && !"".equals(childNodeId) ? childNodeId : c.id;
+                c.box.text = c.text;
+                if("美食".equals(c.box.text)){
+                    tapNode(childNode);
                 }
             }
+        });
+    }
 
-            findFocusableNodes(node, childNode, focusableNodes,count);
+    private void tapNode(AccessibilityTreeMirror.Node node){
+        Rect nodeBounds = new Rect();
+        node.getBoundsInScreen(nodeBounds);
 
+        // 创建点击手势路径
+        Path clickPath = new Path();
+        clickPath.moveTo(nodeBounds.centerX(), nodeBounds.centerY());
 
-//            if(node.getExtras().getBoolean("collect")){
-//                childNode.getExtras().putBoolean("collect", true);
-//                childNode.getExtras().putString("text", node.getExtras().getString("text"));
-//                childNode.getExtras().putString("id", "");
-//            }
+        // 创建手势描述对象
+        GestureDescription.Builder gestureBuilder = new GestureDescription.Builder();
+        gestureBuilder.addStroke(new GestureDescription.StrokeDescription(clickPath, 0, 50));
 
-//            if(!childNode.getClassName().equals("androidx.recyclerview.widget.RecyclerView")
-//                    && !childNode.getClassName().equals("androidx.viewpager.widget.ViewPager")
-//                    && (childNode.isFocusable() || (childNode.getClassName().equals("android.widget.LinearLayout") && childNode.getChildCount() != 0))
-//                    && (!node.isFocusable() || (node.getClassName().equals("androidx.recyclerview.widget.RecyclerView") || node.getClassName().equals("androidx.viewpager.widget.ViewPager")))){
-//            if(childNode.getClassName().equals("android.widget.LinearLayout") && collectable(childNode) || childNode.getClassName().equals("android.view.ViewGroup")){
-//                Rect boundsInScreen = new Rect();
-//                childNode.getBoundsInScreen(boundsInScreen);
-//                int left = boundsInScreen.left;
-//                int top = boundsInScreen.top;
-//                int right = boundsInScreen.right;
-//                int bottom = boundsInScreen.bottom;
-//                String text = "";
-//                if(childNode.getText() != null){
-//                    text = childNode.getText().toString();
-//                }
-//                if(childNode.getContentDescription() != null){
-//                    text = childNode.getContentDescription().toString();
-//                }
-//                childNode.getExtras().putString("text", text);
-//                childNode.getExtras().putBoolean("collect", true);
-//                childNode.getExtras().putString("id", "");
-//                AccessibilityNodeInfo newNode = new AccessibilityNodeInfo();
-//                newNode.setBoundsInScreen(boundsInScreen);
-//                findFocusableNodes(node, childNode, focusableNodes,count);
-//                if(!"".equals(childNodeId)){
-//                    newNode.getExtras().putString("id", childNodeId);
-//                }else{
-//                    newNode.getExtras().putString("id", childNode.getExtras().getString("id"));
-//                }
-//                newNode.setText(childNode.getExtras().getString("text"));
-//                String tt = newNode.getText().toString();
-//                focusableNodes.add(newNode);
-//                Log.i("1111",">>>>>>>>>>end " + newNode.getText());
-//                continue;
-//            }
-//
-//            AccessibilityNodeInfo scrollView = findScrollView(childNode);
-//            Boolean hasScroll = false;
-////            if(scrollView != null){
-////                Log.i("aa",">>>>>> find scroll");
-////                hasScroll = true;
-//////                Bundle args = new Bundle();
-//////                args.putInt(AccessibilityNodeInfo.ACTION_ARGUMENT_MOVE_WINDOW_Y, 100); // 向上移动 100 个像素
-//////                boolean success = scrollView.performAction(AccessibilityNodeInfo.AccessibilityAction.ACTION_MOVE_WINDOW.getId(), args);
-//////                Log.i("aa",">>>>>> find scroll" + success);
-////                findFocusableNodes(scrollView, focusableNodes,count);
-////                boolean success = scrollView.performAction(AccessibilityNodeInfo.ACTION_SCROLL_FORWARD);
-////                Log.i("aa",">>>>>> find scroll" + success);
-//////                if(!success){
-//////                    break;
-//////                }
-////            }
-//
-//            if (childNode.getClassName() != null && childNode.getClassName().equals("android.widget.Switch")) {
-//                // 检查节点类名是否为 android.widget.Switch，确保是 Switch 控件
-//                boolean isChecked = childNode.isChecked(); // 获取 Switch 控件的状态
-//                String text = isChecked ? "开启" : "关闭";
-//                Log.d("AccessibilityService", ">>>>>>>  Switch state: " + isChecked);
-//                count++;
-//                if(node.getExtras().getBoolean("collect")){
-//                    node.getExtras().putString("text", node.getExtras().getString("text") + "," + text);
-//                    node.getExtras().putString("id", node.getExtras().getString("id") + "," + childNodeId);
-//                    continue;
-//                }else{
-//                    //                focusableNodes.add(childNode);
-//                    Rect boundsInScreen = new Rect();
-//                    childNode.getBoundsInScreen(boundsInScreen);
-//                    int left = boundsInScreen.left;
-//                    int top = boundsInScreen.top;
-//                    int right = boundsInScreen.right;
-//                    int bottom = boundsInScreen.bottom;
-//                    AccessibilityNodeInfo newNode = new AccessibilityNodeInfo();
-//                    newNode.setBoundsInScreen(boundsInScreen);
-//                    newNode.setText(text);
-//                    newNode.getExtras().putString("id", childNodeId);
-//                    focusableNodes.add(newNode);
-//                    int x = boundsInScreen.left;
-//                    int y = boundsInScreen.top;
-//                    Log.d("AccessibilityService", "控件在屏幕上的坐标：x=" + x + ", y=" + y);
-//                    continue;
-//                }
-//            }
-//
-////            if(childNode.getText() != null && (node.getExtras().getBoolean("collect") || childNode.isFocusable())){
-//            if(childNode.getText() != null){
-//                String text = childNode.getText().toString();
-//                if(isErrStr(text)){
-//                    continue;
-//                }
-//                Boolean focusable = false;
-//                if (childNode.isFocusable()) {
-//                    focusable = true;
-//                }
-////                String text = new String(childNode.getText().toString().getBytes(StandardCharsets.UTF_8), StandardCharsets.UTF_8);
-//                Log.d("AccessibilityService", ">>>>>>>  text: " + text + ", focusable: " + focusable + ", " + childNode.isVisibleToUser() + "  " + childNode.isImportantForAccessibility());
-//                count++;
-//                if(node.getExtras().getBoolean("collect")){
-//                    node.getExtras().putString("text", node.getExtras().getString("text") + "," + text);
-//                    node.getExtras().putString("id", node.getExtras().getString("id") + "," + childNodeId);
-//                    continue;
-//                }else{
-//                    if(childNode.isFocusable()){
-//
-//                    }
-//                    if((childNode.isFocusable() && node.getClassName().equals("android.widget.LinearLayout"))
-//                            || !node.getClassName().equals("android.widget.LinearLayout")){
-//
-//                    }
-//                    childNode.getExtras().putString("id", childNodeId);
-//                    focusableNodes.add(childNode);
-//                    continue;
-//                }
-//            }
-//
-//            CharSequence contentDescription = childNode.getContentDescription();
-//            if(contentDescription != null){
-////                Log.d("AccessibilityService", ">>>>>>>  text: " + contentDescription.toString());
-////                count++;
-////                focusableNodes.add(childNode);
-////                continue;
-//                String text = contentDescription.toString();
-//                Log.d("AccessibilityService", ">>>>>>>  text: " + text);
-//                if(node.getExtras().getBoolean("collect")){
-//                    node.getExtras().putString("text", node.getExtras().getString("text") + "," + contentDescription.toString());
-//                    node.getExtras().putString("id", node.getExtras().getString("id") + "," + childNodeId);
-//                    continue;
-//                }else{
-//                    //                focusableNodes.add(childNode);
-//                    Rect boundsInScreen = new Rect();
-//                    childNode.getBoundsInScreen(boundsInScreen);
-//                    int left = boundsInScreen.left;
-//                    int top = boundsInScreen.top;
-//                    int right = boundsInScreen.right;
-//                    int bottom = boundsInScreen.bottom;
-//                    AccessibilityNodeInfo newNode = new AccessibilityNodeInfo();
-//                    newNode.setBoundsInScreen(boundsInScreen);
-//                    newNode.setText(text);
-//                    newNode.getExtras().putString("id", childNodeId);
-//                    focusableNodes.add(newNode);
-//                    int x = boundsInScreen.left;
-//                    int y = boundsInScreen.top;
-//                    Log.d("AccessibilityService", "控件在屏幕上的坐标：x=" + x + ", y=" + y);
-////                    continue;
-//                }
-//            }
-//            findFocusableNodes(node, childNode, focusableNodes,count);
-//            if(node.getExtras().getBoolean("collect") && childNode.getExtras().getString("text") != null){
-//                node.getExtras().putString("text", node.getExtras().getString("text") + childNode.getExtras().getString("text"));
-//                node.getExtras().putString("id", node.getExtras().getString("id") + childNode.getExtras().getString("id"));
-//            }
-        }
+        // 发送手势事件
+        dispatchGesture(gestureBuilder.build(), null, null);
+    }
+
+    private static FocusBox newFocusBox(AccessibilityTreeMirror.Node node, String text, String id){
+        Rect boundsInScreen = new Rect();
+        node.getBoundsInScreen(boundsInScreen);
+        return new FocusBox(boundsInScreen.top, boundsInScreen.bottom, boundsInScreen.left, boundsInScreen.right, text, id);
     }
 
-    public void processNode(AccessibilityNodeInfo node, AccessibilityNodeInfo childNode, List<AccessibilityNodeInfo> focusableNodes){
+    private void processNode(AccessibilityTreeMirror.Node node, AccessibilityTreeMirror.Node childNode, List<FocusBox> focusBoxes, Map<AccessibilityTreeMirror.Node, Collected> collected){
         String childNodeId = childNode.getViewIdResourceName();
         if(childNodeId == null){
             childNodeId = "";
         }
-        if (childNode.getClassName() != null && childNode.getClassName().equals("android.widget.Switch")) {
-            // 检查节点类名是否为 android.widget.Switch，确保是 Switch 控件
-            boolean isChecked = childNode.isChecked(); // 获取 Switch 控件的状态
-            String text = isChecked ? "开启" : "关闭";
-            Log.d("AccessibilityService", ">>>>>>>  Switch state: " + isChecked);
-            if(node.getExtras().getBoolean("coll11ect")){
-                node.getExtras().putString("text", node.getExtras().getString("text") + "," + text);
-                node.getExtras().putString("id", node.getExtras().getString("id") + "," + childNodeId);
-            }else{
-                //                focusableNodes.add(childNode);
-                Rect boundsInScreen = new Rect();
-                childNode.getBoundsInScreen(boundsInScreen);
-                AccessibilityNodeInfo newNode = new AccessibilityNodeInfo();
-                newNode.setBoundsInScreen(boundsInScreen);
-                newNode.setText(text);
-                newNode.getExtras().putString("id", childNodeId);
-                focusableNodes.add(newNode);
-                int x = boundsInScreen.left;
-                int y = boundsInScreen.top;
-                Log.d("AccessibilityService", "控件在屏幕上的坐标：x=" + x + ", y=" + y);
-            }
+        Collected parent = collected.get(node);
+        if (isClass(childNode.getClassName(), "android.widget.Switch")) {
+            // Switch 控件单独成框，文字为开关状态
+            String text = childNode.isChecked() ? "开启" : "关闭";
+            focusBoxes.add(newFocusBox(childNode, text, childNodeId));
         }
 
         if(childNode.getText() != null){
             String text = childNode.getText().toString();
-            Boolean focusable = false;
-            if (childNode.isFocusable()) {
-                focusable = true;
-            }
-            //                String text = new String(childNode.getText().toString().getBytes(StandardCharsets.UTF_8), StandardCharsets.UTF_8);
-            Log.d("AccessibilityService", ">>>>>>>  text: " + text + ", focusable: " + focusable + ", " + childNode.isVisibleToUser() + "  " + childNode.isImportantForAccessibility());
-            if(node.getExtras().getBoolean("collect")){
-                node.getExtras().putString("text", node.getExtras().getString("text") + "," + text);
-                node.getExtras().putString("id", node.getExtras().getString("id") + "," + childNodeId);
+            if(parent != null){
+                parent.text = parent.text + "," + text;
+                parent.id = parent.id + "," + childNodeId;
             }else{
-                if(childNode.isFocusable()){
-
-                }
-                if((childNode.isFocusable() && node.getClassName().equals("android.widget.LinearLayout"))
-                        || !node.getClassName().equals("android.widget.LinearLayout")){
-
-                }
-                childNode.getExtras().putString("id", childNodeId);
-                focusableNodes.add(childNode);
+                focusBoxes.add(newFocusBox(childNode, text, childNodeId));
             }
         }
 
         CharSequence contentDescription = childNode.getContentDescription();
         if(contentDescription != null){
             String text = contentDescription.toString();
-            Log.d("AccessibilityService", ">>>>>>>  text: " + text);
-            if(node.getExtras().getBoolean("collect")){
-                node.getExtras().putString("text", node.getExtras().getString("text") + "," + contentDescription.toString());
-                node.getExtras().putString("id", node.getExtras().getString("id") + "," + childNodeId);
+            if(parent != null){
+                parent.text = parent.text + "," + text;
+                parent.id = parent.id + "," + childNodeId;
             }else{
-                Rect boundsInScreen = new Rect();
-                childNode.getBoundsInScreen(boundsInScreen);
-                AccessibilityNodeInfo newNode = new AccessibilityNodeInfo();
-                newNode.setBoundsInScreen(boundsInScreen);
-                newNode.setText(text);
-                newNode.getExtras().putString("id", childNodeId);
-                focusableNodes.add(newNode);
-                int x = boundsInScreen.left;
-                int y = boundsInScreen.top;
-                Log.d("AccessibilityService", "控件在屏幕上的坐标：x=" + x + ", y=" + y);
-                //                    continue;
+                focusBoxes.add(newFocusBox(childNode, text, childNodeId));
             }
         }
     }
@@ -1458,23 +1240,17 @@ public class MyAccessibilityService extends AccessibilityService {
         return res;
     }
 
-    public Boolean collectable(AccessibilityNodeInfo node){
-        int childCount = node.getChildCount();
-        if(childCount < 1){
+    public Boolean collectable(AccessibilityTreeMirror.Node node){
+        List<AccessibilityTreeMirror.Node> children = node.getChildren();
+        if(children.isEmpty()){
             return false;
         }
-        Boolean res = true;
-        for (int i = 0; i < childCount; i++) {
-            AccessibilityNodeInfo childNode = node.getChild(i);
-            if (childNode == null){
-                continue;
-            }
-//            if(childNode.isFocusable() || childNode.isClickable() ||childNode.isCheckable()){
+        for (AccessibilityTreeMirror.Node childNode : children) {
             if(childNode.isFocusable()){
-                res=false;
+                return false;
             }
         }
-        return res;
+        return true;
     }
 
     public void info(AccessibilityNodeInfo childNode){
@@ -1579,29 +1355,24 @@ public class MyAccessibilityService extends AccessibilityService {
     }
 
     private AccessibilityNodeInfo findScrollView(AccessibilityNodeInfo rootNode) {
-        if (rootNode == null) return null;
-
-        // 遍历根节点的子节点
-        for (int i = 0; i < rootNode.getChildCount(); i++) {
-            AccessibilityNodeInfo childNode = rootNode.getChild(i);
-            if (childNode == null) continue;
-
-            // 判断子节点是否为滚动视图类型，例如 ScrollView、RecyclerView、ListView 等
-            if (isScrollView(childNode)) {
-                return childNode; // 找到滚动视图，返回节点
-            }
+        return findScrollView(rootNode, 1);
+    }
 
-            // 递归查找子节点中的滚动视图
-            AccessibilityNodeInfo scrollViewNode = findScrollView(childNode);
-            if (scrollViewNode != null) {
-                return scrollViewNode; // 找到滚动视图，返回节点
+    /**
+     * 先序查找深度不小于minDepth的第一个滚动视图（根节点深度为0），返回的节点由调用方回收
+     */
+    private AccessibilityNodeInfo findScrollView(AccessibilityNodeInfo rootNode, int minDepth) {
+        if (rootNode == null) return null;
+        final AccessibilityNodeInfo[] found = {null};
+        NodeTraversal.live().walk(rootNode, (node, depth) -> {
+            // 判断节点是否为滚动视图类型，例如 ScrollView、RecyclerView、ListView 等
+            if (depth >= minDepth && isScrollView(node)) {
+                found[0] = AccessibilityNodeInfo.obtain(node); // 遍历结束后原节点会被回收
+                return NodeTraversal.STOP;
             }
-
-            // 回收子节点资源
-//            childNode.recycle();
-        }
-
-        return null; // 没有找到滚动视图，返回null
+            return NodeTraversal.CONTINUE;
+        });
+        return found[0];
     }
 
     // 判断节点是否为滚动视图类型
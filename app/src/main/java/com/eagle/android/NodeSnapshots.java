@@ -0,0 +1,237 @@
+package com.eagle.android;
+
+import android.util.JsonWriter;
+import android.util.Log;
+
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * 节点列表（动作1 聚焦框、动作2 节点布局）的增量协议，每个socket连接一份
+ *
+ * 请求：{"action":"2","extra":"","mode":"delta","gen":客户端持有的版本}，gen 省略或为 -1 表示要求全量。
+ * 每条记录分配一个连接内稳定的整数句柄 k（按 类名+id+坐标 识别，重复的按出现次序区分）。
+ * 回复（一行一个）：
+ * - 全量：{"action","mode":"full","gen","list":[{k,className,id,text,left,top,right,bottom}...]}
+ * - 增量：{"action","mode":"delta","base","gen","added":[记录...],"changed":[记录...],"removed":[k...],"order":[k...]}
+ *   order 只在顺序变化（含新增）时给出；没有变化时 gen == base，各数组为空
+ * 客户端版本与服务端不一致、或新增超过一半（如滚动后）时发全量。
+ * 只在socket写线程上使用。
+ */
+final class NodeSnapshots {
+
+    private static final String TAG = "NodeSnapshots";
+
+    /**
+     * 一条节点记录；className 或 id 为null时不输出该字段（与原来JSONObject的行为一致）
+     */
+    static final class Record {
+        final String className;
+        final String id;
+        final String text;
+        final int left;
+        final int top;
+        final int right;
+        final int bottom;
+
+        Record(String className, String id, String text, int left, int top, int right, int bottom) {
+            this.className = className;
+            this.id = id;
+            this.text = text;
+            this.left = left;
+            this.top = top;
+            this.right = right;
+            this.bottom = bottom;
+        }
+
+        /** 识别键：文字之外的字段 */
+        String key() {
+            return className + '|' + id + '|' + left + ',' + top + ',' + right + ',' + bottom;
+        }
+
+        boolean sameText(Record other) {
+            return text == null ? other.text == null : text.equals(other.text);
+        }
+
+        void writeFields(JsonWriter writer) throws IOException {
+            if (className != null) writer.name("className").value(className);
+            if (id != null) writer.name("id").value(id);
+            if (text != null) writer.name("text").value(text);
+            writer.name("left").value(left);
+            writer.name("top").value(top);
+            writer.name("right").value(right);
+            writer.name("bottom").value(bottom);
+        }
+    }
+
+    private static final class State {
+        long gen = 0;
+        int nextHandle = 0;
+        Map<String, Integer> handles = new HashMap<>();
+        Map<Integer, Record> records = new HashMap<>();
+        int[] order = new int[0];
+    }
+
+    private final Map<String, State> states = new HashMap<>();
+
+    /**
+     * 旧格式：{"action","list":[...]}，不带句柄和版本
+     */
+    static void writeLegacy(JsonWriter writer, String action, List<Record> records) throws IOException {
+        writer.beginObject();
+        writer.name("action").value(action);
+        writer.name("list").beginArray();
+        for (Record r : records) {
+            writer.beginObject();
+            r.writeFields(writer);
+            writer.endObject();
+        }
+        writer.endArray();
+        writer.endObject();
+    }
+
+    /**
+     * 一次比较的结果：全量时只有 gen 和 order 有意义
+     */
+    static final class Diff {
+        boolean full;
+        long base;
+        long gen;
+        final List<Integer> added = new ArrayList<>();
+        final List<Integer> changed = new ArrayList<>();
+        final List<Integer> removed = new ArrayList<>();
+        /** 为null表示顺序未变 */
+        int[] order;
+        private State state;
+
+        Record record(int k) {
+            return state.records.get(k);
+        }
+    }
+
+    /**
+     * 与该动作上次发出的快照比较，写出全量或增量回复，并把records记为新的快照
+     *
+     * @param baseGen 客户端持有的版本，-1 表示要求全量
+     */
+    void write(JsonWriter writer, String action, List<Record> records, long baseGen) throws IOException {
+        Diff diff = diff(action, records, baseGen);
+        if (diff.full) {
+            writeFull(writer, action, diff);
+            Log.d(TAG, "action " + action + " full gen=" + diff.gen + " records=" + records.size());
+            return;
+        }
+
+        writer.beginObject();
+        writer.name("action").value(action);
+        writer.name("mode").value("delta");
+        writer.name("base").value(diff.base);
+        writer.name("gen").value(diff.gen);
+        writeRecords(writer, "added", diff.added, diff);
+        writeRecords(writer, "changed", diff.changed, diff);
+        writer.name("removed").beginArray();
+        for (int k : diff.removed) writer.value(k);
+        writer.endArray();
+        if (diff.order != null) {
+            writer.name("order").beginArray();
+            for (int k : diff.order) writer.value(k);
+            writer.endArray();
+        }
+        writer.endObject();
+        Log.d(TAG, "action " + action + " delta gen=" + diff.gen + " +" + diff.added.size()
+                + " ~" + diff.changed.size() + " -" + diff.removed.size() + " of " + records.size());
+    }
+
+    /**
+     * 与该动作上次发出的快照比较，并把records记为新的快照
+     *
+     * @param baseGen 客户端持有的版本，-1 表示要求全量
+     */
+    Diff diff(String action, List<Record> records, long baseGen) {
+        State old = states.get(action);
+        State cur = new State();
+        cur.nextHandle = old != null ? old.nextHandle : 0;
+        Diff diff = new Diff();
+        diff.state = cur;
+
+        // 分配句柄：沿用上一快照中相同键的句柄
+        Map<String, Integer> occurrences = new HashMap<>();
+        cur.order = new int[records.size()];
+        for (int i = 0; i < records.size(); i++) {
+            Record r = records.get(i);
+            String key = r.key();
+            Integer n = occurrences.get(key);
+            occurrences.put(key, n == null ? 1 : n + 1);
+            if (n != null) key = key + '#' + n;
+
+            Integer k = old != null ? old.handles.get(key) : null;
+            if (k == null) {
+                k = cur.nextHandle++;
+                diff.added.add(k);
+            } else if (!old.records.get(k).sameText(r)) {
+                diff.changed.add(k);
+            }
+            cur.handles.put(key, k);
+            cur.records.put(k, r);
+            cur.order[i] = k;
+        }
+
+        diff.full = old == null || baseGen < 0 || baseGen != old.gen
+                || diff.added.size() * 2 > records.size();
+        if (diff.full) {
+            cur.gen = (old != null ? old.gen : 0) + 1;
+            states.put(action, cur);
+            diff.gen = cur.gen;
+            diff.order = cur.order;
+            return diff;
+        }
+
+        int[] kept = new int[old.order.length];
+        int keptCount = 0;
+        for (int k : old.order) {
+            if (cur.records.containsKey(k)) kept[keptCount++] = k;
+            else diff.removed.add(k);
+        }
+        boolean reordered = !Arrays.equals(Arrays.copyOf(kept, keptCount), cur.order);
+        boolean unchanged = diff.added.isEmpty() && diff.changed.isEmpty()
+                && diff.removed.isEmpty() && !reordered;
+        cur.gen = unchanged ? old.gen : old.gen + 1;
+        states.put(action, cur);
+        diff.base = old.gen;
+        diff.gen = cur.gen;
+        diff.order = reordered ? cur.order : null;
+        return diff;
+    }
+
+    private static void writeFull(JsonWriter writer, String action, Diff diff) throws IOException {
+        writer.beginObject();
+        writer.name("action").value(action);
+        writer.name("mode").value("full");
+        writer.name("gen").value(diff.gen);
+        writer.name("list").beginArray();
+        for (int k : diff.order) {
+            writeRecord(writer, k, diff.record(k));
+        }
+        writer.endArray();
+        writer.endObject();
+    }
+
+    private static void writeRecords(JsonWriter writer, String name, List<Integer> handles, Diff diff) throws IOException {
+        writer.name(name).beginArray();
+        for (int k : handles) {
+            writeRecord(writer, k, diff.record(k));
+        }
+        writer.endArray();
+    }
+
+    private static void writeRecord(JsonWriter writer, int k, Record r) throws IOException {
+        writer.beginObject();
+        writer.name("k").value(k);
+        r.writeFields(writer);
+        writer.endObject();
+    }
+}
@@ -3,6 +3,8 @@ import android.app.IntentService;
 import android.content.Intent;
 import android.content.IntentFilter;
 import android.os.AsyncTask;
+import android.os.SystemClock;
+import android.util.JsonWriter;
 import android.util.Log;
 
 import androidx.annotation.Nullable;
@@ -10,15 +12,43 @@ import androidx.annotation.Nullable;
 import org.json.JSONObject;
 
 import java.io.BufferedReader;
+import java.io.BufferedWriter;
+import java.io.IOException;
 import java.io.InputStreamReader;
+import java.io.OutputStream;
 import java.io.OutputStreamWriter;
 import java.io.PrintWriter;
+import java.io.Writer;
 import java.net.ServerSocket;
 import java.net.Socket;
+import java.nio.charset.StandardCharsets;
+import java.util.List;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
 
 public class SocketServerService extends IntentService {
 
+    /**
+     * 流式结果：直接向客户端写出一个JSON值（一行），不经过JSONObject
+     * 在写socket线程上调用，只应读取调用前准备好的不可变数据（不能读取无障碍节点或树镜像）
+     */
+    public interface ResultWriter {
+        void write(JsonWriter writer) throws IOException;
+    }
+
+    private static final int STREAM_BUFFER_SIZE = 16 * 1024;
+
+    // socket线程在onHandleIntent返回、服务onDestroy之后仍在运行，这里不置空
+    private static volatile SocketServerService instance;
+
     private PrintWriter out = null;
+    // 当前客户端的原始输出流，没有连接时为null
+    private volatile OutputStream clientOut = null;
+    // 写socket的锁：流式结果与sendRes2Client交替写，保证每个结果独占一行
+    private final Object writeLock = new Object();
+    private final ExecutorService writeExecutor = Executors.newSingleThreadExecutor();
+    // 当前连接上一次发出的快照（增量协议），每个新连接重新开始；只在写socket线程上读写内容
+    private volatile NodeSnapshots snapshots = new NodeSnapshots();
 
     public SocketServerService(){
         super("socketService");
@@ -30,6 +60,7 @@ public class SocketServerService extends IntentService {
     @Override
     public void onCreate() {
         super.onCreate();
+        instance = this;
         IntentFilter filter = new IntentFilter("ACTION_RESULT");
         if(actionResultReceiver == null){
             actionResultReceiver = new ActionResultReceiver(this);
@@ -62,7 +93,9 @@ public class SocketServerService extends IntentService {
                         // 创建输入流和输出流
                         in = new BufferedReader(new InputStreamReader(clientSocket.getInputStream()));
 //                        out = new PrintWriter(clientSocket.getOutputStream(), true);
-                        out = new PrintWriter(new OutputStreamWriter(clientSocket.getOutputStream(), "UTF-8"), true);
+                        snapshots = new NodeSnapshots();
+                        clientOut = clientSocket.getOutputStream();
+                        out = new PrintWriter(new OutputStreamWriter(clientOut, "UTF-8"), true);
 
 
                         // 进入循环，保持长连接状态
@@ -76,15 +109,36 @@ public class SocketServerService extends IntentService {
                             try{
                                 Log.i("socket", message);
 
+                                long receivedAt = SystemClock.elapsedRealtimeNanos();
                                 // 解析消息并处理
                                 JSONObject jsonObject = new JSONObject(message);
                                 String action = jsonObject.getString("action");
                                 Log.i("socket", jsonObject.getString("action"));
+                                String extra = jsonObject.getString("extra");
+                                // 可选：增量协议（动作1、2）
+                                String mode = jsonObject.optString("mode", null);
+                                long gen = jsonObject.optLong("gen", -1);
+
+                                // 无障碍服务已连接时直接交给进程内总线
+                                if(useCommandBus()){
+                                    CommandBus.Status status = CommandBus.submit(new CommandBus.Command(
+                                            action, extra, "delta".equals(mode), gen, receivedAt, false));
+                                    if(status == CommandBus.Status.REJECTED){
+                                        // 命令被丢弃也要回复，客户端不会一直等待
+                                        replyError(action, "busy");
+                                    }
+                                    if(status != CommandBus.Status.NO_HANDLER){
+                                        continue;
+                                    }
+                                }
 
                                 // 创建广播意图并发送
                                 Intent msg = new Intent("FIND_ALL_FOCUS_INFO");
-                                msg.putExtra("action", jsonObject.getString("action"));
-                                msg.putExtra("extra", jsonObject.getString("extra"));
+                                msg.putExtra("action", action);
+                                msg.putExtra("extra", extra);
+                                msg.putExtra("mode", mode);
+                                msg.putExtra("gen", gen);
+                                msg.putExtra("receivedAt", receivedAt);
                                 sendBroadcast(msg);
                             }catch (Exception e){
                                 Log.e("recv action err","",e);
@@ -94,6 +148,7 @@ public class SocketServerService extends IntentService {
                         Log.e("socketerr","",e);
                     }finally {
                         // 关闭流和连接
+                        clientOut = null;
                         in.close();
                         out.close();
                         clientSocket.close();
@@ -115,6 +170,11 @@ public class SocketServerService extends IntentService {
 //        }
     }
 
+    // 设置项 command_bus=false 时全部走广播，用于对比两条路径的延迟
+    private boolean useCommandBus(){
+        return getSharedPreferences("a11y_prefs", MODE_PRIVATE).getBoolean("command_bus", true);
+    }
+
     public void sendRes2Client(JSONObject res){
         if(res != null){
 //            Log.i("res",res.toString());
@@ -128,7 +188,9 @@ public class SocketServerService extends IntentService {
                             if(out == null || res == null){
                                 return "";
                             }
-                            out.println(res.toString());
+                            synchronized (writeLock){
+                                out.println(res.toString());
+                            }
                             Log.i("socket-msg",res.toString());
 //                    out.flush();
                         }catch (Exception ex){
@@ -148,4 +210,72 @@ public class SocketServerService extends IntentService {
         }
     }
 
+    /**
+     * 在写socket线程上把结果边生成边写给当前客户端，末尾换行
+     *
+     * @param command 结果对应的命令，写出后记录往返耗时；没有时为null
+     * @return 没有客户端连接时返回false，调用方走广播回传
+     */
+    public static boolean streamRes2Client(ResultWriter result, CommandBus.Command command){
+        SocketServerService service = instance;
+        if(service == null || service.clientOut == null){
+            return false;
+        }
+        service.writeExecutor.execute(() -> service.writeStreaming(result, command));
+        return true;
+    }
+
+    /**
+     * 回复命令未能执行：{"action":..,"error":..}
+     *
+     * @return 没有客户端连接时返回false
+     */
+    public static boolean replyError(String action, String error){
+        return streamRes2Client(writer -> {
+            writer.beginObject();
+            writer.name("action").value(action);
+            writer.name("error").value(error);
+            writer.endObject();
+        }, null);
+    }
+
+    /**
+     * 按增量协议回复：与本连接上次发出的快照比较，写出全量或增量
+     *
+     * @param records 已在调用线程上生成的不可变记录
+     * @param command 要求增量的命令，其 gen 为客户端持有的版本
+     * @return 没有客户端连接时返回false
+     */
+    public static boolean streamSnapshot(String action, List<NodeSnapshots.Record> records, CommandBus.Command command){
+        SocketServerService service = instance;
+        if(service == null || service.clientOut == null){
+            return false;
+        }
+        service.writeExecutor.execute(() -> service.writeStreaming(
+                writer -> service.snapshots.write(writer, action, records, command.gen), command));
+        return true;
+    }
+
+    private void writeStreaming(ResultWriter result, CommandBus.Command command){
+        synchronized (writeLock){
+            OutputStream os = clientOut;
+            if(os == null){
+                return;
+            }
+            try{
+                // 不关闭writer：关闭会连带关闭socket
+                Writer buffered = new BufferedWriter(new OutputStreamWriter(os, StandardCharsets.UTF_8), STREAM_BUFFER_SIZE);
+                JsonWriter writer = new JsonWriter(buffered);
+                result.write(writer);
+                buffered.write('\n');
+                buffered.flush();
+                if(command != null){
+                    CommandBus.recordReplySent(command);
+                }
+            }catch (IOException | RuntimeException e){
+                Log.e("socketwerr", "stream result failed", e);
+            }
+        }
+    }
+
 }
@@ -13,10 +13,12 @@ import android.widget.TextView;
 import androidx.activity.EdgeToEdge;
 import androidx.appcompat.app.AppCompatActivity;
 
+import com.eagle.android.detector.PipelineBenchmark;
 import com.eagle.android.detector.YOLOv11Detector;
 import com.eagle.android.model.ChartResult;
 import com.eagle.android.model.NodeSpec;
 
+import java.util.List;
 import java.util.concurrent.ExecutorService;
 import java.util.concurrent.Executors;
 
@@ -30,6 +32,7 @@ public class TestYOLOv11Activity extends AppCompatActivity {
     private TextView tvLog;
     private ScrollView scrollView;
     private Button btnTest;
+    private Button btnBenchmark;
     private ExecutorService executor;
     private Handler mainHandler;
 
@@ -45,6 +48,7 @@ public class TestYOLOv11Activity extends AppCompatActivity {
         scrollView = findViewById(R.id.scrollView);
         btnTest = findViewById(R.id.btnTest);
         Button btnClose = findViewById(R.id.btnClose);
+        btnBenchmark = findViewById(R.id.btnBenchmark);
 
         executor = Executors.newSingleThreadExecutor();
         mainHandler = new Handler(Looper.getMainLooper());
@@ -52,6 +56,7 @@ public class TestYOLOv11Activity extends AppCompatActivity {
 
         btnTest.setOnClickListener(v -> runDetectionTest());
         btnClose.setOnClickListener(v -> finish());
+        btnBenchmark.setOnClickListener(v -> runPipelineBenchmark());
 
         addLog("=== YOLOv11 模型检测测试 ===\n");
         addLog("点击'开始测试'按钮运行检测\n");
@@ -104,7 +109,14 @@ public class TestYOLOv11Activity extends AppCompatActivity {
                     return;
                 }
 
-                addLog("✓ 模型初始化成功 (耗时: " + initTime + "ms)\n\n");
+                addLog("✓ 模型初始化成功 (耗时: " + initTime + "ms)\n");
+                YOLOv11Detector.InitStats initStats = detector.getInitStats();
+                if (initStats != null) {
+                    addLog("  执行提供程序: " + initStats.provider + "\n");
+                    addLog("  启动类型: " + (initStats.optimizedCacheHit ? "热启动（命中优化模型缓存）" : "冷启动（首次图优化）") + "\n");
+                    addLog("  会话创建: " + initStats.sessionMs + "ms，预热推理: " + initStats.warmUpMs + "ms\n");
+                }
+                addLog("\n");
 
                 // 3. 运行检测
                 addLog("🔍 开始运行检测...\n");
@@ -112,7 +124,12 @@ public class TestYOLOv11Activity extends AppCompatActivity {
                 ChartResult result = detector.detectSingleChart(testImage);
                 long detectTime = System.currentTimeMillis() - detectStartTime;
 
-                addLog("✓ 检测完成 (耗时: " + detectTime + "ms)\n\n");
+                addLog("✓ 检测完成 (耗时: " + detectTime + "ms)\n");
+                YOLOv11Detector.FrameStats frameStats = detector.getLastFrameStats();
+                if (frameStats != null) {
+                    addLog("  输入尺寸: " + frameStats.inputSize + "px，推理: " + frameStats.inferenceMs + "ms\n");
+                }
+                addLog("\n");
 
                 // 4. 分析结果
                 addLog("📊 检测结果分析:\n");
@@ -205,6 +222,56 @@ public class TestYOLOv11Activity extends AppCompatActivity {
         });
     }
 
+    /**
+     * 连续滚动场景下串行检测与分阶段流水线的吞吐量/延迟对比
+     * 以测试图片为长页面，视口为其高度的一半，逐帧下移
+     */
+    private void runPipelineBenchmark() {
+        btnTest.setEnabled(false);
+        btnBenchmark.setEnabled(false);
+        logBuilder.setLength(0);
+        tvLog.setText("");
+
+        addLog("=== 串行 vs 流水线（模拟连续滚动）===\n\n");
+
+        executor.execute(() -> {
+            Bitmap page = null;
+            YOLOv11Detector detector = null;
+            try {
+                page = BitmapFactory.decodeResource(getResources(), R.drawable.smaple2);
+                if (page == null) {
+                    addLog("❌ 错误: 无法加载测试图片\n");
+                    return;
+                }
+                detector = new YOLOv11Detector(TestYOLOv11Activity.this);
+                if (!detector.initialize()) {
+                    addLog("❌ 模型初始化失败\n");
+                    return;
+                }
+
+                int frames = 30;
+                addLog("帧数: " + frames + "，视口: " + page.getWidth() + "x" + page.getHeight() / 2 + "\n\n");
+                List<PipelineBenchmark.Result> results =
+                        PipelineBenchmark.run(detector, page, page.getHeight() / 2, frames);
+                for (PipelineBenchmark.Result r : results) {
+                    addLog("• " + r + "\n");
+                }
+                if (results.size() == 2 && results.get(0).fps > 0) {
+                    addLog(String.format(java.util.Locale.getDefault(),
+                            "\n吞吐量提升: %.2fx\n", results.get(1).fps / results.get(0).fps));
+                }
+                addLog("\n✓ 对比完成\n");
+            } catch (Exception e) {
+                Log.e(TAG, "基准测试出错", e);
+                addLog("\n❌ 基准测试出错:\n" + e.getMessage() + "\n");
+            } finally {
+                if (detector != null) detector.release();
+                if (page != null) page.recycle();
+                enableTestButton();
+            }
+        });
+    }
+
     /**
      * 添加日志到界面
      */
@@ -223,7 +290,10 @@ public class TestYOLOv11Activity extends AppCompatActivity {
      * 启用测试按钮
      */
     private void enableTestButton() {
-        mainHandler.post(() -> btnTest.setEnabled(true));
+        mainHandler.post(() -> {
+            btnTest.setEnabled(true);
+            btnBenchmark.setEnabled(true);
+        });
     }
 
     @Override
@@ -0,0 +1,331 @@
+package com.eagle.android.a11y;
+
+import android.accessibilityservice.AccessibilityService;
+import android.graphics.Rect;
+import android.view.accessibility.AccessibilityEvent;
+import android.view.accessibility.AccessibilityNodeInfo;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.IdentityHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+
+/**
+ * 活动窗口无障碍树的进程内镜像
+ *
+ * 逐条命令从 getRootInActiveWindow() 重新递归 getChild，大列表页面每条命令要几百次跨进程调用。
+ * 镜像只在第一次访问时建立，之后由事件打补丁：
+ * - TYPE_WINDOW_CONTENT_CHANGED：文字/描述/状态变化只标记该节点属性过期；子树变化（或类型未定义）标记其子树结构过期
+ * - TYPE_VIEW_SCROLLED：滚动容器的子树结构过期
+ * - 窗口切换、活动窗口变化：整棵镜像作废
+ * 过期的属性和子节点列表不会立即重新获取，而是在下一次被访问时才向系统查询（懒加载）。
+ * 子树结构过期时节点仍留在索引中：重新获取子节点列表时仍存在的节点复用其镜像（属性随之刷新），
+ * 不再出现的节点连同其子树才从索引中移除。
+ *
+ * 节点身份以 AccessibilityNodeInfo 的 equals/hashCode（窗口id + 节点id）为键。
+ * 镜像持有的节点对象不回收：键对象被回收后哈希会变化。
+ * 线程安全；节点的读取方法都会在需要时触发重新获取。
+ */
+public final class AccessibilityTreeMirror {
+
+    /**
+     * 镜像中的一个节点：属性快照 + 用于执行动作的系统节点
+     */
+    public static final class Node {
+        private final AccessibilityTreeMirror mirror;
+        private AccessibilityNodeInfo info;
+        private Node parent;
+        private List<Node> children;   // null 表示尚未获取
+        private boolean childrenStale; // 子节点列表已过期，下次访问时重新获取
+        private boolean stale;         // 属性快照已过期
+        private boolean gone;          // 系统中已不存在
+
+        private CharSequence className;
+        private CharSequence text;
+        private CharSequence contentDescription;
+        private CharSequence hintText;
+        private CharSequence stateDescription;
+        private String viewId;
+        private final Rect bounds = new Rect();
+        private boolean visible;
+        private boolean focusable;
+        private boolean clickable;
+        private boolean longClickable;
+        private boolean checkable;
+        private boolean checked;
+        private boolean enabled;
+        private boolean screenReaderFocusable;
+        private boolean collection;
+        private int actions;
+        private int[] actionIds;
+
+        Node(AccessibilityTreeMirror mirror, AccessibilityNodeInfo info, Node parent) {
+            this.mirror = mirror;
+            this.parent = parent;
+            read(info);
+        }
+
+        private void read(AccessibilityNodeInfo info) {
+            this.info = info;
+            stale = false;
+            if (gone) {
+                // 曾被移除的节点又重新挂回（如列表项短暂分离）：子节点需要重新获取
+                gone = false;
+                children = null;
+                childrenStale = false;
+            }
+            className = info.getClassName();
+            text = info.getText();
+            contentDescription = info.getContentDescription();
+            hintText = info.getHintText();
+            stateDescription = info.getStateDescription();
+            viewId = info.getViewIdResourceName();
+            info.getBoundsInScreen(bounds);
+            visible = info.isVisibleToUser();
+            focusable = info.isFocusable();
+            clickable = info.isClickable();
+            longClickable = info.isLongClickable();
+            checkable = info.isCheckable();
+            checked = info.isChecked();
+            enabled = info.isEnabled();
+            screenReaderFocusable = info.isScreenReaderFocusable();
+            collection = info.getCollectionInfo() != null;
+            actions = info.getActions();
+            List<AccessibilityNodeInfo.AccessibilityAction> list = info.getActionList();
+            actionIds = new int[list.size()];
+            for (int i = 0; i < actionIds.length; i++) {
+                actionIds[i] = list.get(i).getId();
+            }
+        }
+
+        /** 属性过期时重新获取（一次跨进程调用） */
+        private void ensureFresh() {
+            synchronized (mirror) {
+                if (!stale) return;
+                mirror.fetches++;
+                if (info.refresh()) {
+                    read(info);
+                } else {
+                    // 节点已被移除：保留最后的快照，但视为不可见且没有子节点
+                    stale = false;
+                    gone = true;
+                    visible = false;
+                    children = Collections.emptyList();
+                }
+            }
+        }
+
+        /**
+         * 子节点；子节点列表过期后在这里重新获取，仍存在的节点复用其镜像
+         */
+        public List<Node> getChildren() {
+            synchronized (mirror) {
+                ensureFresh();
+                if (children == null || (childrenStale && !gone)) {
+                    List<Node> previous = children;
+                    children = mirror.fetchChildren(this);
+                    childrenStale = false;
+                    if (previous != null) {
+                        mirror.removeDetached(previous, children);
+                    }
+                }
+                return children;
+            }
+        }
+
+        public Node getParent() {
+            return parent;
+        }
+
+        /** 在系统节点上执行动作 */
+        public boolean performAction(int action) {
+            AccessibilityNodeInfo target;
+            synchronized (mirror) {
+                if (gone) return false;
+                target = info;
+            }
+            return target.performAction(action);
+        }
+
+        public CharSequence getClassName() { ensureFresh(); return className; }
+        public CharSequence getText() { ensureFresh(); return text; }
+        public CharSequence getContentDescription() { ensureFresh(); return contentDescription; }
+        public CharSequence getHintText() { ensureFresh(); return hintText; }
+        public CharSequence getStateDescription() { ensureFresh(); return stateDescription; }
+        public String getViewIdResourceName() { ensureFresh(); return viewId; }
+        public void getBoundsInScreen(Rect out) { ensureFresh(); out.set(bounds); }
+        public boolean isVisibleToUser() { ensureFresh(); return visible; }
+        public boolean isFocusable() { ensureFresh(); return focusable; }
+        public boolean isClickable() { ensureFresh(); return clickable; }
+        public boolean isLongClickable() { ensureFresh(); return longClickable; }
+        public boolean isCheckable() { ensureFresh(); return checkable; }
+        public boolean isChecked() { ensureFresh(); return checked; }
+        public boolean isEnabled() { ensureFresh(); return enabled; }
+        public boolean isScreenReaderFocusable() { ensureFresh(); return screenReaderFocusable; }
+        public boolean hasCollectionInfo() { ensureFresh(); return collection; }
+        /** 已弃用的动作位掩码（AccessibilityNodeInfo#getActions） */
+        public int getActions() { ensureFresh(); return actions; }
+
+        public boolean hasAction(int actionId) {
+            ensureFresh();
+            for (int id : actionIds) {
+                if (id == actionId) return true;
+            }
+            return false;
+        }
+    }
+
+    private final Map<AccessibilityNodeInfo, Node> index = new HashMap<>();
+    private Node root;
+    private int windowId = -1;
+
+    // 统计：向系统查询的次数（重新获取属性 + 获取子节点）与镜像重建次数
+    private int fetches = 0;
+    private int rebuilds = 0;
+
+    /**
+     * 活动窗口的镜像根节点；镜像作废后在这里重新建立（只取根，子节点按需获取）
+     *
+     * @return 拿不到窗口内容时为null
+     */
+    public synchronized Node getRoot(AccessibilityService service) {
+        if (root != null) return root;
+        AccessibilityNodeInfo live = service.getRootInActiveWindow();
+        if (live == null) return null;
+        rebuilds++;
+        windowId = live.getWindowId();
+        root = new Node(this, live, null);
+        index.put(live, root);
+        return root;
+    }
+
+    /**
+     * 根据事件给镜像打补丁；应在服务的 onAccessibilityEvent 中对每个事件调用
+     */
+    public synchronized void onEvent(AccessibilityEvent event) {
+        switch (event.getEventType()) {
+            case AccessibilityEvent.TYPE_WINDOW_STATE_CHANGED:
+                invalidate();
+                break;
+            case AccessibilityEvent.TYPE_WINDOWS_CHANGED:
+                int changes = event.getWindowChanges();
+                if ((changes & AccessibilityEvent.WINDOWS_CHANGE_ACTIVE) != 0
+                        || ((changes & AccessibilityEvent.WINDOWS_CHANGE_REMOVED) != 0
+                        && event.getWindowId() == windowId)) {
+                    invalidate();
+                }
+                break;
+            case AccessibilityEvent.TYPE_WINDOW_CONTENT_CHANGED:
+                int types = event.getContentChangeTypes();
+                boolean structural = types == AccessibilityEvent.CONTENT_CHANGE_TYPE_UNDEFINED
+                        || (types & AccessibilityEvent.CONTENT_CHANGE_TYPE_SUBTREE) != 0;
+                markDirty(event, structural);
+                break;
+            case AccessibilityEvent.TYPE_VIEW_SCROLLED:
+                // 滚动后子节点的位置、以及复用的列表项内容都可能变化
+                markDirty(event, true);
+                break;
+            default:
+                break;
+        }
+    }
+
+    /**
+     * 整棵镜像作废，下次访问时重建
+     */
+    public synchronized void invalidate() {
+        root = null;
+        windowId = -1;
+        index.clear();
+    }
+
+    public synchronized int getFetches() {
+        return fetches;
+    }
+
+    public synchronized int getRebuilds() {
+        return rebuilds;
+    }
+
+    private void markDirty(AccessibilityEvent event, boolean structural) {
+        if (root == null || event.getWindowId() != windowId) return;
+        AccessibilityNodeInfo source = event.getSource();
+        if (source == null) {
+            // 无法定位变化的位置
+            invalidate();
+            return;
+        }
+        Node node = index.get(source);
+        source.recycle();
+        // 尚未获取过的节点没有需要更新的快照
+        if (node == null) return;
+        node.stale = true;
+        if (structural) {
+            markChildrenStale(node);
+        }
+    }
+
+    /**
+     * 标记node及其已获取的后代的子节点列表过期；节点保留在索引中以便重新获取时复用
+     */
+    private void markChildrenStale(Node node) {
+        List<Node> pending = new ArrayList<>();
+        pending.add(node);
+        while (!pending.isEmpty()) {
+            Node n = pending.remove(pending.size() - 1);
+            if (n.children == null) continue;
+            n.childrenStale = true;
+            pending.addAll(n.children);
+        }
+    }
+
+    /**
+     * 重新获取子节点列表后，把不再出现的旧子节点连同其子树移出索引
+     */
+    private void removeDetached(List<Node> previous, List<Node> current) {
+        Set<Node> kept = Collections.newSetFromMap(new IdentityHashMap<>());
+        kept.addAll(current);
+        List<Node> pending = new ArrayList<>();
+        for (Node n : previous) {
+            if (!kept.contains(n)) pending.add(n);
+        }
+        while (!pending.isEmpty()) {
+            Node n = pending.remove(pending.size() - 1);
+            // 节点可能已被移到别处并复用（parent已改变）
+            if (index.get(n.info) == n && !kept.contains(n)) {
+                index.remove(n.info);
+            }
+            if (n.children != null) {
+                for (Node c : n.children) {
+                    if (c.parent == n) pending.add(c);
+                }
+            }
+        }
+    }
+
+    private List<Node> fetchChildren(Node parent) {
+        int count = parent.info.getChildCount();
+        List<Node> list = new ArrayList<>(count);
+        for (int i = 0; i < count; i++) {
+            fetches++;
+            // API 33+ 同时预取后代，之后展开孙节点时大多命中系统缓存
+            AccessibilityNodeInfo c = NodeTraversal.getChild(parent.info, i);
+            if (c == null) continue;
+            Node existing = index.get(c);
+            if (existing != null) {
+                // 刚取回的属性是最新的；已有的子节点列表继续沿用（结构过期时会在访问时重新获取）
+                existing.read(c);
+                existing.parent = parent;
+                list.add(existing);
+            } else {
+                Node n = new Node(this, c, parent);
+                index.put(c, n);
+                list.add(n);
+            }
+        }
+        return list;
+    }
+}
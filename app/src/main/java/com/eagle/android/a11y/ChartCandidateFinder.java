@@ -0,0 +1,197 @@
+package com.eagle.android.a11y;
+
+import android.graphics.Rect;
+import android.view.accessibility.AccessibilityNodeInfo;
+
+import java.util.ArrayDeque;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Locale;
+
+/**
+ * 根据无障碍树提名可能绘制图表的节点，没有候选的界面不必截图推理
+ *
+ * 一次遍历活动窗口，满足任一条件的可见节点成为候选：
+ * - 类名来自已知图表库，或短类名包含 Chart / Graph / Plot
+ * - contentDescription 像图表（"图表"、"折线"、"chart" 等）
+ * - 面积较大的 ImageView / View / WebView / SurfaceView / TextureView，且子树内没有文字
+ * 候选的并集就是需要检测的区域；候选的子孙不再单独提名。
+ */
+public final class ChartCandidateFinder {
+
+    // 大节点阈值：面积占屏幕比例，以及宽高占屏幕宽度的最小比例
+    private static final float MIN_AREA_RATIO = 0.08f;
+    private static final float MIN_SIDE_RATIO = 0.25f;
+    // 遍历上限，防止超大列表拖慢事件处理
+    private static final int MAX_NODES = 3000;
+    private static final long TIME_BUDGET_MS = 50;
+
+    private static final String[] CHART_LIBRARY_PREFIXES = {
+            "com.github.mikephil.charting.",   // MPAndroidChart
+            "lecho.lib.hellocharts.",           // HelloCharts
+            "com.anychart.",
+            "org.achartengine.",
+            "com.highsoft.highcharts.",
+            "com.patrykandpatrick.vico.",
+            "com.jjoe64.graphview.",
+            "com.db.chart.",                    // WilliamChart
+            "com.github.abel533.echarts.",
+    };
+
+    // 区分大小写，避免 Paragraph 之类的误中
+    private static final String[] CHART_CLASS_TOKENS = {"Chart", "Graph", "Plot"};
+
+    private static final String[] CHART_DESCRIPTION_TOKENS = {
+            "chart", "diagram", "plot",
+            "图表", "图形", "柱状", "条形", "折线", "曲线", "饼图", "趋势", "走势", "k线", "统计图",
+    };
+
+    private static final String[] DRAWING_CLASSES = {
+            "android.widget.ImageView",
+            "android.view.View",
+            "android.webkit.WebView",
+            "android.view.SurfaceView",
+            "android.view.TextureView",
+    };
+
+    /**
+     * 提名结果
+     */
+    public static final class Proposal {
+        /** 候选节点的屏幕区域 */
+        public final List<Rect> candidates = new ArrayList<>();
+        /** 候选区域的并集，没有候选时为null */
+        public Rect union;
+        /** 实际访问的节点数 */
+        public int visitedNodes;
+        /** 因节点数或时间预算提前结束：没有候选不代表界面上没有图表 */
+        public boolean truncated;
+
+        public boolean isEmpty() {
+            return candidates.isEmpty();
+        }
+    }
+
+    private ChartCandidateFinder() {
+    }
+
+    /**
+     * 遍历以root为根的树，提名图表候选
+     *
+     * @param screenWidth 屏幕宽度（用于判断"大"节点）
+     * @param screenHeight 屏幕高度
+     */
+    public static Proposal propose(AccessibilityNodeInfo root, int screenWidth, int screenHeight) {
+        Proposal p = new Proposal();
+        if (root == null) return p;
+        long minArea = (long) (screenWidth * (long) screenHeight * MIN_AREA_RATIO);
+        int minSide = Math.round(screenWidth * MIN_SIDE_RATIO);
+        NodeTraversal.Stats stats = NodeTraversal.live()
+                .maxNodes(MAX_NODES)
+                .timeBudgetMs(TIME_BUDGET_MS)
+                .walk(root, new Visitor(p, minArea, minSide));
+        p.visitedNodes = stats.visited;
+        p.truncated = stats.truncated;
+        for (Rect r : p.candidates) {
+            if (p.union == null) p.union = new Rect(r);
+            else p.union.union(r);
+        }
+        return p;
+    }
+
+    /**
+     * 后序判断子树内是否有文字：进入节点时记录状态，离开时决定是否提名并把结果并入父节点
+     */
+    private static final class Visitor implements NodeTraversal.Visitor<AccessibilityNodeInfo> {
+        private final Proposal p;
+        private final long minArea;
+        private final int minSide;
+        private final ArrayDeque<State> states = new ArrayDeque<>();
+
+        private static final class State {
+            boolean invisible;
+            boolean terminal;       // 已按名称/描述提名，不再深入
+            boolean subtreeHasText;
+            int before;             // 进入时已有的候选数
+            Rect bounds;
+            boolean drawing;
+        }
+
+        Visitor(Proposal p, long minArea, int minSide) {
+            this.p = p;
+            this.minArea = minArea;
+            this.minSide = minSide;
+        }
+
+        @Override
+        public int enter(AccessibilityNodeInfo n, int depth) {
+            State s = new State();
+            states.push(s);
+            if (!n.isVisibleToUser()) {
+                s.invisible = true;
+                return NodeTraversal.SKIP_CHILDREN;
+            }
+            Rect bounds = new Rect();
+            n.getBoundsInScreen(bounds);
+            String className = n.getClassName() != null ? n.getClassName().toString() : "";
+            s.subtreeHasText = hasText(n);
+
+            // 名称或描述明确指向图表：直接提名，不再深入
+            if (isChartClass(className) || isChartDescription(n.getContentDescription())) {
+                if (!bounds.isEmpty()) p.candidates.add(bounds);
+                s.terminal = true;
+                return NodeTraversal.SKIP_CHILDREN;
+            }
+            s.before = p.candidates.size();
+            s.bounds = bounds;
+            s.drawing = isDrawingClass(className);
+            return NodeTraversal.CONTINUE;
+        }
+
+        @Override
+        public void leave(AccessibilityNodeInfo n, int depth) {
+            State s = states.pop();
+            if (s.invisible) return;
+            // 无文字的大块绘制区域；子孙已被提名时以子孙为准
+            if (!s.terminal && !s.subtreeHasText && p.candidates.size() == s.before && s.drawing
+                    && (long) s.bounds.width() * s.bounds.height() >= minArea
+                    && s.bounds.width() >= minSide && s.bounds.height() >= minSide / 2) {
+                p.candidates.add(s.bounds);
+            }
+            State parent = states.peek();
+            if (parent != null) parent.subtreeHasText |= s.subtreeHasText;
+        }
+    }
+
+    private static boolean hasText(AccessibilityNodeInfo n) {
+        CharSequence t = n.getText();
+        return t != null && t.toString().trim().length() > 0;
+    }
+
+    private static boolean isChartClass(String className) {
+        for (String prefix : CHART_LIBRARY_PREFIXES) {
+            if (className.startsWith(prefix)) return true;
+        }
+        String simple = className.substring(className.lastIndexOf('.') + 1);
+        for (String token : CHART_CLASS_TOKENS) {
+            if (simple.contains(token)) return true;
+        }
+        return false;
+    }
+
+    private static boolean isChartDescription(CharSequence desc) {
+        if (desc == null || desc.length() == 0) return false;
+        String s = desc.toString().toLowerCase(Locale.ROOT);
+        for (String token : CHART_DESCRIPTION_TOKENS) {
+            if (s.contains(token)) return true;
+        }
+        return false;
+    }
+
+    private static boolean isDrawingClass(String className) {
+        for (String c : DRAWING_CLASSES) {
+            if (c.equals(className)) return true;
+        }
+        return false;
+    }
+}
@@ -0,0 +1,273 @@
+package com.eagle.android.a11y;
+
+import android.graphics.Rect;
+import android.os.Build;
+import android.os.SystemClock;
+import android.view.accessibility.AccessibilityNodeInfo;
+
+import java.util.ArrayDeque;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.function.Predicate;
+
+/**
+ * 无障碍树的通用遍历：显式栈的先序遍历（可选后序回调），替代各处的递归遍历
+ *
+ * - 不递归：深层 WebView 树不会栈溢出
+ * - API 33+ 取子节点时请求按深度优先预取后代，后续 getChild 大多命中系统缓存，跨进程调用次数成倍减少
+ * - 剪枝：{@link #prune(Predicate)} 不通过的节点连同子树都不访问（按区域、类名等）
+ * - 预算：最大深度、最大节点数、时间预算，超出后停止进入新节点
+ * - 回收：遍历中取得的节点在离开后一律回收，提前停止或抛异常时也会回收；根节点归调用方。
+ *   访问者需要保留节点时自行 AccessibilityNodeInfo.obtain() 一份
+ * 同一套遍历也用于 {@link AccessibilityTreeMirror} 的内存镜像（见 {@link #mirror()}）。
+ *
+ * @param <N> 节点类型
+ */
+public final class NodeTraversal<N> {
+
+    /** 继续访问子节点 */
+    public static final int CONTINUE = 0;
+    /** 不访问该节点的子树 */
+    public static final int SKIP_CHILDREN = 1;
+    /** 停止遍历（已进入的节点仍会收到 leave） */
+    public static final int STOP = 2;
+
+    /**
+     * 访问者
+     */
+    public interface Visitor<N> {
+        /**
+         * 先序进入节点，返回 {@link #CONTINUE} / {@link #SKIP_CHILDREN} / {@link #STOP}
+         */
+        int enter(N node, int depth);
+
+        /**
+         * 后序离开节点（子树已处理完）；每个被 enter 的节点都恰好 leave 一次
+         */
+        default void leave(N node, int depth) {}
+    }
+
+    /**
+     * 树的访问方式
+     */
+    public interface Tree<N> {
+        int getChildCount(N node);
+
+        /** 可能为null */
+        N getChild(N node, int index);
+
+        /** 释放遍历中取得的节点 */
+        void release(N node);
+    }
+
+    /**
+     * 一次遍历的统计
+     */
+    public static final class Stats {
+        /** 进入的节点数 */
+        public int visited;
+        /** 被剪枝的子树数 */
+        public int pruned;
+        /** 因节点数或时间预算提前结束 */
+        public boolean truncated;
+        public long elapsedMs;
+    }
+
+    private static final Tree<AccessibilityNodeInfo> LIVE_TREE = new Tree<AccessibilityNodeInfo>() {
+        @Override
+        public int getChildCount(AccessibilityNodeInfo node) {
+            return node.getChildCount();
+        }
+
+        @Override
+        public AccessibilityNodeInfo getChild(AccessibilityNodeInfo node, int index) {
+            return NodeTraversal.getChild(node, index);
+        }
+
+        @Override
+        public void release(AccessibilityNodeInfo node) {
+            node.recycle();
+        }
+    };
+
+    private static final Tree<AccessibilityTreeMirror.Node> MIRROR_TREE = new Tree<AccessibilityTreeMirror.Node>() {
+        @Override
+        public int getChildCount(AccessibilityTreeMirror.Node node) {
+            return node.getChildren().size();
+        }
+
+        @Override
+        public AccessibilityTreeMirror.Node getChild(AccessibilityTreeMirror.Node node, int index) {
+            return node.getChildren().get(index);
+        }
+
+        @Override
+        public void release(AccessibilityTreeMirror.Node node) {
+            // 镜像节点由镜像持有
+        }
+    };
+
+    private static final class Frame<N> {
+        final N node;
+        final int depth;
+        final boolean owned;
+        boolean entered;
+
+        Frame(N node, int depth, boolean owned) {
+            this.node = node;
+            this.depth = depth;
+            this.owned = owned;
+        }
+    }
+
+    private final Tree<N> tree;
+    private int maxDepth = Integer.MAX_VALUE;
+    private int maxNodes = Integer.MAX_VALUE;
+    private long timeBudgetMs = 0;
+    private Predicate<? super N> prune;
+
+    public NodeTraversal(Tree<N> tree) {
+        this.tree = tree;
+    }
+
+    /**
+     * 遍历系统无障碍树
+     */
+    public static NodeTraversal<AccessibilityNodeInfo> live() {
+        return new NodeTraversal<>(LIVE_TREE);
+    }
+
+    /**
+     * 遍历内存镜像
+     */
+    public static NodeTraversal<AccessibilityTreeMirror.Node> mirror() {
+        return new NodeTraversal<>(MIRROR_TREE);
+    }
+
+    /**
+     * 取子节点；API 33+ 同时按深度优先预取其后代到系统缓存
+     */
+    public static AccessibilityNodeInfo getChild(AccessibilityNodeInfo parent, int index) {
+        if (Build.VERSION.SDK_INT >= Build.VERSION_CODES.TIRAMISU) {
+            return parent.getChild(index, AccessibilityNodeInfo.FLAG_PREFETCH_DESCENDANTS_DEPTH_FIRST);
+        }
+        return parent.getChild(index);
+    }
+
+    /**
+     * 只访问屏幕区域与area相交的节点
+     */
+    public static Predicate<AccessibilityNodeInfo> intersecting(Rect area) {
+        final Rect bounds = new Rect();
+        return node -> {
+            node.getBoundsInScreen(bounds);
+            return Rect.intersects(bounds, area);
+        };
+    }
+
+    /**
+     * 不访问指定类名的节点（及其子树）
+     */
+    public static Predicate<AccessibilityNodeInfo> excludingClasses(String... classNames) {
+        return node -> {
+            CharSequence cls = node.getClassName();
+            if (cls == null) return true;
+            for (String name : classNames) {
+                if (name.contentEquals(cls)) return false;
+            }
+            return true;
+        };
+    }
+
+    /** 根节点深度为0；深度达到上限的节点不再展开 */
+    public NodeTraversal<N> maxDepth(int maxDepth) {
+        this.maxDepth = maxDepth;
+        return this;
+    }
+
+    public NodeTraversal<N> maxNodes(int maxNodes) {
+        this.maxNodes = maxNodes;
+        return this;
+    }
+
+    /** 0 表示不限时 */
+    public NodeTraversal<N> timeBudgetMs(long timeBudgetMs) {
+        this.timeBudgetMs = timeBudgetMs;
+        return this;
+    }
+
+    /**
+     * 子节点通过predicate才会被访问（根节点不受影响）
+     */
+    public NodeTraversal<N> prune(Predicate<? super N> keep) {
+        this.prune = keep;
+        return this;
+    }
+
+    /**
+     * 从root开始先序遍历；root不会被释放
+     */
+    public Stats walk(N root, Visitor<? super N> visitor) {
+        Stats stats = new Stats();
+        if (root == null) return stats;
+        long start = SystemClock.uptimeMillis();
+        long deadline = timeBudgetMs > 0 ? start + timeBudgetMs : Long.MAX_VALUE;
+
+        ArrayDeque<Frame<N>> stack = new ArrayDeque<>();
+        stack.push(new Frame<>(root, 0, false));
+        List<N> children = new ArrayList<>();
+        boolean halted = false;
+        try {
+            while (!stack.isEmpty()) {
+                Frame<N> f = stack.peek();
+                if (f.entered || halted) {
+                    stack.pop();
+                    try {
+                        if (f.entered) visitor.leave(f.node, f.depth);
+                    } finally {
+                        if (f.owned) tree.release(f.node);
+                    }
+                    continue;
+                }
+                if (stats.visited >= maxNodes || SystemClock.uptimeMillis() > deadline) {
+                    stats.truncated = true;
+                    halted = true;
+                    continue;
+                }
+                f.entered = true;
+                stats.visited++;
+                int action = visitor.enter(f.node, f.depth);
+                if (action == STOP) {
+                    halted = true;
+                    continue;
+                }
+                if (action != CONTINUE || f.depth >= maxDepth) continue;
+
+                // 按顺序取子节点（预取按深度优先展开），再逆序压栈以保持先序
+                int count = tree.getChildCount(f.node);
+                for (int i = 0; i < count; i++) {
+                    N c = tree.getChild(f.node, i);
+                    if (c == null) continue;
+                    if (prune != null && !prune.test(c)) {
+                        stats.pruned++;
+                        tree.release(c);
+                        continue;
+                    }
+                    children.add(c);
+                }
+                for (int i = children.size() - 1; i >= 0; i--) {
+                    stack.push(new Frame<>(children.get(i), f.depth + 1, true));
+                }
+                children.clear();
+            }
+        } finally {
+            // 异常退出：释放剩余节点
+            for (N c : children) tree.release(c);
+            for (Frame<N> f : stack) {
+                if (f.owned) tree.release(f.node);
+            }
+            stats.elapsedMs = SystemClock.uptimeMillis() - start;
+        }
+        return stats;
+    }
+}
@@ -50,12 +50,11 @@ public final class ReadingOrderHelper {
         return ng;
     }
 
-    private static void collect(AccessibilityNodeInfo n, List<AccessibilityNodeInfo> out) {
-        out.add(AccessibilityNodeInfo.obtain(n));
-        for (int i = 0; i < n.getChildCount(); i++) {
-            AccessibilityNodeInfo c = n.getChild(i);
-            if (c != null) { collect(c, out); c.recycle(); }
-        }
+    private static void collect(AccessibilityNodeInfo root, List<AccessibilityNodeInfo> out) {
+        NodeTraversal.live().walk(root, (n, depth) -> {
+            out.add(AccessibilityNodeInfo.obtain(n));
+            return NodeTraversal.CONTINUE;
+        });
     }
 
     private static boolean isFullyInside(Rect a, Rect container) {
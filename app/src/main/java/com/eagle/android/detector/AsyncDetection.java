@@ -0,0 +1,71 @@
+package com.eagle.android.detector;
+
+import android.graphics.Bitmap;
+
+import com.eagle.android.util.BitmapPool;
+
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * 异步检测的执行与截止时间
+ *
+ * 所有检测器共用一个检测线程（推理本身已是多线程，且检测器内部串行），
+ * 截止时间由单独的计时线程触发，到期时让句柄以超时结束并终止推理。
+ */
+final class AsyncDetection {
+
+    private static final ExecutorService WORKER = Executors.newSingleThreadExecutor(r -> {
+        Thread t = new Thread(r, "chart-detect");
+        t.setDaemon(true);
+        return t;
+    });
+
+    private static final ScheduledExecutorService TIMER = Executors.newSingleThreadScheduledExecutor(r -> {
+        Thread t = new Thread(r, "chart-detect-deadline");
+        t.setDaemon(true);
+        return t;
+    });
+
+    private AsyncDetection() {
+    }
+
+    /**
+     * 在检测线程上执行work，work负责调用 {@link DetectionHandle#complete}
+     * 句柄在开始前已结束（取消/超时）时跳过；work抛出的异常使句柄失败
+     * 截图在work结束前持有一个 {@link BitmapPool} 引用：句柄可能先于检测结束（取消/超时），
+     * 调用方在回调中归还截图不会影响仍在进行的检测
+     *
+     * @param timeoutMs 截止时间（从提交起算），0表示不限
+     */
+    static void submit(DetectionHandle handle, long timeoutMs, Bitmap screenshot, Runnable work) {
+        if (timeoutMs > 0) {
+            TIMER.schedule(() -> handle.timeout(timeoutMs), timeoutMs, TimeUnit.MILLISECONDS);
+        }
+        BitmapPool.get().retain(screenshot);
+        WORKER.execute(() -> {
+            try {
+                if (handle.isDone()) return;
+                work.run();
+            } catch (Throwable t) {
+                handle.fail(t);
+            } finally {
+                BitmapPool.get().release(screenshot);
+            }
+        });
+    }
+
+    /**
+     * 把同步的 {@link ChartDetector#detectSingleChart(Bitmap)} 适配为异步检测
+     * 同步方法无法中途终止：取消或超时后句柄立即结束，检测完成后的结果被丢弃
+     */
+    static DetectionHandle adapt(ChartDetector detector, Bitmap screenshot, long timeoutMs,
+                                 DetectionHandle.Callback callback) {
+        DetectionHandle handle = new DetectionHandle(callback);
+        submit(handle, timeoutMs, screenshot,
+                () -> handle.complete(detector.detectSingleChart(screenshot)));
+        return handle;
+    }
+}
@@ -6,4 +6,16 @@ import com.eagle.android.model.ChartResult;
 
 public interface ChartDetector {
     ChartResult detectSingleChart(Bitmap screenshot);
-}
\ No newline at end of file
+
+    /**
+     * 异步检测，先报告图表区域，再给出包含元素的完整结果
+     * 默认实现在检测线程上调用 {@link #detectSingleChart(Bitmap)}，不报告部分结果，取消后结果被丢弃；
+     * 检测器可覆盖以提前报告图表区域并真正终止推理
+     *
+     * @param timeoutMs 截止时间，到期后以 {@link java.util.concurrent.TimeoutException} 结束；0表示不限
+     */
+    default DetectionHandle detectAsync(Bitmap screenshot, long timeoutMs,
+                                        DetectionHandle.Callback callback) {
+        return AsyncDetection.adapt(this, screenshot, timeoutMs, callback);
+    }
+}
@@ -0,0 +1,158 @@
+package com.eagle.android.detector;
+
+import android.graphics.Bitmap;
+import android.graphics.Canvas;
+import android.graphics.Rect;
+import android.graphics.RectF;
+import android.util.Log;
+
+import com.eagle.android.model.ChartResult;
+import com.eagle.android.model.NodeSpec;
+import com.eagle.android.util.BitmapPool;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Locale;
+
+/**
+ * 把YOLOv11检测结果（原图坐标）组装为ChartResult
+ * 供不同输入/输出形式的YOLOv11检测器共用
+ */
+final class ChartResultBuilder {
+
+    private static final String TAG = "ChartResultBuilder";
+
+    private ChartResultBuilder() {
+    }
+
+    /**
+     * 将检测结果转换为ChartResult
+     * 结果中的图表位图持有一个 {@link BitmapPool} 引用，由接收方归还
+     */
+    static ChartResult build(Bitmap screenshot, List<Detection> detections) {
+        int width = screenshot.getWidth();
+        int height = screenshot.getHeight();
+        if (detections.isEmpty()) {
+            Log.d(TAG, "No detections found");
+            return null;
+        }
+
+        Rect chartRect = chartRect(detections, width, height);
+
+        // 裁剪图表区域
+        Bitmap chartBitmap = cropBitmap(screenshot, chartRect);
+
+        // 转换检测结果为NodeSpec列表
+        List<NodeSpec> nodes = new ArrayList<>();
+        int nodeId = 100;
+
+        for (Detection det : detections) {
+            // 跳过整体图表框
+            if (det.classId == 0) continue;
+
+            Rect hitRect = rectFToRect(det.boundingBox);
+            String label = generateLabel(det);
+
+            nodes.add(new NodeSpec(nodeId++, hitRect, label));
+        }
+
+        return new ChartResult(chartBitmap, chartRect, nodes);
+    }
+
+    /**
+     * 从检测结果中确定图表区域（原图坐标），不涉及位图裁剪与元素处理
+     * 可在完整结果组装前先行报告；检测结果为空时返回null
+     */
+    static Rect chartRect(List<Detection> detections, int width, int height) {
+        if (detections.isEmpty()) {
+            return null;
+        }
+
+        // 找到主图表区域（classId == 0）
+        Detection chartDetection = null;
+        for (Detection det : detections) {
+            if (det.classId == 0) { // "chart" 类别
+                chartDetection = det;
+                break;
+            }
+        }
+
+        if (chartDetection != null) {
+            return rectFToRect(chartDetection.boundingBox);
+        }
+
+        // 如果没有检测到图表区域，使用所有检测的包围盒
+        float minX = width, minY = height, maxX = 0, maxY = 0;
+        for (Detection det : detections) {
+            minX = Math.min(minX, det.boundingBox.left);
+            minY = Math.min(minY, det.boundingBox.top);
+            maxX = Math.max(maxX, det.boundingBox.right);
+            maxY = Math.max(maxY, det.boundingBox.bottom);
+        }
+        return new Rect((int) minX, (int) minY, (int) maxX, (int) maxY);
+    }
+
+    /**
+     * 生成无障碍朗读标签
+     */
+    private static String generateLabel(Detection det) {
+        switch (det.classId) {
+            case 1: // bar
+                return String.format(Locale.getDefault(),
+                        "柱状图柱子，置信度%.0f%%", det.confidence * 100);
+            case 2: // line_point
+                return String.format(Locale.getDefault(),
+                        "折线图数据点，置信度%.0f%%", det.confidence * 100);
+            case 3: // pie_slice
+                return String.format(Locale.getDefault(),
+                        "饼图扇区，置信度%.0f%%", det.confidence * 100);
+            case 4: // axis_label
+                return String.format(Locale.getDefault(),
+                        "坐标轴标签，置信度%.0f%%", det.confidence * 100);
+            case 5: // legend
+                return String.format(Locale.getDefault(),
+                        "图例，置信度%.0f%%", det.confidence * 100);
+            case 6: // title
+                return String.format(Locale.getDefault(),
+                        "图表标题，置信度%.0f%%", det.confidence * 100);
+            case 7: // data_label
+                return String.format(Locale.getDefault(),
+                        "数据标签，置信度%.0f%%", det.confidence * 100);
+            default:
+                return String.format(Locale.getDefault(),
+                        "%s，置信度%.0f%%", det.className, det.confidence * 100);
+        }
+    }
+
+    /**
+     * RectF转Rect
+     */
+    private static Rect rectFToRect(RectF rectF) {
+        return new Rect(
+                (int) rectF.left,
+                (int) rectF.top,
+                (int) rectF.right,
+                (int) rectF.bottom
+        );
+    }
+
+    /**
+     * 裁剪Bitmap，裁剪图从位图池借出；区域无效时返回原图（增加一个引用）
+     */
+    private static Bitmap cropBitmap(Bitmap source, Rect rect) {
+        // 确保裁剪区域在图像范围内
+        int x = Math.max(0, rect.left);
+        int y = Math.max(0, rect.top);
+        int width = Math.min(rect.width(), source.getWidth() - x);
+        int height = Math.min(rect.height(), source.getHeight() - y);
+
+        if (width <= 0 || height <= 0) {
+            return BitmapPool.get().retain(source);
+        }
+
+        Bitmap crop = BitmapPool.get().acquire(width, height);
+        new Canvas(crop).drawBitmap(source, new Rect(x, y, x + width, y + height),
+                new Rect(0, 0, width, height), null);
+        return crop;
+    }
+}
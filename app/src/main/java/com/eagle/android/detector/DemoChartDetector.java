@@ -3,6 +3,7 @@ package com.eagle.android.detector;
 
 import android.graphics.*;
 import com.eagle.android.model.*;
+import com.eagle.android.util.BitmapPool;
 import java.util.*;
 
 public class DemoChartDetector implements ChartDetector {
@@ -11,23 +12,13 @@ public class DemoChartDetector implements ChartDetector {
     public ChartResult detectSingleChart(Bitmap screenshot) {
         if (screenshot == null) return null;
 
-        int W = screenshot.getWidth(), H = screenshot.getHeight();
-
-        // 让“图表”位于屏幕中间（左右留 6%，上下留 24%）
-        int marginX = (int)(W * 0.06f);
-        int marginTop = (int)(H * 0.24f);
-        int marginBottom = (int)(H * 0.26f);
-        Rect chartRect = new Rect(
-                marginX,
-                marginTop,
-                W - marginX,
-                H - marginBottom
-        );
+        Rect chartRect = chartRectFor(screenshot.getWidth(), screenshot.getHeight());
 
         int cw = chartRect.width(), ch = chartRect.height();
 
         // 1) 生成一张“假的柱状图”位图（画坐标轴+网格+五根柱子）
-        Bitmap chartBmp = Bitmap.createBitmap(cw, ch, Bitmap.Config.ARGB_8888);
+        // 从位图池借出，由结果的接收方归还
+        Bitmap chartBmp = BitmapPool.get().acquire(cw, ch);
         Canvas c = new Canvas(chartBmp);
         Paint p = new Paint(Paint.ANTI_ALIAS_FLAG);
 
@@ -113,6 +104,33 @@ public class DemoChartDetector implements ChartDetector {
         return new ChartResult(chartBmp, chartRect, nodes);
     }
 
+    @Override
+    public DetectionHandle detectAsync(Bitmap screenshot, long timeoutMs,
+                                       DetectionHandle.Callback callback) {
+        DetectionHandle handle = new DetectionHandle(callback);
+        AsyncDetection.submit(handle, timeoutMs, screenshot, () -> {
+            if (screenshot != null) {
+                // 图表区域只取决于屏幕尺寸，先报告，再画柱子、生成节点
+                handle.publishChartRect(chartRectFor(screenshot.getWidth(), screenshot.getHeight()));
+            }
+            handle.complete(detectSingleChart(screenshot));
+        });
+        return handle;
+    }
+
+    private static Rect chartRectFor(int W, int H) {
+        // 让“图表”位于屏幕中间（左右留 6%，上下留 24%）
+        int marginX = (int)(W * 0.06f);
+        int marginTop = (int)(H * 0.24f);
+        int marginBottom = (int)(H * 0.26f);
+        return new Rect(
+                marginX,
+                marginTop,
+                W - marginX,
+                H - marginBottom
+        );
+    }
+
     private static int dp(float v) {
         // 因为我们在“图表位图”里用的是 px，这里选择一个固定 dp≈px 的基准，足够演示
         return Math.round(v * 2f); // 约等于在 xxhdpi 机型的视觉大小
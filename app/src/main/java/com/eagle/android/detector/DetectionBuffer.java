@@ -0,0 +1,206 @@
+package com.eagle.android.detector;
+
+import android.graphics.RectF;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+
+/**
+ * 结构化数组形式的检测候选缓冲区
+ *
+ * 候选框以并行的原始类型数组保存（boxes / scores / classes），NMS在索引上完成，
+ * 只有最终保留的框才会生成 {@link Detection} 对象。
+ * NMS按类别分桶，并用均匀网格跳过互不相交的框；同时支持NMS前后的Top-K上限。
+ * 非线程安全，所有数组在帧间复用。
+ */
+public class DetectionBuffer {
+
+    private static final int GRID_SIZE = 16; // 每个方向的网格数
+
+    private float[] boxes = new float[4 * 256]; // x1, y1, x2, y2
+    private float[] scores = new float[256];
+    private int[] classes = new int[256];
+    private int size = 0;
+
+    // NMS暂存
+    private long[] sortKeys = new long[0];
+    private int[] keep = new int[0];
+    private int keepCount = 0;
+    private int[] visitStamp = new int[0];
+    private int[][] buckets = new int[0][];
+    private int[] bucketSizes = new int[0];
+
+    /**
+     * 清空候选，保留已分配的数组
+     */
+    public void clear() {
+        size = 0;
+        keepCount = 0;
+    }
+
+    /**
+     * 添加一个候选框
+     */
+    public void add(float x1, float y1, float x2, float y2, float score, int classId) {
+        if (size == scores.length) {
+            int newCap = size * 2;
+            boxes = Arrays.copyOf(boxes, 4 * newCap);
+            scores = Arrays.copyOf(scores, newCap);
+            classes = Arrays.copyOf(classes, newCap);
+        }
+        int b = size * 4;
+        boxes[b] = x1;
+        boxes[b + 1] = y1;
+        boxes[b + 2] = x2;
+        boxes[b + 3] = y2;
+        scores[size] = score;
+        classes[size] = classId;
+        size++;
+    }
+
+    public int size() {
+        return size;
+    }
+
+    /**
+     * 按类别分桶的网格加速NMS
+     *
+     * @param iouThreshold IoU阈值，超过则抑制同类别的低分框
+     * @param maxCandidates NMS前按得分保留的最大候选数
+     * @param maxDetections NMS后保留的最大检测数
+     * @param numClasses 类别数量
+     * @return 保留的检测数
+     */
+    public int nms(float iouThreshold, int maxCandidates, int maxDetections, int numClasses) {
+        keepCount = 0;
+        if (size == 0) return 0;
+
+        // 1. 按得分降序的索引排序：高32位为得分取反（得分>=0时位序与数值序一致），低32位为索引
+        if (sortKeys.length < size) {
+            sortKeys = new long[size];
+            visitStamp = new int[size];
+        }
+        for (int i = 0; i < size; i++) {
+            long inverted = Integer.MAX_VALUE - Float.floatToIntBits(Math.max(0f, scores[i]));
+            sortKeys[i] = (inverted << 32) | i;
+        }
+        Arrays.sort(sortKeys, 0, size);
+        int candidates = Math.min(size, maxCandidates);
+
+        // 2. 网格范围
+        float maxX = 1f, maxY = 1f;
+        for (int k = 0; k < candidates; k++) {
+            int i = (int) sortKeys[k];
+            maxX = Math.max(maxX, boxes[i * 4 + 2]);
+            maxY = Math.max(maxY, boxes[i * 4 + 3]);
+        }
+        float cellW = maxX / GRID_SIZE;
+        float cellH = maxY / GRID_SIZE;
+        prepareBuckets(numClasses * GRID_SIZE * GRID_SIZE);
+        Arrays.fill(visitStamp, 0, size, -1);
+        if (keep.length < Math.min(candidates, maxDetections)) {
+            keep = new int[Math.min(candidates, maxDetections)];
+        }
+
+        // 3. 逐个候选：只与同类别、网格相交的已保留框比较
+        for (int k = 0; k < candidates && keepCount < maxDetections; k++) {
+            int i = (int) sortKeys[k];
+            int cls = classes[i];
+            if (cls < 0 || cls >= numClasses) continue;
+
+            int b = i * 4;
+            int gx0 = cell(boxes[b], cellW);
+            int gy0 = cell(boxes[b + 1], cellH);
+            int gx1 = cell(boxes[b + 2], cellW);
+            int gy1 = cell(boxes[b + 3], cellH);
+            int classBase = cls * GRID_SIZE * GRID_SIZE;
+
+            boolean suppressed = false;
+            for (int gy = gy0; gy <= gy1 && !suppressed; gy++) {
+                for (int gx = gx0; gx <= gx1 && !suppressed; gx++) {
+                    int bucket = classBase + gy * GRID_SIZE + gx;
+                    int[] members = buckets[bucket];
+                    int n = bucketSizes[bucket];
+                    for (int m = 0; m < n; m++) {
+                        int j = members[m];
+                        if (visitStamp[j] == i) continue; // 跨格的框只比较一次
+                        visitStamp[j] = i;
+                        if (iou(i, j) > iouThreshold) {
+                            suppressed = true;
+                            break;
+                        }
+                    }
+                }
+            }
+            if (suppressed) continue;
+
+            keep[keepCount++] = i;
+            for (int gy = gy0; gy <= gy1; gy++) {
+                for (int gx = gx0; gx <= gx1; gx++) {
+                    addToBucket(classBase + gy * GRID_SIZE + gx, i);
+                }
+            }
+        }
+        return keepCount;
+    }
+
+    /**
+     * 为NMS保留的框生成Detection对象（按得分降序）
+     */
+    public List<Detection> toDetections(String[] classNames) {
+        List<Detection> result = new ArrayList<>(keepCount);
+        for (int k = 0; k < keepCount; k++) {
+            int i = keep[k];
+            int b = i * 4;
+            int classId = classes[i];
+            String className = (classNames != null && classId < classNames.length)
+                    ? classNames[classId]
+                    : "class_" + classId;
+            result.add(new Detection(classId, className, scores[i],
+                    new RectF(boxes[b], boxes[b + 1], boxes[b + 2], boxes[b + 3])));
+        }
+        return result;
+    }
+
+    private static int cell(float v, float cellSize) {
+        int c = (int) (v / cellSize);
+        return Math.max(0, Math.min(GRID_SIZE - 1, c));
+    }
+
+    private float iou(int i, int j) {
+        int a = i * 4, b = j * 4;
+        float x1 = Math.max(boxes[a], boxes[b]);
+        float y1 = Math.max(boxes[a + 1], boxes[b + 1]);
+        float x2 = Math.min(boxes[a + 2], boxes[b + 2]);
+        float y2 = Math.min(boxes[a + 3], boxes[b + 3]);
+
+        float intersection = Math.max(0, x2 - x1) * Math.max(0, y2 - y1);
+        float areaA = (boxes[a + 2] - boxes[a]) * (boxes[a + 3] - boxes[a + 1]);
+        float areaB = (boxes[b + 2] - boxes[b]) * (boxes[b + 3] - boxes[b + 1]);
+        float union = areaA + areaB - intersection;
+
+        return union > 0 ? intersection / union : 0;
+    }
+
+    private void prepareBuckets(int count) {
+        if (buckets.length < count) {
+            buckets = new int[count][];
+            bucketSizes = new int[count];
+            for (int i = 0; i < count; i++) {
+                buckets[i] = new int[4];
+            }
+        } else {
+            Arrays.fill(bucketSizes, 0, count, 0);
+        }
+    }
+
+    private void addToBucket(int bucket, int index) {
+        int n = bucketSizes[bucket];
+        if (n == buckets[bucket].length) {
+            buckets[bucket] = Arrays.copyOf(buckets[bucket], n * 2);
+        }
+        buckets[bucket][n] = index;
+        bucketSizes[bucket] = n + 1;
+    }
+}
@@ -0,0 +1,181 @@
+package com.eagle.android.detector;
+
+import android.graphics.Rect;
+import android.util.Log;
+
+import com.eagle.android.model.ChartResult;
+import com.eagle.android.util.BitmapPool;
+
+import java.util.concurrent.CancellationException;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.TimeoutException;
+
+/**
+ * 异步检测的句柄
+ *
+ * 由 {@link ChartDetector#detectAsync(android.graphics.Bitmap, long, Callback)} 返回，类似Future：
+ * 可以阻塞等待结果、取消、设置截止时间；检测过程中先通过 {@link Callback#onChartRect(Rect)}
+ * 报告图表区域，元素后处理完成后再通过 {@link Callback#onResult(ChartResult)} 给出完整结果。
+ * 回调在检测线程上执行，需要更新界面时由调用方自行切回主线程。
+ * 结束状态（完成/失败/取消/超时）只会进入一次，之后到达的结果被丢弃（其图表位图归还位图池）。
+ */
+public class DetectionHandle {
+
+    private static final String TAG = "DetectionHandle";
+
+    /**
+     * 检测回调
+     */
+    public interface Callback {
+        /** 图表区域已确定（元素尚未处理完），可能不会被调用 */
+        default void onChartRect(Rect chartRectOnScreen) {}
+
+        /** 检测完成，未发现图表时为null */
+        void onResult(ChartResult result);
+
+        /** 检测失败、超时（{@link TimeoutException}）或被取消（{@link CancellationException}） */
+        default void onFailure(Throwable error) {}
+    }
+
+    private static final int PENDING = 0;
+    private static final int DONE = 1;
+    private static final int FAILED = 2;
+    private static final int CANCELLED = 3;
+
+    private final Callback callback;
+    private final CountDownLatch latch = new CountDownLatch(1);
+    private int state = PENDING;
+    private ChartResult result;
+    private Throwable error;
+    private Rect chartRect;
+    private Runnable canceller;
+
+    public DetectionHandle(Callback callback) {
+        this.callback = callback;
+    }
+
+    /**
+     * 取消检测，正在进行的推理会被尽快终止
+     *
+     * @return 是否由本次调用取消（已结束时返回false）
+     */
+    public boolean cancel() {
+        return finish(CANCELLED, null, new CancellationException("Detection cancelled"));
+    }
+
+    public synchronized boolean isCancelled() {
+        return state == CANCELLED;
+    }
+
+    public synchronized boolean isDone() {
+        return state != PENDING;
+    }
+
+    /**
+     * 已报告的图表区域（部分结果），尚未确定时为null
+     */
+    public synchronized Rect getChartRect() {
+        return chartRect != null ? new Rect(chartRect) : null;
+    }
+
+    /**
+     * 阻塞等待检测结果
+     */
+    public ChartResult get() throws InterruptedException, ExecutionException {
+        latch.await();
+        return report();
+    }
+
+    /**
+     * 在给定时间内等待检测结果（不影响检测本身的截止时间）
+     */
+    public ChartResult get(long timeout, TimeUnit unit)
+            throws InterruptedException, ExecutionException, TimeoutException {
+        if (!latch.await(timeout, unit)) {
+            throw new TimeoutException("Detection still running");
+        }
+        return report();
+    }
+
+    private synchronized ChartResult report() throws ExecutionException {
+        if (state == CANCELLED) {
+            throw (CancellationException) error;
+        }
+        if (state == FAILED) {
+            throw new ExecutionException(error);
+        }
+        return result;
+    }
+
+    // —— 以下由检测器调用 —— //
+
+    /**
+     * 设置取消/超时时终止推理的动作
+     */
+    synchronized void setCanceller(Runnable canceller) {
+        this.canceller = canceller;
+    }
+
+    /**
+     * 报告图表区域（部分结果），只有第一次报告生效
+     */
+    void publishChartRect(Rect rect) {
+        synchronized (this) {
+            if (state != PENDING || rect == null || chartRect != null) return;
+            chartRect = new Rect(rect);
+        }
+        try {
+            callback.onChartRect(new Rect(rect));
+        } catch (RuntimeException e) {
+            Log.e(TAG, "onChartRect callback failed", e);
+        }
+    }
+
+    /**
+     * 给出检测结果
+     *
+     * @return 结果是否被接受；句柄已先被取消或超时时返回false，结果的图表位图在这里归还 {@link BitmapPool}
+     */
+    boolean complete(ChartResult result) {
+        if (finish(DONE, result, null)) return true;
+        if (result != null) {
+            BitmapPool.get().release(result.chartBitmap);
+        }
+        return false;
+    }
+
+    void fail(Throwable error) {
+        finish(FAILED, null, error);
+    }
+
+    void timeout(long timeoutMs) {
+        finish(FAILED, null, new TimeoutException("Detection exceeded " + timeoutMs + "ms"));
+    }
+
+    private boolean finish(int newState, ChartResult result, Throwable error) {
+        Runnable stop;
+        synchronized (this) {
+            if (state != PENDING) return false;
+            this.state = newState;
+            this.result = result;
+            this.error = error;
+            stop = newState == DONE ? null : canceller;
+        }
+        latch.countDown();
+        if (stop != null) {
+            stop.run();
+        }
+        try {
+            if (newState == DONE) {
+                callback.onResult(result);
+            } else {
+                callback.onFailure(error);
+            }
+        } catch (RuntimeException e) {
+            Log.e(TAG, "Detection callback failed", e);
+        }
+        return true;
+    }
+}
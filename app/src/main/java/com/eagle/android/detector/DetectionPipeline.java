@@ -0,0 +1,320 @@
+package com.eagle.android.detector;
+
+import android.graphics.Bitmap;
+import android.util.Log;
+
+import com.eagle.android.model.ChartResult;
+
+import java.util.Collections;
+import java.util.List;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import ai.onnxruntime.OnnxTensor;
+import ai.onnxruntime.OrtEnvironment;
+import ai.onnxruntime.OrtException;
+import ai.onnxruntime.OrtSession;
+
+/**
+ * 分阶段的检测流水线：截图 → 预处理 → 推理 → 后处理
+ *
+ * 串行路径中letterbox、推理与NMS依次执行，推理期间CPU的其余核心空闲。
+ * 流水线为预处理、推理、后处理各开一个线程，阶段间用有界队列交接：
+ * 第N帧推理时第N+1帧已在预处理，第N-1帧在做NMS。
+ * 预处理缓冲区（letterbox + 输入张量）与推理输出按 {@link #SLOT_COUNT} 个槽位轮换（双缓冲），
+ * 槽位用完时预处理阶段等待，内存占用固定。
+ *
+ * 与 {@link YOLOv11Detector} 共享已加载的640输入会话，只支持固定尺寸路径（不含级联/自适应分辨率）。
+ * 截图由调用方提交；流水线不持有也不回收位图，结果或丢弃回调之后调用方即可处理该位图。
+ */
+public class DetectionPipeline {
+
+    private static final String TAG = "DetectionPipeline";
+
+    private static final int SLOT_COUNT = 2;          // 预处理/输出缓冲区数量（双缓冲）
+    private static final int CAPTURE_QUEUE_SIZE = 1;  // 待预处理的截图数，满时丢弃旧帧
+
+    /**
+     * 结果回调，在后处理线程上执行
+     */
+    public interface Listener {
+        /** 一帧处理完成，未发现图表时result为null */
+        void onResult(long frameId, ChartResult result, FrameTiming timing);
+
+        /** 一帧在进入预处理前被更新的截图替换 */
+        default void onDropped(long frameId) {}
+    }
+
+    /**
+     * 单帧各阶段耗时
+     */
+    public static class FrameTiming {
+        public final long queueMs;        // 提交到开始预处理（含等待空闲槽位）
+        public final long preprocessMs;
+        public final long inferenceMs;
+        public final long postprocessMs;
+        public final long totalMs;        // 提交到结果产生
+
+        FrameTiming(long queueMs, long preprocessMs, long inferenceMs, long postprocessMs, long totalMs) {
+            this.queueMs = queueMs;
+            this.preprocessMs = preprocessMs;
+            this.inferenceMs = inferenceMs;
+            this.postprocessMs = postprocessMs;
+            this.totalMs = totalMs;
+        }
+    }
+
+    private static final class Frame {
+        final Bitmap bitmap;
+        final long id;
+        final long submitNs;
+
+        Frame(Bitmap bitmap, long id, long submitNs) {
+            this.bitmap = bitmap;
+            this.id = id;
+            this.submitNs = submitNs;
+        }
+    }
+
+    /**
+     * 一组轮换使用的缓冲区：预处理写入input，推理结果留在output中直到后处理完成
+     */
+    private static final class Slot {
+        final LetterboxBuffer letterbox;
+        final OnnxTensor input;
+        Frame frame;
+        OrtSession.Result output;
+        long preprocessStartNs;
+        long inferenceStartNs;
+        long postprocessStartNs;
+
+        Slot(OrtEnvironment env, int inputSize) throws OrtException {
+            letterbox = new LetterboxBuffer(inputSize);
+            long[] shape = {1, 3, inputSize, inputSize};
+            input = OnnxTensor.createTensor(env, letterbox.getInput(), shape);
+        }
+
+        void close() {
+            closeOutput();
+            input.close();
+            letterbox.release();
+        }
+
+        void closeOutput() {
+            if (output != null) {
+                output.close();
+                output = null;
+            }
+        }
+    }
+
+    private final OrtSession session;
+    private final String inputName;
+    private final Listener listener;
+    private final int inputSize = YOLOv11Detector.INPUT_SIZE;
+    private final YOLOv11OutputDecoder decoder = new YOLOv11OutputDecoder(YOLOv11Detector.CLASS_NAMES.length);
+    private final OrtSession.RunOptions runOptions;
+
+    private final Slot[] slots = new Slot[SLOT_COUNT];
+    private final BlockingQueue<Frame> captureQueue = new ArrayBlockingQueue<>(CAPTURE_QUEUE_SIZE);
+    private final BlockingQueue<Slot> freeSlots = new ArrayBlockingQueue<>(SLOT_COUNT);
+    private final BlockingQueue<Slot> inferQueue = new ArrayBlockingQueue<>(SLOT_COUNT);
+    private final BlockingQueue<Slot> postQueue = new ArrayBlockingQueue<>(SLOT_COUNT);
+
+    private final Thread preprocessThread;
+    private final Thread inferenceThread;
+    private final Thread postprocessThread;
+    private volatile boolean running = true;
+
+    // 统计
+    private final AtomicInteger completedFrames = new AtomicInteger();
+    private final AtomicInteger droppedFrames = new AtomicInteger();
+
+    /**
+     * 创建并启动流水线
+     *
+     * @param detector 已成功 {@link YOLOv11Detector#initialize()} 的检测器
+     * @throws IllegalStateException 检测器未初始化
+     */
+    public DetectionPipeline(YOLOv11Detector detector, Listener listener) throws OrtException {
+        this.session = detector.getMainSession();
+        if (session == null) {
+            throw new IllegalStateException("Detector not initialized");
+        }
+        this.inputName = detector.getMainInputName();
+        this.listener = listener;
+        this.runOptions = new OrtSession.RunOptions();
+
+        OrtEnvironment env = OrtEnvironment.getEnvironment();
+        try {
+            for (int i = 0; i < SLOT_COUNT; i++) {
+                slots[i] = new Slot(env, inputSize);
+                freeSlots.add(slots[i]);
+            }
+        } catch (OrtException e) {
+            releaseSlots();
+            runOptions.close();
+            throw e;
+        }
+
+        preprocessThread = new Thread(this::preprocessLoop, "pipeline-preprocess");
+        inferenceThread = new Thread(this::inferenceLoop, "pipeline-infer");
+        postprocessThread = new Thread(this::postprocessLoop, "pipeline-postprocess");
+        preprocessThread.start();
+        inferenceThread.start();
+        postprocessThread.start();
+    }
+
+    /**
+     * 提交截图，不阻塞调用方；若上一张截图还未开始预处理，则被这一张替换（最新优先）
+     *
+     * @param frame 截图（需为软件位图），结果回调前不能回收
+     * @param frameId 调用方的帧编号，随结果返回
+     */
+    public void submit(Bitmap frame, long frameId) {
+        Frame f = new Frame(frame, frameId, System.nanoTime());
+        while (running && !captureQueue.offer(f)) {
+            Frame old = captureQueue.poll();
+            if (old != null) {
+                droppedFrames.incrementAndGet();
+                listener.onDropped(old.id);
+            }
+        }
+    }
+
+    /**
+     * 提交截图，队列满时阻塞直到可以提交（不丢帧，用于吞吐量测试）
+     */
+    public void submitBlocking(Bitmap frame, long frameId) throws InterruptedException {
+        captureQueue.put(new Frame(frame, frameId, System.nanoTime()));
+    }
+
+    private void preprocessLoop() {
+        try {
+            while (running) {
+                Frame frame = captureQueue.take();
+                // 等待空闲槽位：两个槽位都在推理/后处理中时，预处理最多领先一帧
+                Slot slot = freeSlots.take();
+                slot.frame = frame;
+                slot.preprocessStartNs = System.nanoTime();
+                slot.letterbox.fill(frame.bitmap);
+                inferQueue.put(slot);
+            }
+        } catch (InterruptedException e) {
+            // 流水线关闭
+        }
+    }
+
+    private void inferenceLoop() {
+        try {
+            while (running) {
+                Slot slot = inferQueue.take();
+                slot.inferenceStartNs = System.nanoTime();
+                try {
+                    slot.output = session.run(
+                            Collections.singletonMap(inputName, slot.input), runOptions);
+                } catch (OrtException e) {
+                    if (!running) return;
+                    Log.e(TAG, "Inference failed for frame " + slot.frame.id, e);
+                    slot.output = null;
+                }
+                postQueue.put(slot);
+            }
+        } catch (InterruptedException e) {
+            // 流水线关闭
+        }
+    }
+
+    private void postprocessLoop() {
+        try {
+            while (running) {
+                Slot slot = postQueue.take();
+                slot.postprocessStartNs = System.nanoTime();
+                Frame frame = slot.frame;
+                List<Detection> detections = Collections.emptyList();
+                if (slot.output != null) {
+                    detections = decoder.decode(
+                            (OnnxTensor) slot.output.get(0),
+                            inputSize,
+                            frame.bitmap.getWidth(),
+                            frame.bitmap.getHeight(),
+                            YOLOv11Detector.CONF_THRESHOLD,
+                            YOLOv11Detector.IOU_THRESHOLD,
+                            YOLOv11Detector.CLASS_NAMES);
+                }
+                long preprocessStartNs = slot.preprocessStartNs;
+                long inferenceStartNs = slot.inferenceStartNs;
+                long postprocessStartNs = slot.postprocessStartNs;
+
+                // 输出已解码，槽位可以交给下一帧
+                slot.closeOutput();
+                slot.frame = null;
+                freeSlots.put(slot);
+
+                ChartResult result = detections.isEmpty() ? null
+                        : ChartResultBuilder.build(frame.bitmap, detections);
+                long endNs = System.nanoTime();
+                FrameTiming timing = new FrameTiming(
+                        toMs(preprocessStartNs - frame.submitNs),
+                        toMs(inferenceStartNs - preprocessStartNs),
+                        toMs(postprocessStartNs - inferenceStartNs),
+                        toMs(endNs - postprocessStartNs),
+                        toMs(endNs - frame.submitNs));
+                completedFrames.incrementAndGet();
+                try {
+                    listener.onResult(frame.id, result, timing);
+                } catch (RuntimeException e) {
+                    Log.e(TAG, "Listener failed", e);
+                }
+            }
+        } catch (InterruptedException e) {
+            // 流水线关闭
+        }
+    }
+
+    private static long toMs(long ns) {
+        return ns / 1_000_000L;
+    }
+
+    public int getCompletedFrames() {
+        return completedFrames.get();
+    }
+
+    public int getDroppedFrames() {
+        return droppedFrames.get();
+    }
+
+    /**
+     * 停止各阶段线程并释放缓冲区，正在进行的推理会被终止；未完成的帧不再回调
+     */
+    public void close() {
+        if (!running) return;
+        running = false;
+        try {
+            runOptions.setTerminate(true);
+        } catch (OrtException e) {
+            Log.w(TAG, "Failed to set terminate flag", e);
+        }
+        preprocessThread.interrupt();
+        inferenceThread.interrupt();
+        postprocessThread.interrupt();
+        try {
+            preprocessThread.join();
+            inferenceThread.join();
+            postprocessThread.join();
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+        releaseSlots();
+        runOptions.close();
+    }
+
+    private void releaseSlots() {
+        for (Slot slot : slots) {
+            if (slot != null) {
+                slot.close();
+            }
+        }
+    }
+}
@@ -0,0 +1,64 @@
+package com.eagle.android.detector;
+
+import java.util.Collections;
+
+import ai.onnxruntime.OrtException;
+import ai.onnxruntime.OrtSession;
+
+/**
+ * ONNX Runtime执行提供程序
+ *
+ * 检测器按配置的顺序逐个尝试，探测不可用（例如在非Android的JVM上没有NNAPI）时自动跳过，
+ * CPU始终作为参考结果与最终兜底。
+ */
+public enum ExecutionProvider {
+
+    /** XNNPACK：ARM上优化的浮点内核，由XNNPACK自身的线程池并行 */
+    XNNPACK("xnnpack", OrtSession.SessionOptions.OptLevel.BASIC_OPT),
+
+    /** NNAPI：交给设备的NPU/GPU/DSP驱动执行 */
+    NNAPI("nnapi", OrtSession.SessionOptions.OptLevel.BASIC_OPT),
+
+    /** 默认CPU执行 */
+    CPU("cpu", OrtSession.SessionOptions.OptLevel.ALL_OPT);
+
+    private static final int NUM_THREADS = 4;
+
+    /** 优化模型缓存文件的区分标记 */
+    public final String cacheKey;
+
+    /**
+     * 生成优化模型缓存时使用的优化级别
+     * 非CPU提供程序只保存基础优化，避免CPU专用的布局变换影响节点分配
+     */
+    public final OrtSession.SessionOptions.OptLevel optLevel;
+
+    ExecutionProvider(String cacheKey, OrtSession.SessionOptions.OptLevel optLevel) {
+        this.cacheKey = cacheKey;
+        this.optLevel = optLevel;
+    }
+
+    /**
+     * 在会话选项上注册该执行提供程序
+     *
+     * @throws OrtException 当前运行时不支持该提供程序
+     */
+    public void configure(OrtSession.SessionOptions options) throws OrtException {
+        switch (this) {
+            case XNNPACK:
+                // XNNPACK自带线程池，ORT自身的线程池设为1避免两者争抢CPU
+                options.setIntraOpNumThreads(1);
+                options.addXnnpack(Collections.singletonMap(
+                        "intra_op_num_threads", String.valueOf(NUM_THREADS)));
+                break;
+            case NNAPI:
+                options.setIntraOpNumThreads(NUM_THREADS);
+                options.addNnapi();
+                break;
+            case CPU:
+            default:
+                options.setIntraOpNumThreads(NUM_THREADS);
+                break;
+        }
+    }
+}
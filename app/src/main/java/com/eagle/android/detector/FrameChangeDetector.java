@@ -0,0 +1,163 @@
+package com.eagle.android.detector;
+
+import android.graphics.Bitmap;
+import android.graphics.Canvas;
+import android.graphics.Paint;
+import android.graphics.Rect;
+import android.graphics.RectF;
+
+/**
+ * 截图变化检测，用于在检测器之前跳过未变化的画面
+ *
+ * 每帧缩小绘制到 {@link #SAMPLE_WIDTH} x {@link #SAMPLE_HEIGHT} 的复用位图，取每个采样点的亮度作为签名，
+ * 与上一次真正分析过的帧比较：亮度差超过 {@link #LUMA_THRESHOLD} 的采样点视为变化。
+ * 变化比例低于 {@link #MIN_CHANGED_RATIO}（光标闪烁、角标更新等），
+ * 或变化区域与上次图表区域不相交时，上一次的检测结果仍然有效。
+ * 非线程安全，由持有者保证串行使用。
+ */
+public class FrameChangeDetector {
+
+    private static final int SAMPLE_WIDTH = 54;
+    private static final int SAMPLE_HEIGHT = 120;
+    private static final int LUMA_THRESHOLD = 12;            // 采样点亮度差阈值（0-255）
+    private static final float MIN_CHANGED_RATIO = 0.005f;   // 变化采样点比例阈值
+
+    private final Bitmap sample;
+    private final Canvas canvas;
+    private final Paint paint = new Paint(Paint.FILTER_BITMAP_FLAG);
+    private final Rect srcRect = new Rect();
+    private final RectF dstRect = new RectF(0, 0, SAMPLE_WIDTH, SAMPLE_HEIGHT);
+    private final int[] pixels = new int[SAMPLE_WIDTH * SAMPLE_HEIGHT];
+
+    // 上次分析帧的签名与当前帧签名
+    private byte[] reference = new byte[SAMPLE_WIDTH * SAMPLE_HEIGHT];
+    private byte[] current = new byte[SAMPLE_WIDTH * SAMPLE_HEIGHT];
+    private boolean hasReference = false;
+    private int referenceWidth;
+    private int referenceHeight;
+
+    // 最近一次比较的变化区域（屏幕坐标）
+    private final Rect changedBounds = new Rect();
+
+    // 统计
+    private int analyzedFrames = 0;
+    private int skippedFrames = 0;
+
+    public FrameChangeDetector() {
+        sample = Bitmap.createBitmap(SAMPLE_WIDTH, SAMPLE_HEIGHT, Bitmap.Config.ARGB_8888);
+        canvas = new Canvas(sample);
+    }
+
+    /**
+     * 判断截图相对上次分析的帧是否需要重新检测
+     * 返回true时当前帧成为新的参考帧；返回false时参考帧不变，小变化不会逐帧累积漏检
+     *
+     * @param frame 截图（需为软件位图）
+     * @param lastChartRect 上次检测到的图表区域（屏幕坐标），没有时为null
+     * @return 是否需要重新检测
+     */
+    public boolean shouldAnalyze(Bitmap frame, Rect lastChartRect) {
+        int width = frame.getWidth();
+        int height = frame.getHeight();
+        computeSignature(frame, current);
+
+        boolean analyze;
+        if (!hasReference || width != referenceWidth || height != referenceHeight) {
+            analyze = true;
+        } else {
+            int changed = diff(width, height);
+            if (changed < SAMPLE_WIDTH * SAMPLE_HEIGHT * MIN_CHANGED_RATIO) {
+                analyze = false;
+            } else {
+                // 有图表时只关心图表区域内的变化
+                analyze = lastChartRect == null || Rect.intersects(changedBounds, lastChartRect);
+            }
+        }
+
+        if (analyze) {
+            byte[] tmp = reference;
+            reference = current;
+            current = tmp;
+            hasReference = true;
+            referenceWidth = width;
+            referenceHeight = height;
+            analyzedFrames++;
+        } else {
+            skippedFrames++;
+        }
+        return analyze;
+    }
+
+    /**
+     * 丢弃参考帧，下一帧必定重新检测（例如窗口切换或缓存结果被清除时）
+     */
+    public void reset() {
+        hasReference = false;
+    }
+
+    /**
+     * 最近一次比较得到的变化区域（屏幕坐标），无变化时为空
+     */
+    public Rect getChangedBounds() {
+        return new Rect(changedBounds);
+    }
+
+    public int getAnalyzedFrames() {
+        return analyzedFrames;
+    }
+
+    public int getSkippedFrames() {
+        return skippedFrames;
+    }
+
+    /**
+     * 释放采样位图
+     */
+    public void release() {
+        if (!sample.isRecycled()) {
+            sample.recycle();
+        }
+    }
+
+    private void computeSignature(Bitmap frame, byte[] out) {
+        srcRect.set(0, 0, frame.getWidth(), frame.getHeight());
+        canvas.drawBitmap(frame, srcRect, dstRect, paint);
+        sample.getPixels(pixels, 0, SAMPLE_WIDTH, 0, 0, SAMPLE_WIDTH, SAMPLE_HEIGHT);
+        for (int i = 0; i < pixels.length; i++) {
+            int p = pixels[i];
+            int luma = (((p >> 16) & 0xFF) * 77 + ((p >> 8) & 0xFF) * 150 + (p & 0xFF) * 29) >> 8;
+            out[i] = (byte) luma;
+        }
+    }
+
+    /**
+     * 统计变化的采样点数，并计算变化区域的屏幕坐标包围盒
+     */
+    private int diff(int width, int height) {
+        int changed = 0;
+        int minX = SAMPLE_WIDTH, minY = SAMPLE_HEIGHT, maxX = -1, maxY = -1;
+        for (int y = 0; y < SAMPLE_HEIGHT; y++) {
+            int row = y * SAMPLE_WIDTH;
+            for (int x = 0; x < SAMPLE_WIDTH; x++) {
+                int d = (current[row + x] & 0xFF) - (reference[row + x] & 0xFF);
+                if (d > LUMA_THRESHOLD || d < -LUMA_THRESHOLD) {
+                    changed++;
+                    if (x < minX) minX = x;
+                    if (x > maxX) maxX = x;
+                    if (y < minY) minY = y;
+                    if (y > maxY) maxY = y;
+                }
+            }
+        }
+        if (changed == 0) {
+            changedBounds.setEmpty();
+        } else {
+            changedBounds.set(
+                    minX * width / SAMPLE_WIDTH,
+                    minY * height / SAMPLE_HEIGHT,
+                    (maxX + 1) * width / SAMPLE_WIDTH,
+                    (maxY + 1) * height / SAMPLE_HEIGHT);
+        }
+        return changed;
+    }
+}
@@ -0,0 +1,208 @@
+package com.eagle.android.detector;
+
+import android.graphics.Bitmap;
+import android.graphics.Canvas;
+import android.graphics.Paint;
+import android.graphics.Rect;
+import android.graphics.RectF;
+
+import com.eagle.android.util.BitmapPool;
+
+import java.nio.ByteBuffer;
+import java.nio.ByteOrder;
+import java.nio.FloatBuffer;
+
+/**
+ * 可复用的letterbox预处理缓冲区
+ *
+ * 持有letterbox位图/画布、像素暂存数组以及直接内存FloatBuffer，
+ * 每帧直接把归一化后的NCHW数据写入同一块直接内存，ONNX Runtime可零拷贝创建张量。
+ * 端到端模型（uint8 NHWC输入）则直接使用letterbox位图的RGBA字节，见 {@link #fillPixels(Bitmap)}。
+ * 两种输入缓冲区都在首次使用时分配；letterbox位图从 {@link BitmapPool} 借出，释放时归还。
+ * 非线程安全，由持有者保证串行使用。
+ */
+public class LetterboxBuffer {
+
+    private static final int PAD_COLOR = 0xFF727272; // 灰色背景 (114, 114, 114)
+
+    // 0-255 → 0-1 查找表，结果与 value / 255.0f 完全一致
+    private static final float[] NORMALIZE_LUT = new float[256];
+    static {
+        for (int i = 0; i < 256; i++) {
+            NORMALIZE_LUT[i] = i / 255.0f;
+        }
+    }
+
+    private final int inputSize;
+    private final Bitmap letterbox;
+    private final Canvas canvas;
+    private final Paint paint = new Paint(Paint.FILTER_BITMAP_FLAG);
+    private final Rect srcRect = new Rect();
+    private final RectF dstRect = new RectF();
+
+    private int[] pixels;
+    private float[] rowR;
+    private float[] rowG;
+    private float[] rowB;
+    private FloatBuffer input;
+    private ByteBuffer pixelInput;
+
+    // 最近一次letterbox的映射参数：模型坐标 = 原图坐标 * scale + pad
+    private float scale = 1f;
+    private int padX = 0;
+    private int padY = 0;
+
+    public LetterboxBuffer(int inputSize) {
+        this.inputSize = inputSize;
+        this.letterbox = BitmapPool.get().acquire(inputSize, inputSize);
+        this.canvas = new Canvas(letterbox);
+    }
+
+    /**
+     * 对输入图像做letterbox并写入直接内存
+     * 与 {@link YOLOv11Utils#preprocessImage(Bitmap, int)} 输出完全一致：RGB、0-1归一化、NCHW
+     *
+     * @param source 输入图像（需为软件位图）
+     * @return 写好数据的输入缓冲区 [1, 3, inputSize, inputSize]，position为0
+     */
+    public FloatBuffer fill(Bitmap source) {
+        return fill(source, null);
+    }
+
+    /**
+     * 只对输入图像的一个区域做letterbox，直接从原图绘制，不产生裁剪位图
+     * 映射参数相对该区域：区域坐标 = (模型坐标 - pad) / scale
+     *
+     * @param source 输入图像（需为软件位图）
+     * @param region 原图中的区域，为null时使用整张图
+     */
+    public FloatBuffer fill(Bitmap source, Rect region) {
+        return fill(source, region, getInput());
+    }
+
+    /**
+     * 对输入图像（或其中一个区域）做letterbox，并写入指定的缓冲区
+     * 用于把多张图直接打包进批量输入 [N, 3, inputSize, inputSize] 的各个切片
+     *
+     * @param input 容量至少为 3 * inputSize * inputSize 的缓冲区（可以是批量缓冲区的切片），从索引0开始写入
+     */
+    public FloatBuffer fill(Bitmap source, Rect region, FloatBuffer input) {
+        if (pixels == null) {
+            pixels = new int[inputSize * inputSize];
+            rowR = new float[inputSize];
+            rowG = new float[inputSize];
+            rowB = new float[inputSize];
+        }
+        drawLetterbox(source, region);
+        letterbox.getPixels(pixels, 0, inputSize, 0, 0, inputSize, inputSize);
+
+        int plane = inputSize * inputSize;
+        for (int y = 0; y < inputSize; y++) {
+            int rowOffset = y * inputSize;
+            for (int x = 0; x < inputSize; x++) {
+                int pixel = pixels[rowOffset + x];
+                rowR[x] = NORMALIZE_LUT[(pixel >> 16) & 0xFF];
+                rowG[x] = NORMALIZE_LUT[(pixel >> 8) & 0xFF];
+                rowB[x] = NORMALIZE_LUT[pixel & 0xFF];
+            }
+            // 按行批量写入三个通道平面
+            input.position(rowOffset);
+            input.put(rowR);
+            input.position(plane + rowOffset);
+            input.put(rowG);
+            input.position(2 * plane + rowOffset);
+            input.put(rowB);
+        }
+        input.rewind();
+        return input;
+    }
+
+    /**
+     * 对输入图像做letterbox，并把位图的原始像素字节写入直接内存
+     * ARGB_8888位图在内存中按R、G、B、A字节排列，即uint8 NHWC [1, inputSize, inputSize, 4]，
+     * 不做任何逐像素的Java计算
+     *
+     * @param source 输入图像（需为软件位图）
+     * @return 写好数据的像素缓冲区，position为0
+     */
+    public ByteBuffer fillPixels(Bitmap source) {
+        ByteBuffer buffer = getPixelInput();
+        drawLetterbox(source, null);
+        buffer.rewind();
+        letterbox.copyPixelsToBuffer(buffer);
+        buffer.rewind();
+        return buffer;
+    }
+
+    /**
+     * 缩放并居中绘制到复用的letterbox画布，不产生中间缩放位图
+     */
+    private void drawLetterbox(Bitmap source, Rect region) {
+        if (region != null) {
+            srcRect.set(region);
+        } else {
+            srcRect.set(0, 0, source.getWidth(), source.getHeight());
+        }
+        int sourceWidth = srcRect.width();
+        int sourceHeight = srcRect.height();
+
+        scale = Math.min(
+                (float) inputSize / sourceWidth,
+                (float) inputSize / sourceHeight
+        );
+        int scaledWidth = (int) (sourceWidth * scale);
+        int scaledHeight = (int) (sourceHeight * scale);
+        padX = (inputSize - scaledWidth) / 2;
+        padY = (inputSize - scaledHeight) / 2;
+
+        canvas.drawColor(PAD_COLOR);
+        dstRect.set(padX, padY, padX + scaledWidth, padY + scaledHeight);
+        canvas.drawBitmap(source, srcRect, dstRect, paint);
+    }
+
+    /**
+     * 获取输入缓冲区（直接内存，原生字节序）
+     */
+    public FloatBuffer getInput() {
+        if (input == null) {
+            input = ByteBuffer.allocateDirect(3 * inputSize * inputSize * 4)
+                    .order(ByteOrder.nativeOrder())
+                    .asFloatBuffer();
+        }
+        return input;
+    }
+
+    /**
+     * 获取uint8 NHWC像素缓冲区（直接内存，RGBA）
+     */
+    public ByteBuffer getPixelInput() {
+        if (pixelInput == null) {
+            pixelInput = ByteBuffer.allocateDirect(4 * inputSize * inputSize)
+                    .order(ByteOrder.nativeOrder());
+        }
+        return pixelInput;
+    }
+
+    public int getInputSize() {
+        return inputSize;
+    }
+
+    public float getScale() {
+        return scale;
+    }
+
+    public int getPadX() {
+        return padX;
+    }
+
+    public int getPadY() {
+        return padY;
+    }
+
+    /**
+     * 归还letterbox位图
+     */
+    public void release() {
+        BitmapPool.get().release(letterbox);
+    }
+}
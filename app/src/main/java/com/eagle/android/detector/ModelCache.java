@@ -0,0 +1,125 @@
+package com.eagle.android.detector;
+
+import android.content.Context;
+import android.content.pm.PackageInfo;
+import android.util.Log;
+
+import java.io.File;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+
+/**
+ * 模型文件缓存
+ *
+ * 首次使用时把assets中的模型复制到应用私有目录，之后ONNX Runtime按路径直接打开，
+ * 不再把整个模型读进Java堆；同时为优化后的计算图提供缓存路径。
+ * 缓存以应用的安装/更新时间为版本，应用更新后自动失效并重新生成。
+ */
+public class ModelCache {
+
+    private static final String TAG = "ModelCache";
+    private static final String DIR_NAME = "models";
+
+    private final Context context;
+    private final File cacheDir;
+    private final String versionTag;
+
+    public ModelCache(Context context) {
+        this.context = context.getApplicationContext();
+        this.cacheDir = new File(this.context.getNoBackupFilesDir(), DIR_NAME);
+        this.versionTag = resolveVersionTag();
+    }
+
+    /**
+     * 获取assets模型在本地存储中的副本，不存在时复制一次
+     *
+     * @param assetName assets中的模型文件名
+     * @return 本地模型文件
+     */
+    public synchronized File getModelFile(String assetName) throws IOException {
+        File target = new File(cacheDir, versioned(assetName));
+        if (target.isFile() && target.length() > 0) {
+            return target;
+        }
+        if (!cacheDir.isDirectory() && !cacheDir.mkdirs()) {
+            throw new IOException("Cannot create model cache dir: " + cacheDir);
+        }
+        purgeStale(assetName);
+
+        // 先写临时文件再重命名，避免进程中断留下半个模型
+        File tmp = new File(cacheDir, target.getName() + ".tmp");
+        try (InputStream is = context.getAssets().open(assetName);
+             OutputStream os = new FileOutputStream(tmp)) {
+            byte[] buffer = new byte[64 * 1024];
+            int n;
+            while ((n = is.read(buffer)) > 0) {
+                os.write(buffer, 0, n);
+            }
+        }
+        if (!tmp.renameTo(target)) {
+            tmp.delete();
+            throw new IOException("Cannot move model into cache: " + target);
+        }
+        Log.i(TAG, "Model copied to " + target + " (" + target.length() + " bytes)");
+        return target;
+    }
+
+    /**
+     * 获取优化后计算图的缓存路径（文件可能尚不存在）
+     *
+     * @param assetName 原始模型文件名
+     * @param variant 区分执行配置的标记，例如执行提供程序名称
+     */
+    public File getOptimizedModelFile(String assetName, String variant) {
+        return new File(cacheDir, versioned(assetName) + "." + variant + ".opt.onnx");
+    }
+
+    /**
+     * 删除损坏或失效的缓存文件
+     */
+    public void invalidate(File file) {
+        if (file != null && file.exists() && !file.delete()) {
+            Log.w(TAG, "Failed to delete cache file " + file);
+        }
+    }
+
+    /**
+     * 当前缓存版本标记（应用更新后变化）
+     */
+    public String getVersionTag() {
+        return versionTag;
+    }
+
+    private String versioned(String assetName) {
+        return versionTag + "_" + assetName;
+    }
+
+    /**
+     * 删除同一模型的旧版本缓存
+     */
+    private void purgeStale(String assetName) {
+        File[] files = cacheDir.listFiles();
+        if (files == null) return;
+        String suffix = "_" + assetName;
+        String current = versioned(assetName);
+        for (File f : files) {
+            String name = f.getName();
+            if (name.contains(suffix) && !name.startsWith(current)) {
+                invalidate(f);
+            }
+        }
+    }
+
+    private String resolveVersionTag() {
+        try {
+            PackageInfo info = context.getPackageManager()
+                    .getPackageInfo(context.getPackageName(), 0);
+            return String.valueOf(info.lastUpdateTime);
+        } catch (Exception e) {
+            Log.w(TAG, "Cannot resolve package info, cache keyed as 'default'", e);
+            return "default";
+        }
+    }
+}
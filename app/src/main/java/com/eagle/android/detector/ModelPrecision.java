@@ -0,0 +1,26 @@
+package com.eagle.android.detector;
+
+/**
+ * 模型精度变体
+ *
+ * 各变体由 scripts/export_yolov11_onnx.py 的 --precision 参数导出，
+ * 输入输出均保持FP32，检测器的预处理与解码无需区分。
+ */
+public enum ModelPrecision {
+
+    /** 原始FP32模型 */
+    FP32("yolov11n_chart.onnx"),
+
+    /** FP16权重与计算，体积减半 */
+    FP16("yolov11n_chart_fp16.onnx"),
+
+    /** INT8量化（动态或静态校准），体积约为FP32的四分之一 */
+    INT8("yolov11n_chart_int8.onnx");
+
+    /** assets中的模型文件名 */
+    public final String assetName;
+
+    ModelPrecision(String assetName) {
+        this.assetName = assetName;
+    }
+}
@@ -0,0 +1,198 @@
+package com.eagle.android.detector;
+
+import android.content.Context;
+import android.content.SharedPreferences;
+import android.graphics.Bitmap;
+import android.graphics.BitmapFactory;
+import android.graphics.RectF;
+import android.util.Log;
+
+import com.eagle.android.R;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Locale;
+
+/**
+ * 低精度模型变体的精度门槛校验
+ *
+ * 在一组内置图片上分别运行FP32模型与待校验变体，以FP32的检测结果为参考，
+ * 统计变体的召回率（同类别且IoU不低于 {@link #MATCH_IOU} 视为命中），低于门槛则拒绝该变体。
+ * 校验较慢，确定性的结果（完成的比较，或变体缺失、输入类型不符）按应用版本与变体缓存在SharedPreferences中；
+ * 模型随应用打包，应用版本即模型版本，更新后自动重新校验。会话创建出错等可能是偶发的失败不缓存，下次启动重试。
+ */
+public final class ModelVariantValidator {
+
+    private static final String TAG = "ModelVariantValidator";
+    private static final String PREFS_NAME = "yolo_detector";
+
+    public static final float DEFAULT_MIN_RECALL = 0.9f; // 默认召回率门槛
+    private static final float MATCH_IOU = 0.5f;        // 检测框匹配的IoU阈值
+
+    // 内置校验图片
+    private static final int[] BUNDLED_IMAGES = {
+            R.drawable.smaple2,
+            R.drawable.sample_chart,
+            R.drawable.chart
+    };
+
+    private ModelVariantValidator() {
+    }
+
+    /**
+     * 校验结果
+     */
+    public static class Report {
+        public final ModelPrecision precision;
+        public final float recall;        // 相对FP32的召回率
+        public final int referenceCount;  // FP32参考检测数（未缓存时为-1）
+        public final boolean passed;
+        final boolean conclusive;         // 重试结果不会变，可以缓存
+
+        Report(ModelPrecision precision, float recall, int referenceCount, boolean passed) {
+            this(precision, recall, referenceCount, passed, true);
+        }
+
+        Report(ModelPrecision precision, float recall, int referenceCount, boolean passed,
+               boolean conclusive) {
+            this.precision = precision;
+            this.recall = recall;
+            this.referenceCount = referenceCount;
+            this.passed = passed;
+            this.conclusive = conclusive;
+        }
+
+        @Override
+        public String toString() {
+            return String.format(Locale.US, "%s recall %.3f (%d reference boxes), %s",
+                    precision, recall, referenceCount, passed ? "passed" : "rejected");
+        }
+    }
+
+    /**
+     * 校验变体，优先使用缓存的召回率
+     *
+     * @param images 校验图片，为空时使用 {@link #loadBundledImages(Context)}
+     * @param minRecall 召回率门槛
+     */
+    public static Report check(Context context, ModelPrecision precision,
+                               List<Bitmap> images, float minRecall) {
+        if (precision == ModelPrecision.FP32) {
+            return new Report(precision, 1f, 0, true);
+        }
+        SharedPreferences sp = context.getSharedPreferences(PREFS_NAME, Context.MODE_PRIVATE);
+        String key = "precision_recall_" + new ModelCache(context).getVersionTag() + "_" + precision;
+        if (sp.contains(key)) {
+            float recall = sp.getFloat(key, 0f);
+            return new Report(precision, recall, -1, recall >= minRecall);
+        }
+
+        Report report = validate(context, precision, images, minRecall);
+        Log.i(TAG, "Validated " + report);
+        // 变体无法使用也缓存（召回率记为0）：同一版本的模型重试结果不会变，不必每次启动都重跑
+        if (report.conclusive) {
+            sp.edit().putFloat(key, report.recall).apply();
+        }
+        return report;
+    }
+
+    /**
+     * 在图片集上对比FP32与变体的检测结果
+     */
+    public static Report validate(Context context, ModelPrecision precision,
+                                  List<Bitmap> images, float minRecall) {
+        boolean ownsImages = images == null || images.isEmpty();
+        if (ownsImages) {
+            images = loadBundledImages(context);
+        }
+
+        YOLOv11Detector reference = new YOLOv11Detector(context);
+        YOLOv11Detector candidate = new YOLOv11Detector(context);
+        candidate.setPrecision(precision);
+        try {
+            if (!reference.initialize() || !candidate.initialize()) {
+                // 会话创建失败（内存不足、执行提供程序出错等），本次视为未通过
+                return new Report(precision, 0f, -1, false, false);
+            }
+            if (candidate.getActivePrecision() != precision) {
+                // 变体无法加载（缺失或输入类型不符），视为未通过
+                return new Report(precision, 0f, -1, false);
+            }
+
+            int total = 0;
+            int matched = 0;
+            for (Bitmap image : images) {
+                List<Detection> expected = reference.detectObjects(image);
+                List<Detection> actual = candidate.detectObjects(image);
+                total += expected.size();
+                matched += countMatches(expected, actual);
+            }
+
+            // 参考模型在图片集上没有任何检测时无法比较，不拒绝
+            float recall = total == 0 ? 1f : (float) matched / total;
+            return new Report(precision, recall, total, recall >= minRecall);
+
+        } catch (Exception e) {
+            Log.e(TAG, "Validation of " + precision + " failed", e);
+            return new Report(precision, 0f, -1, false, false);
+        } finally {
+            reference.release();
+            candidate.release();
+            if (ownsImages) {
+                for (Bitmap image : images) {
+                    image.recycle();
+                }
+            }
+        }
+    }
+
+    /**
+     * 加载内置校验图片（调用方负责回收）
+     */
+    public static List<Bitmap> loadBundledImages(Context context) {
+        List<Bitmap> images = new ArrayList<>();
+        for (int resId : BUNDLED_IMAGES) {
+            Bitmap bitmap = BitmapFactory.decodeResource(context.getResources(), resId);
+            if (bitmap != null) {
+                images.add(bitmap);
+            }
+        }
+        return images;
+    }
+
+    /**
+     * 贪心匹配：每个参考检测找一个未使用的、同类别且IoU达标的变体检测
+     */
+    private static int countMatches(List<Detection> expected, List<Detection> actual) {
+        boolean[] used = new boolean[actual.size()];
+        int matched = 0;
+        for (Detection ref : expected) {
+            int best = -1;
+            float bestIou = MATCH_IOU;
+            for (int i = 0; i < actual.size(); i++) {
+                Detection det = actual.get(i);
+                if (used[i] || det.classId != ref.classId) continue;
+                float iou = iou(ref.boundingBox, det.boundingBox);
+                if (iou >= bestIou) {
+                    best = i;
+                    bestIou = iou;
+                }
+            }
+            if (best >= 0) {
+                used[best] = true;
+                matched++;
+            }
+        }
+        return matched;
+    }
+
+    private static float iou(RectF a, RectF b) {
+        float x1 = Math.max(a.left, b.left);
+        float y1 = Math.max(a.top, b.top);
+        float x2 = Math.min(a.right, b.right);
+        float y2 = Math.min(a.bottom, b.bottom);
+        float intersection = Math.max(0, x2 - x1) * Math.max(0, y2 - y1);
+        float union = a.width() * a.height() + b.width() * b.height() - intersection;
+        return union > 0 ? intersection / union : 0;
+    }
+}
@@ -0,0 +1,146 @@
+package com.eagle.android.detector;
+
+import android.graphics.Bitmap;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.Locale;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * 串行检测与 {@link DetectionPipeline} 的端到端吞吐量/延迟对比
+ *
+ * 用一张长图模拟连续滚动：视口从上到下逐帧下移，每帧都是不同的画面。
+ * 两种模式处理同一组帧，帧不丢弃：
+ * - 串行：逐帧调用 {@link YOLOv11Detector#detectSingleChart(Bitmap)}
+ * - 流水线：连续提交，预处理、推理、后处理重叠执行
+ * 延迟从提交到结果产生，吞吐量按第一帧提交到最后一帧完成计算。
+ * 耗时较长，应在后台线程调用。
+ */
+public final class PipelineBenchmark {
+
+    private static final long PIPELINE_TIMEOUT_MS = 120_000;
+
+    /**
+     * 单个模式的测试结果
+     */
+    public static class Result {
+        public final String mode;
+        public final int frames;
+        public final long wallMs;
+        public final double fps;
+        public final long meanLatencyMs;
+        public final long p50LatencyMs;
+        public final long p95LatencyMs;
+
+        Result(String mode, long wallMs, long[] latencies) {
+            this.mode = mode;
+            this.frames = latencies.length;
+            this.wallMs = wallMs;
+            this.fps = wallMs > 0 ? frames * 1000.0 / wallMs : 0;
+            long[] sorted = latencies.clone();
+            Arrays.sort(sorted);
+            long sum = 0;
+            for (long l : sorted) sum += l;
+            this.meanLatencyMs = frames > 0 ? sum / frames : 0;
+            this.p50LatencyMs = percentile(sorted, 0.50);
+            this.p95LatencyMs = percentile(sorted, 0.95);
+        }
+
+        @Override
+        public String toString() {
+            return String.format(Locale.getDefault(),
+                    "%s: %d帧 %dms，%.1f fps，延迟 平均%dms / P50 %dms / P95 %dms",
+                    mode, frames, wallMs, fps, meanLatencyMs, p50LatencyMs, p95LatencyMs);
+        }
+    }
+
+    private PipelineBenchmark() {
+    }
+
+    /**
+     * 依次运行串行与流水线模式
+     *
+     * @param detector 已初始化的检测器（使用固定640输入路径）
+     * @param page 被"滚动"的长图，高度需大于视口
+     * @param viewportHeight 视口高度（每帧截图高度）
+     * @param frameCount 帧数
+     * @return [串行结果, 流水线结果]
+     */
+    public static List<Result> run(YOLOv11Detector detector, Bitmap page, int viewportHeight,
+                                   int frameCount) throws Exception {
+        List<Bitmap> frames = scrollFrames(page, viewportHeight, frameCount);
+        try {
+            // 先跑一遍预热，避免首帧的线程池/内存分配影响第一个模式
+            detector.detectSingleChart(frames.get(0));
+
+            List<Result> results = new ArrayList<>(2);
+            results.add(runSerial(detector, frames));
+            results.add(runPipelined(detector, frames));
+            return results;
+        } finally {
+            for (Bitmap frame : frames) {
+                frame.recycle();
+            }
+        }
+    }
+
+    private static Result runSerial(YOLOv11Detector detector, List<Bitmap> frames) {
+        long[] latencies = new long[frames.size()];
+        long startNs = System.nanoTime();
+        for (int i = 0; i < frames.size(); i++) {
+            long frameStartNs = System.nanoTime();
+            detector.detectSingleChart(frames.get(i));
+            latencies[i] = (System.nanoTime() - frameStartNs) / 1_000_000L;
+        }
+        long wallMs = (System.nanoTime() - startNs) / 1_000_000L;
+        return new Result("串行", wallMs, latencies);
+    }
+
+    private static Result runPipelined(YOLOv11Detector detector, List<Bitmap> frames)
+            throws Exception {
+        long[] latencies = new long[frames.size()];
+        CountDownLatch done = new CountDownLatch(frames.size());
+        DetectionPipeline pipeline = new DetectionPipeline(detector, (frameId, result, timing) -> {
+            latencies[(int) frameId] = timing.totalMs;
+            done.countDown();
+        });
+        try {
+            long startNs = System.nanoTime();
+            for (int i = 0; i < frames.size(); i++) {
+                pipeline.submitBlocking(frames.get(i), i);
+            }
+            if (!done.await(PIPELINE_TIMEOUT_MS, TimeUnit.MILLISECONDS)) {
+                throw new IllegalStateException("Pipeline benchmark timed out");
+            }
+            long wallMs = (System.nanoTime() - startNs) / 1_000_000L;
+            return new Result("流水线", wallMs, latencies);
+        } finally {
+            pipeline.close();
+        }
+    }
+
+    /**
+     * 模拟连续滚动：视口从长图顶部匀速移动到底部
+     */
+    private static List<Bitmap> scrollFrames(Bitmap page, int viewportHeight, int frameCount) {
+        int height = Math.min(viewportHeight, page.getHeight());
+        int travel = page.getHeight() - height;
+        List<Bitmap> frames = new ArrayList<>(frameCount);
+        for (int i = 0; i < frameCount; i++) {
+            int top = frameCount > 1 ? travel * i / (frameCount - 1) : 0;
+            Bitmap frame = Bitmap.createBitmap(page, 0, top, page.getWidth(), height);
+            // 区域与原图相同时createBitmap直接返回原图，复制一份以免回收时连带原图
+            frames.add(frame == page ? page.copy(Bitmap.Config.ARGB_8888, false) : frame);
+        }
+        return frames;
+    }
+
+    private static long percentile(long[] sorted, double p) {
+        if (sorted.length == 0) return 0;
+        int index = (int) Math.ceil(p * sorted.length) - 1;
+        return sorted[Math.max(0, Math.min(index, sorted.length - 1))];
+    }
+}
@@ -0,0 +1,169 @@
+package com.eagle.android.detector;
+
+import android.content.Context;
+import android.graphics.RectF;
+import android.os.PowerManager;
+import android.os.SystemClock;
+import android.util.Log;
+
+import java.util.Arrays;
+
+/**
+ * 按帧选择模型输入尺寸的控制器
+ *
+ * 每帧最多升/降一档，依据：
+ * - 各尺寸实测推理耗时的指数滑动平均，超出延迟预算即降档
+ * - 上一帧图表在屏幕上的大小：图表足够大时低分辨率已能看清元素，不必升档
+ * - 设备发热（PowerManager热状态/热余量）时降档且不升档；CPU被占用时体现为耗时上升，同样触发降档
+ * 升档前按面积比估算更大尺寸的耗时，预计仍低于预算的 {@link #STEP_UP_HEADROOM} 才升档。
+ * 未运行的尺寸的实测值超过 {@link #STALE_FRAMES} 帧即过期，改为从当前尺寸外推，
+ * 一次耗时尖峰不会让该尺寸永远无法升回；过期的实测值在该尺寸再次运行时直接被新值取代。
+ */
+public class ResolutionController {
+
+    private static final String TAG = "ResolutionController";
+
+    public static final long DEFAULT_BUDGET_MS = 150;         // 默认延迟预算（截图到提示）
+    private static final float EMA_ALPHA = 0.3f;              // 耗时滑动平均系数
+    private static final float STEP_UP_HEADROOM = 0.6f;       // 升档后预计耗时占预算的上限
+    private static final int MIN_CHART_INPUT_PX = 240;        // 图表长边在模型输入中至少应占的像素
+    private static final long THERMAL_CHECK_INTERVAL_MS = 2000;
+    private static final float THERMAL_HEADROOM_LIMIT = 0.9f; // 热余量预测超过该值视为发热
+    private static final int THERMAL_FORECAST_SECONDS = 10;
+    static final int STALE_FRAMES = 30;                       // 实测耗时的有效期（帧）
+
+    private final int[] sizes;            // 可用输入尺寸（升序）
+    private final float[] latencyEma;     // 各尺寸的耗时滑动平均（NaN表示未测）
+    private final long[] measuredAt;      // 各尺寸最近一次实测时的帧序号
+    private long frames = 0;              // 已记录的帧数
+    private final PowerManager powerManager;
+    private long budgetMs;
+    private int index;
+
+    private float chartFraction = 0f;     // 上一帧图表长边占屏幕长边的比例（0表示未知）
+    private boolean underThermalPressure = false;
+    private long lastThermalCheckAt = 0;
+
+    /**
+     * @param sizes 已加载的输入尺寸
+     * @param budgetMs 单帧推理的延迟预算
+     */
+    public ResolutionController(Context context, int[] sizes, long budgetMs) {
+        this((PowerManager) context.getSystemService(Context.POWER_SERVICE), sizes, budgetMs);
+    }
+
+    /**
+     * @param powerManager 为null时不考虑发热
+     */
+    ResolutionController(PowerManager powerManager, int[] sizes, long budgetMs) {
+        this.sizes = sizes.clone();
+        Arrays.sort(this.sizes);
+        this.latencyEma = new float[this.sizes.length];
+        Arrays.fill(latencyEma, Float.NaN);
+        this.measuredAt = new long[this.sizes.length];
+        this.powerManager = powerManager;
+        this.budgetMs = budgetMs;
+        this.index = this.sizes.length - 1; // 从最大尺寸开始，由实测耗时决定是否降档
+    }
+
+    /**
+     * 选择本帧的输入尺寸
+     */
+    public synchronized int choose() {
+        refreshThermalState();
+
+        int desired = desiredIndex();
+        int next = index;
+        if (underThermalPressure) {
+            next = index - 1;                            // 降温优先
+        } else if (latencyEma[index] > budgetMs) {
+            next = index - 1;                            // 超出预算（包括CPU被其他负载占用）
+        } else if (index > desired) {
+            next = index - 1;                            // 图表够大，低分辨率已足够
+        } else if (index < desired && estimate(index + 1) <= budgetMs * STEP_UP_HEADROOM) {
+            next = index + 1;                            // 有余量且图表偏小
+        }
+        next = Math.max(0, Math.min(sizes.length - 1, next));
+        if (next != index) {
+            Log.d(TAG, "Input size " + sizes[index] + " -> " + sizes[next]
+                    + " (ema " + latencyEma[index] + "ms, budget " + budgetMs + "ms"
+                    + (underThermalPressure ? ", thermal" : "") + ")");
+            index = next;
+        }
+        return sizes[index];
+    }
+
+    /**
+     * 记录一帧的实测结果
+     *
+     * @param inputSize 本帧使用的输入尺寸
+     * @param latencyMs 推理耗时（含预处理与解码）
+     * @param chartBox 检测到的图表框（原图坐标），未检测到时为null
+     */
+    public synchronized void onFrame(int inputSize, long latencyMs, RectF chartBox,
+                                     int screenWidth, int screenHeight) {
+        frames++;
+        int i = Arrays.binarySearch(sizes, inputSize);
+        if (i >= 0) {
+            latencyEma[i] = Float.isNaN(latencyEma[i]) || isStale(i)
+                    ? latencyMs
+                    : latencyEma[i] + EMA_ALPHA * (latencyMs - latencyEma[i]);
+            measuredAt[i] = frames;
+        }
+        if (chartBox != null) {
+            chartFraction = Math.max(chartBox.width(), chartBox.height())
+                    / Math.max(screenWidth, screenHeight);
+        }
+    }
+
+    /**
+     * 设置延迟预算
+     */
+    public synchronized void setBudgetMs(long budgetMs) {
+        this.budgetMs = budgetMs;
+    }
+
+    public synchronized int getCurrentSize() {
+        return sizes[index];
+    }
+
+    /**
+     * 图表在模型输入中的长边 = 输入尺寸 × 图表占屏比例（letterbox按屏幕长边缩放）
+     * 选能让图表长边达到 {@link #MIN_CHART_INPUT_PX} 的最小尺寸；图表未知时不限制
+     */
+    private int desiredIndex() {
+        if (chartFraction <= 0f) return sizes.length - 1;
+        for (int i = 0; i < sizes.length; i++) {
+            if (sizes[i] * chartFraction >= MIN_CHART_INPUT_PX) return i;
+        }
+        return sizes.length - 1;
+    }
+
+    /**
+     * 估算某尺寸的耗时：有未过期的实测值时取实测值，否则按面积比从当前尺寸外推
+     */
+    private float estimate(int i) {
+        if (!Float.isNaN(latencyEma[i]) && !isStale(i)) return latencyEma[i];
+        if (Float.isNaN(latencyEma[index])) return Float.MAX_VALUE;
+        float ratio = (float) sizes[i] / sizes[index];
+        return latencyEma[index] * ratio * ratio;
+    }
+
+    private boolean isStale(int i) {
+        return frames - measuredAt[i] > STALE_FRAMES;
+    }
+
+    private void refreshThermalState() {
+        long now = SystemClock.elapsedRealtime();
+        if (powerManager == null || now - lastThermalCheckAt < THERMAL_CHECK_INTERVAL_MS) return;
+        lastThermalCheckAt = now;
+
+        boolean pressure = powerManager.getCurrentThermalStatus()
+                >= PowerManager.THERMAL_STATUS_MODERATE;
+        float headroom = powerManager.getThermalHeadroom(THERMAL_FORECAST_SECONDS);
+        if (!Float.isNaN(headroom) && headroom >= THERMAL_HEADROOM_LIMIT) {
+            pressure = true;
+        }
+        underThermalPressure = pressure;
+    }
+}
@@ -3,18 +3,17 @@ package com.eagle.android.detector;
 import android.content.res.Resources;
 import android.graphics.*;
 import com.eagle.android.model.*;
+import com.eagle.android.util.BitmapPool;
 import java.util.*;
 
 
 public class SimpleChartDetector implements ChartDetector {
     @Override public ChartResult detectSingleChart(Bitmap screenshot) {
         if (screenshot == null) return null;
-        int W = screenshot.getWidth(), H = screenshot.getHeight();
-// 取屏幕中部 60%×36% 作为“图表区域”（演示用）
-        int cw = (int)(W * 0.60f), ch = (int)(H * 0.36f);
-        int cx = (W - cw)/2, cy = (int)(H*0.30f);
-        Rect chartRect = new Rect(cx, cy, cx+cw, cy+ch);
-        Bitmap chartBmp = Bitmap.createBitmap(screenshot, chartRect.left, chartRect.top, chartRect.width(), chartRect.height());
+        Rect chartRect = chartRectFor(screenshot.getWidth(), screenshot.getHeight());
+// 裁剪图从位图池借出，由结果的接收方归还
+        Bitmap chartBmp = BitmapPool.get().acquire(chartRect.width(), chartRect.height());
+        new Canvas(chartBmp).drawBitmap(screenshot, chartRect, new Rect(0, 0, chartRect.width(), chartRect.height()), null);
 // 造3个示例数据点（24dp 触达框）
         float density = Resources.getSystem().getDisplayMetrics().density;
         int touch = (int)(24 * density);
@@ -27,4 +26,20 @@ public class SimpleChartDetector implements ChartDetector {
         }
         return new ChartResult(chartBmp, chartRect, list);
     }
-}
\ No newline at end of file
+
+    @Override public DetectionHandle detectAsync(Bitmap screenshot, long timeoutMs, DetectionHandle.Callback callback) {
+        DetectionHandle handle = new DetectionHandle(callback);
+        AsyncDetection.submit(handle, timeoutMs, screenshot, () -> {
+            if (screenshot != null) handle.publishChartRect(chartRectFor(screenshot.getWidth(), screenshot.getHeight()));
+            handle.complete(detectSingleChart(screenshot));
+        });
+        return handle;
+    }
+
+    private static Rect chartRectFor(int W, int H) {
+// 取屏幕中部 60%×36% 作为“图表区域”（演示用）
+        int cw = (int)(W * 0.60f), ch = (int)(H * 0.36f);
+        int cx = (W - cw)/2, cy = (int)(H*0.30f);
+        return new Rect(cx, cy, cx+cw, cy+ch);
+    }
+}
@@ -2,25 +2,36 @@ package com.eagle.android.detector;
 
 import android.content.Context;
 import android.graphics.Bitmap;
-import android.graphics.Canvas;
 import android.graphics.Rect;
 import android.graphics.RectF;
+import android.os.Looper;
+import android.os.SystemClock;
 import android.util.Log;
 
 import com.eagle.android.model.ChartResult;
-import com.eagle.android.model.NodeSpec;
 
+import java.io.File;
+import java.io.IOException;
 import java.io.InputStream;
+import java.nio.ByteBuffer;
+import java.nio.ByteOrder;
 import java.nio.FloatBuffer;
 import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
 import java.util.HashMap;
 import java.util.List;
 import java.util.Locale;
 import java.util.Map;
+import java.util.TreeMap;
 
+import ai.onnxruntime.NodeInfo;
+import ai.onnxruntime.OnnxJavaType;
 import ai.onnxruntime.OnnxTensor;
 import ai.onnxruntime.OrtEnvironment;
+import ai.onnxruntime.OrtException;
 import ai.onnxruntime.OrtSession;
+import ai.onnxruntime.TensorInfo;
 
 /**
  * 基于YOLOv11-nano的图表检测器
@@ -32,13 +43,28 @@ public class YOLOv11Detector implements ChartDetector {
     private static final String TAG = "YOLOv11Detector";
 
     // 模型配置
-    private static final String MODEL_FILE = "yolov11n_chart.onnx"; // 模型文件名
-    private static final int INPUT_SIZE = 640;                       // 模型输入尺寸
-    private static final float CONF_THRESHOLD = 0.25f;               // 置信度阈值
-    private static final float IOU_THRESHOLD = 0.45f;                // NMS IoU阈值
+    static final int INPUT_SIZE = 640;                               // 模型输入尺寸
+    static final float CONF_THRESHOLD = 0.25f;                       // 置信度阈值
+    static final float IOU_THRESHOLD = 0.45f;                        // NMS IoU阈值
+
+    // 多输入尺寸配置（级联检测与自适应分辨率）
+    private static final int[] EXTRA_INPUT_SIZES = {320, 480};       // 额外加载的输入尺寸（不含640）
+    private static final int COARSE_INPUT_SIZE = 320;                // 级联全屏粗检输入尺寸
+    private static final float CASCADE_CROP_MARGIN = 0.05f;          // 图表区域外扩比例
+    private static final int MAX_CASCADE_CHARTS = 3;                 // 精检的最大图表数
+
+    // 批量检测配置
+    private static final int MAX_BATCH_SIZE = 8;                     // 单次推理的最大批大小
+
+    // 执行提供程序探测配置
+    private static final String PREFS_NAME = "yolo_detector";
+    private static final int PROBE_RUNS = 3;                         // 计时运行次数（取最短）
+    private static final float PROBE_ABS_TOLERANCE = 1e-2f;          // 输出一致性绝对容差
+    private static final float PROBE_REL_TOLERANCE = 5e-2f;          // 输出一致性相对容差
+    private static final float PROBE_MAX_MISMATCH_RATIO = 0.01f;     // 允许超差的元素比例
 
     // 图表类别定义 - 根据你训练的模型进行调整
-    private static final String[] CLASS_NAMES = {
+    static final String[] CLASS_NAMES = {
             "chart",        // 0: 整个图表区域
             "bar",          // 1: 柱状图的柱子
             "line_point",   // 2: 折线图的数据点
@@ -55,43 +81,182 @@ public class YOLOv11Detector implements ChartDetector {
     private boolean isInitialized = false;
 
     private int numClasses;
-    private boolean needsTranspose = true; // YOLOv11输出通常需要转置
+    private final YOLOv11OutputDecoder outputDecoder;
+
+    // 复用的预处理缓冲区与输入张量（零拷贝）
+    private boolean usePooledPreprocessing = true;
+    private LetterboxBuffer letterboxBuffer;
+    private OnnxTensor pooledInputTensor;
+    private String inputName;
+
+    // 模型文件缓存与初始化耗时统计
+    private final ModelCache modelCache;
+    private InitStats initStats;
+    private boolean lastOpenCacheHit = false;
+
+    // 模型精度变体
+    private ModelPrecision requestedPrecision = ModelPrecision.FP32;
+    private ModelPrecision activePrecision = ModelPrecision.FP32;
+    private boolean validatePrecision = false;
+    private String modelAsset = ModelPrecision.FP32.assetName;
+
+    // 级联模式：低分辨率全屏找图表，再在每个图表区域上精检元素
+    private boolean cascadeMode = false;
+    private final TreeMap<Integer, SizedSession> sizedSessions = new TreeMap<>();
+
+    // 批量检测：动态批维度导出的模型，缺失时逐张推理
+    private OrtSession batchSession;
+    private String batchInputName;
+    private FloatBuffer batchInput;
+    private boolean batchModelMissing = false;
+
+    // 推理取消：RunOptions的终止标志可以从其他线程设置，使正在进行的run尽快返回
+    private volatile OrtSession.RunOptions runOptions;
+    private volatile boolean cancelRequested = false;
+    // 正在执行的异步检测，级联粗检后经它提前报告图表区域
+    private volatile DetectionHandle activeHandle;
+
+    // 自适应分辨率：按延迟预算、图表大小与发热情况逐帧选择输入尺寸
+    private boolean adaptiveResolution = false;
+    private long latencyBudgetMs = ResolutionController.DEFAULT_BUDGET_MS;
+    private ResolutionController resolutionController;
+    private FrameStats lastFrameStats;
+
+    // 执行提供程序：按顺序探测，保留输出一致且最快的一个
+    private List<ExecutionProvider> providerChain = Arrays.asList(
+            ExecutionProvider.XNNPACK, ExecutionProvider.NNAPI, ExecutionProvider.CPU);
+    private ExecutionProvider activeProvider = ExecutionProvider.CPU;
+
+    /**
+     * 初始化耗时统计
+     * 冷启动：没有优化模型缓存，需要完整图优化；热启动：直接加载缓存的优化计算图
+     */
+    public static class InitStats {
+        public final ModelPrecision precision;   // 最终使用的精度变体
+        public final ExecutionProvider provider; // 最终使用的执行提供程序
+        public final boolean optimizedCacheHit;  // 是否命中优化模型缓存（热启动）
+        public final long sessionMs;             // 会话创建耗时（含提供程序探测）
+        public final long warmUpMs;              // 预热推理耗时
+
+        public InitStats(ModelPrecision precision, ExecutionProvider provider,
+                         boolean optimizedCacheHit, long sessionMs, long warmUpMs) {
+            this.precision = precision;
+            this.provider = provider;
+            this.optimizedCacheHit = optimizedCacheHit;
+            this.sessionMs = sessionMs;
+            this.warmUpMs = warmUpMs;
+        }
+
+        @Override
+        public String toString() {
+            return String.format(Locale.US, "%s on %s, %s start, session %dms, warm-up %dms",
+                    precision, provider, optimizedCacheHit ? "warm" : "cold", sessionMs, warmUpMs);
+        }
+    }
+
+    /**
+     * 单帧检测统计
+     */
+    public static class FrameStats {
+        public final int inputSize;      // 本帧使用的输入尺寸（级联时为全屏粗检尺寸）
+        public final long inferenceMs;   // 预处理+推理+解码耗时
+        public final int detections;     // 检测数
+
+        public FrameStats(int inputSize, long inferenceMs, int detections) {
+            this.inputSize = inputSize;
+            this.inferenceMs = inferenceMs;
+            this.detections = detections;
+        }
+
+        @Override
+        public String toString() {
+            return String.format(Locale.US, "%dpx, %dms, %d detections",
+                    inputSize, inferenceMs, detections);
+        }
+    }
+
+    /**
+     * 某一输入尺寸的推理会话及其复用的letterbox缓冲区与输入张量
+     */
+    private static class SizedSession {
+        final int inputSize;
+        final OrtSession session;
+        final String inputName;
+        final LetterboxBuffer letterbox;
+        final OnnxTensor inputTensor;
+
+        SizedSession(int inputSize, OrtSession session, String inputName,
+                     LetterboxBuffer letterbox, OnnxTensor inputTensor) {
+            this.inputSize = inputSize;
+            this.session = session;
+            this.inputName = inputName;
+            this.letterbox = letterbox;
+            this.inputTensor = inputTensor;
+        }
+
+        void close() {
+            inputTensor.close();
+            letterbox.release();
+            closeQuietly(session);
+        }
+    }
 
     public YOLOv11Detector(Context context) {
         this.context = context.getApplicationContext();
         this.numClasses = CLASS_NAMES.length;
+        this.outputDecoder = new YOLOv11OutputDecoder(numClasses);
+        this.modelCache = new ModelCache(this.context);
     }
 
     /**
      * 初始化ONNX Runtime会话
-     * 需要在使用前调用
+     * 需要在使用前调用；包含执行提供程序探测与预热推理，应在后台线程调用
      */
     public synchronized boolean initialize() {
         if (isInitialized) {
             return true;
         }
+        if (Looper.myLooper() == Looper.getMainLooper()) {
+            Log.w(TAG, "initialize() called on main thread, model loading will block UI");
+        }
 
+        long startAt = SystemClock.elapsedRealtime();
         try {
+            // 选择精度变体：资源缺失、未通过精度门槛或输入不是FP32时回退FP32
+            // （门槛校验会创建并释放临时检测器，需在获取运行环境之前完成）
+            activePrecision = resolvePrecision();
             ortEnv = OrtEnvironment.getEnvironment();
-
-            // 配置会话选项
-            OrtSession.SessionOptions sessionOptions = new OrtSession.SessionOptions();
-            sessionOptions.setOptimizationLevel(OrtSession.SessionOptions.OptLevel.ALL_OPT);
-
-            // 设置线程数（根据设备性能调整）
-            sessionOptions.setIntraOpNumThreads(4);
-
-            // 从assets加载模型
-            byte[] modelBytes = loadModelFromAssets(MODEL_FILE);
-            if (modelBytes == null) {
-                Log.e(TAG, "Failed to load model from assets: " + MODEL_FILE);
+            runOptions = new OrtSession.RunOptions();
+            if (!openModel(activePrecision.assetName)) {
                 return false;
             }
+            if (activePrecision != ModelPrecision.FP32 && !hasFloatInput()) {
+                Log.w(TAG, activePrecision + " variant does not take FP32 input, falling back to FP32");
+                closeQuietly(ortSession);
+                ortSession = null;
+                activePrecision = ModelPrecision.FP32;
+                if (!openModel(activePrecision.assetName)) {
+                    return false;
+                }
+            }
 
-            ortSession = ortEnv.createSession(modelBytes, sessionOptions);
+            inputName = ortSession.getInputNames().iterator().next();
             isInitialized = true;
+            long sessionMs = SystemClock.elapsedRealtime() - startAt;
 
-            Log.i(TAG, "YOLOv11 model loaded successfully");
+            // 预热：首次推理会触发内存分配与内核初始化，提前在后台完成
+            long warmUpMs = warmUp();
+            sizedSessions.put(INPUT_SIZE, new SizedSession(INPUT_SIZE, ortSession, inputName,
+                    letterboxBuffer, ensurePooledInputTensor()));
+            if (cascadeMode || adaptiveResolution) {
+                loadSizedSessions();
+            }
+            if (adaptiveResolution) {
+                resolutionController = newResolutionController();
+            }
+            initStats = new InitStats(activePrecision, activeProvider, lastOpenCacheHit, sessionMs, warmUpMs);
+
+            Log.i(TAG, "YOLOv11 model loaded successfully: " + initStats);
             logModelInfo();
 
             return true;
@@ -102,6 +267,353 @@ public class YOLOv11Detector implements ChartDetector {
         }
     }
 
+    /**
+     * 加载指定模型文件并创建会话
+     *
+     * @return 是否成功
+     */
+    private boolean openModel(String asset) throws OrtException {
+        modelAsset = asset;
+        File modelFile = null;
+        byte[] modelBytes = null;
+        try {
+            modelFile = modelCache.getModelFile(modelAsset);
+        } catch (Exception e) {
+            // 私有目录不可用时回退为从assets读入内存
+            Log.w(TAG, "Model cache unavailable, loading from assets", e);
+            modelBytes = loadModelFromAssets(modelAsset);
+            if (modelBytes == null) {
+                Log.e(TAG, "Failed to load model from assets: " + modelAsset);
+                return false;
+            }
+        }
+
+        // 1. 优先使用上次探测选出的执行提供程序
+        ExecutionProvider remembered = loadSelectedProvider();
+        if (remembered != null) {
+            try {
+                ortSession = openSession(remembered, modelAsset, modelFile, modelBytes);
+                activeProvider = remembered;
+            } catch (Throwable t) {
+                Log.w(TAG, "Remembered provider " + remembered + " failed, probing again", t);
+                ortSession = null;
+            }
+        }
+
+        // 2. 否则按配置顺序探测，选出结果一致且最快的提供程序
+        if (ortSession == null) {
+            selectProvider(modelFile, modelBytes);
+            saveSelectedProvider(activeProvider);
+        }
+        return ortSession != null;
+    }
+
+    /**
+     * 解析实际使用的精度变体
+     */
+    private ModelPrecision resolvePrecision() {
+        if (requestedPrecision == ModelPrecision.FP32) {
+            return ModelPrecision.FP32;
+        }
+        if (!assetExists(requestedPrecision.assetName)) {
+            Log.w(TAG, requestedPrecision + " model not bundled, falling back to FP32");
+            return ModelPrecision.FP32;
+        }
+        if (validatePrecision) {
+            ModelVariantValidator.Report report = ModelVariantValidator.check(
+                    context, requestedPrecision, null,
+                    ModelVariantValidator.DEFAULT_MIN_RECALL);
+            if (!report.passed) {
+                Log.w(TAG, "Refusing " + requestedPrecision + " variant: " + report);
+                return ModelPrecision.FP32;
+            }
+        }
+        return requestedPrecision;
+    }
+
+    private boolean assetExists(String asset) {
+        try (InputStream ignored = context.getAssets().open(asset)) {
+            return true;
+        } catch (IOException e) {
+            return false;
+        }
+    }
+
+    /**
+     * 检查模型输入是否为FP32张量（预处理只产出FP32）
+     */
+    private boolean hasFloatInput() throws OrtException {
+        NodeInfo info = ortSession.getInputInfo().values().iterator().next();
+        return info.getInfo() instanceof TensorInfo
+                && ((TensorInfo) info.getInfo()).type == OnnxJavaType.FLOAT;
+    }
+
+    /**
+     * 加载其余输入尺寸的模型（静态尺寸导出，每个尺寸一个文件）
+     * 缺失的尺寸跳过，由已加载的尺寸替代
+     */
+    private void loadSizedSessions() {
+        for (int size : EXTRA_INPUT_SIZES) {
+            if (sizedSessions.containsKey(size)) continue;
+            String asset = sizedAsset(activePrecision.assetName, size);
+            if (!assetExists(asset)) {
+                Log.i(TAG, "No " + size + "px model bundled (" + asset + ")");
+                continue;
+            }
+            OrtSession session = null;
+            LetterboxBuffer letterbox = null;
+            try {
+                session = openSession(activeProvider, asset, modelCache.getModelFile(asset), null);
+                letterbox = new LetterboxBuffer(size);
+                OnnxTensor tensor = OnnxTensor.createTensor(ortEnv, letterbox.getInput(),
+                        new long[]{1, 3, size, size});
+                sizedSessions.put(size, new SizedSession(size, session,
+                        session.getInputNames().iterator().next(), letterbox, tensor));
+                Log.i(TAG, "Loaded " + size + "px model for cascade");
+            } catch (Exception e) {
+                Log.w(TAG, "Failed to load " + size + "px model", e);
+                if (letterbox != null) letterbox.release();
+                closeQuietly(session);
+            }
+        }
+    }
+
+    /**
+     * 指定输入尺寸的模型文件名：yolov11n_chart.onnx → yolov11n_chart_320.onnx
+     */
+    static String sizedAsset(String asset, int inputSize) {
+        if (inputSize == INPUT_SIZE) return asset;
+        return suffixedAsset(asset, String.valueOf(inputSize));
+    }
+
+    /**
+     * 模型文件名加后缀：yolov11n_chart.onnx → yolov11n_chart_batch.onnx
+     */
+    static String suffixedAsset(String asset, String suffix) {
+        int dot = asset.lastIndexOf('.');
+        return asset.substring(0, dot) + "_" + suffix + asset.substring(dot);
+    }
+
+    /**
+     * 探测执行提供程序
+     * CPU会话始终创建，作为参考输出与兜底；其余提供程序不可用或输出与CPU不一致时跳过
+     */
+    private void selectProvider(File modelFile, byte[] modelBytes) throws OrtException {
+        OrtSession cpuSession = openSession(ExecutionProvider.CPU, modelAsset, modelFile, modelBytes);
+        boolean cpuCacheHit = lastOpenCacheHit;
+        ProbeResult reference;
+        try {
+            inputName = cpuSession.getInputNames().iterator().next();
+            fillProbeInput();
+            reference = probe(cpuSession);
+        } catch (OrtException | RuntimeException e) {
+            closeQuietly(cpuSession);
+            throw e;
+        }
+        Log.i(TAG, "Provider CPU: " + reference.latencyMs + "ms");
+
+        OrtSession best = cpuSession;
+        ExecutionProvider bestProvider = ExecutionProvider.CPU;
+        long bestMs = providerChain.contains(ExecutionProvider.CPU) ? reference.latencyMs : Long.MAX_VALUE;
+        boolean bestCacheHit = cpuCacheHit;
+
+        for (ExecutionProvider provider : providerChain) {
+            if (provider == ExecutionProvider.CPU) continue;
+            OrtSession candidate = null;
+            try {
+                candidate = openSession(provider, modelAsset, modelFile, modelBytes);
+                boolean cacheHit = lastOpenCacheHit;
+                ProbeResult result = probe(candidate);
+                if (!isConsistent(result.output, reference.output)) {
+                    Log.w(TAG, "Provider " + provider + " output differs from CPU, skipped");
+                } else {
+                    Log.i(TAG, "Provider " + provider + ": " + result.latencyMs + "ms");
+                    if (result.latencyMs < bestMs) {
+                        if (best != cpuSession) best.close();
+                        best = candidate;
+                        bestProvider = provider;
+                        bestMs = result.latencyMs;
+                        bestCacheHit = cacheHit;
+                        candidate = null;
+                    }
+                }
+            } catch (Throwable t) {
+                // 提供程序未编译进运行时或设备不支持
+                Log.w(TAG, "Provider " + provider + " unavailable: " + t);
+            } finally {
+                closeQuietly(candidate);
+            }
+        }
+
+        if (best != cpuSession) cpuSession.close();
+        ortSession = best;
+        activeProvider = bestProvider;
+        lastOpenCacheHit = bestCacheHit;
+    }
+
+    /**
+     * 创建推理会话
+     * 优先加载已缓存的优化计算图（跳过图优化）；否则按路径打开模型并在首次运行时保存优化结果
+     */
+    private OrtSession openSession(ExecutionProvider provider, String asset,
+                                   File modelFile, byte[] modelBytes) throws OrtException {
+        lastOpenCacheHit = false;
+        if (modelFile == null) {
+            try (OrtSession.SessionOptions options = newSessionOptions(provider, provider.optLevel)) {
+                return ortEnv.createSession(modelBytes, options);
+            }
+        }
+
+        File optimizedFile = modelCache.getOptimizedModelFile(asset, provider.cacheKey);
+        if (optimizedFile.isFile()) {
+            try (OrtSession.SessionOptions options =
+                         newSessionOptions(provider, OrtSession.SessionOptions.OptLevel.NO_OPT)) {
+                try {
+                    OrtSession session = ortEnv.createSession(optimizedFile.getPath(), options);
+                    lastOpenCacheHit = true;
+                    return session;
+                } catch (OrtException e) {
+                    // 缓存损坏（例如写入时进程被杀），删除后重新生成
+                    Log.w(TAG, "Optimized model cache invalid, rebuilding", e);
+                    modelCache.invalidate(optimizedFile);
+                }
+            }
+        }
+
+        try (OrtSession.SessionOptions options = newSessionOptions(provider, provider.optLevel)) {
+            options.setOptimizedModelFilePath(optimizedFile.getPath());
+            return ortEnv.createSession(modelFile.getPath(), options);
+        }
+    }
+
+    private OrtSession.SessionOptions newSessionOptions(ExecutionProvider provider,
+                                                        OrtSession.SessionOptions.OptLevel level)
+            throws OrtException {
+        OrtSession.SessionOptions sessionOptions = new OrtSession.SessionOptions();
+        try {
+            sessionOptions.setOptimizationLevel(level);
+            provider.configure(sessionOptions);
+            return sessionOptions;
+        } catch (OrtException | RuntimeException e) {
+            sessionOptions.close();
+            throw e;
+        }
+    }
+
+    /**
+     * 探测结果：首次输出（用于一致性比较）与多次运行的最短耗时
+     */
+    private static class ProbeResult {
+        final float[] output;
+        final long latencyMs;
+
+        ProbeResult(float[] output, long latencyMs) {
+            this.output = output;
+            this.latencyMs = latencyMs;
+        }
+    }
+
+    private ProbeResult probe(OrtSession session) throws OrtException {
+        Map<String, OnnxTensor> inputs = new HashMap<>();
+        inputs.put(inputName, ensurePooledInputTensor());
+
+        // 第一次运行兼作预热
+        float[] output;
+        try (OrtSession.Result result = session.run(inputs)) {
+            FloatBuffer buffer = ((OnnxTensor) result.get(0)).getFloatBuffer();
+            output = new float[buffer.remaining()];
+            buffer.get(output);
+        }
+
+        long bestNs = Long.MAX_VALUE;
+        for (int i = 0; i < PROBE_RUNS; i++) {
+            long t0 = System.nanoTime();
+            session.run(inputs).close();
+            bestNs = Math.min(bestNs, System.nanoTime() - t0);
+        }
+        return new ProbeResult(output, bestNs / 1_000_000L);
+    }
+
+    /**
+     * 用确定性的非平凡图案填充输入，保证各提供程序的输出可比
+     */
+    private void fillProbeInput() throws OrtException {
+        ensurePooledInputTensor();
+        FloatBuffer input = letterboxBuffer.getInput();
+        for (int i = 0; i < input.capacity(); i++) {
+            input.put(i, ((i * 37) & 0xFF) / 255.0f);
+        }
+    }
+
+    /**
+     * 比较输出：超出容差的元素比例不超过上限视为一致
+     */
+    private static boolean isConsistent(float[] output, float[] reference) {
+        if (output.length != reference.length) return false;
+        int allowed = (int) (reference.length * PROBE_MAX_MISMATCH_RATIO);
+        int mismatches = 0;
+        for (int i = 0; i < reference.length; i++) {
+            float tolerance = PROBE_ABS_TOLERANCE + PROBE_REL_TOLERANCE * Math.abs(reference[i]);
+            // NaN也计为不一致
+            if (!(Math.abs(output[i] - reference[i]) <= tolerance) && ++mismatches > allowed) {
+                return false;
+            }
+        }
+        return true;
+    }
+
+    private ExecutionProvider loadSelectedProvider() {
+        String name = context.getSharedPreferences(PREFS_NAME, Context.MODE_PRIVATE)
+                .getString(providerPrefKey(), null);
+        if (name == null) return null;
+        try {
+            ExecutionProvider provider = ExecutionProvider.valueOf(name);
+            return providerChain.contains(provider) ? provider : null;
+        } catch (IllegalArgumentException e) {
+            return null;
+        }
+    }
+
+    private void saveSelectedProvider(ExecutionProvider provider) {
+        context.getSharedPreferences(PREFS_NAME, Context.MODE_PRIVATE)
+                .edit()
+                .putString(providerPrefKey(), provider.name())
+                .apply();
+    }
+
+    /**
+     * 探测结果随应用版本与提供程序配置失效
+     */
+    private String providerPrefKey() {
+        return "execution_provider_" + modelCache.getVersionTag() + "_" + modelAsset + "_" + providerChain;
+    }
+
+    private static void closeQuietly(OrtSession session) {
+        if (session == null) return;
+        try {
+            session.close();
+        } catch (Exception ignored) {
+        }
+    }
+
+    /**
+     * 用空白输入运行一次推理
+     *
+     * @return 预热耗时（毫秒），失败返回-1
+     */
+    private long warmUp() {
+        long startAt = SystemClock.elapsedRealtime();
+        try {
+            Map<String, OnnxTensor> inputs = new HashMap<>();
+            inputs.put(inputName, ensurePooledInputTensor());
+            ortSession.run(inputs).close();
+            return SystemClock.elapsedRealtime() - startAt;
+        } catch (Exception e) {
+            Log.w(TAG, "Warm-up inference failed", e);
+            return -1;
+        }
+    }
+
     /**
      * 从assets目录加载模型文件
      */
@@ -138,7 +650,7 @@ public class YOLOv11Detector implements ChartDetector {
     }
 
     @Override
-    public ChartResult detectSingleChart(Bitmap screenshot) {
+    public synchronized ChartResult detectSingleChart(Bitmap screenshot) {
         if (screenshot == null) {
             Log.w(TAG, "Screenshot is null");
             return null;
@@ -151,223 +663,479 @@ public class YOLOv11Detector implements ChartDetector {
         }
 
         try {
-            int originalWidth = screenshot.getWidth();
-            int originalHeight = screenshot.getHeight();
+            List<Detection> detections = detectObjects(screenshot);
 
-            // 1. 预处理图像
-            float[] inputData = YOLOv11Utils.preprocessImage(screenshot, INPUT_SIZE);
+            // 8. 转换为ChartResult
+            return ChartResultBuilder.build(screenshot, detections);
+
+        } catch (Exception e) {
+            if (cancelRequested) {
+                // 被 cancel() 终止，结果已无意义
+                Log.d(TAG, "Inference cancelled");
+                return null;
+            }
+            Log.e(TAG, "Error during inference", e);
+            // 出错时回退到Demo检测器
+            return new DemoChartDetector().detectSingleChart(screenshot);
+        }
+    }
+
+    /**
+     * 异步检测：取消或超时会终止正在进行的推理
+     * 图表区域在元素后处理（裁剪、生成节点）之前报告；级联模式下粗检完成即报告
+     */
+    @Override
+    public DetectionHandle detectAsync(Bitmap screenshot, long timeoutMs,
+                                       DetectionHandle.Callback callback) {
+        DetectionHandle handle = new DetectionHandle(callback);
+        // 只终止属于该句柄的推理，不影响之后排队的检测
+        handle.setCanceller(() -> {
+            if (activeHandle == handle) cancel();
+        });
+        AsyncDetection.submit(handle, timeoutMs, screenshot, () -> runAsync(handle, screenshot));
+        return handle;
+    }
+
+    private synchronized void runAsync(DetectionHandle handle, Bitmap screenshot) {
+        if (handle.isDone()) return;
+        if (screenshot == null) {
+            handle.complete(null);
+            return;
+        }
+        if (!isInitialized && !initialize()) {
+            Log.e(TAG, "Model not initialized, falling back to demo detector");
+            handle.complete(new DemoChartDetector().detectSingleChart(screenshot));
+            return;
+        }
+
+        try {
+            // 先清除上次的终止标志再公开句柄：之后到达的取消或超时不会被清掉
+            resetCancel();
+            activeHandle = handle;
+            // 公开前已取消或超时的句柄，取消回调找不到它，这里直接结束
+            if (handle.isDone()) return;
+            List<Detection> detections = runDetection(screenshot);
+            handle.publishChartRect(ChartResultBuilder.chartRect(detections,
+                    screenshot.getWidth(), screenshot.getHeight()));
+            if (handle.isDone()) return;
+            // 构建结果期间句柄仍可能被取消或超时，此时complete会归还结果的位图
+            handle.complete(ChartResultBuilder.build(screenshot, detections));
+        } catch (Exception e) {
+            if (cancelRequested) {
+                // 句柄已被取消或超时；若是外部直接调用 cancel()，按取消结束
+                Log.d(TAG, "Inference cancelled");
+                handle.cancel();
+                return;
+            }
+            Log.e(TAG, "Error during inference", e);
+            handle.complete(new DemoChartDetector().detectSingleChart(screenshot));
+        } finally {
+            activeHandle = null;
+        }
+    }
+
+    /**
+     * 运行检测并返回NMS后的原始检测结果（原图坐标）
+     * 调用前需已成功 {@link #initialize()}
+     */
+    public synchronized List<Detection> detectObjects(Bitmap screenshot) throws OrtException {
+        if (!isInitialized) {
+            throw new IllegalStateException("Model not initialized");
+        }
+        resetCancel();
+        return runDetection(screenshot);
+    }
+
+    private void resetCancel() throws OrtException {
+        cancelRequested = false;
+        runOptions.setTerminate(false);
+    }
+
+    private List<Detection> runDetection(Bitmap screenshot) throws OrtException {
+        long startNs = System.nanoTime();
+        List<Detection> detections;
+        int inputSize;
+        if (cascadeMode) {
+            inputSize = sessionForSize(COARSE_INPUT_SIZE).inputSize;
+            detections = detectCascade(screenshot);
+        } else if (resolutionController != null) {
+            inputSize = resolutionController.choose();
+            detections = runSized(sizedSessions.get(inputSize), screenshot, null);
+        } else {
+            inputSize = INPUT_SIZE;
+            detections = detectFixedSize(screenshot);
+        }
+        long inferenceMs = (System.nanoTime() - startNs) / 1_000_000L;
 
-            // 2. 创建输入张量
+        if (resolutionController != null && !cascadeMode) {
+            resolutionController.onFrame(inputSize, inferenceMs, findChartBox(detections),
+                    screenshot.getWidth(), screenshot.getHeight());
+        }
+        lastFrameStats = new FrameStats(inputSize, inferenceMs, detections.size());
+        return detections;
+    }
+
+    /**
+     * 固定640输入的单次检测
+     */
+    private List<Detection> detectFixedSize(Bitmap screenshot) throws OrtException {
+        int originalWidth = screenshot.getWidth();
+        int originalHeight = screenshot.getHeight();
+
+        // 1-2. 预处理图像并创建输入张量
+        OnnxTensor inputTensor;
+        boolean ownsInputTensor;
+        if (usePooledPreprocessing) {
+            // 直接写入复用的直接内存，张量在帧间复用
+            inputTensor = obtainPooledInputTensor(screenshot);
+            ownsInputTensor = false;
+        } else {
+            float[] inputData = YOLOv11Utils.preprocessImage(screenshot, INPUT_SIZE);
             long[] inputShape = {1, 3, INPUT_SIZE, INPUT_SIZE};
-            OnnxTensor inputTensor = OnnxTensor.createTensor(ortEnv,
+            inputTensor = OnnxTensor.createTensor(ortEnv,
                     FloatBuffer.wrap(inputData), inputShape);
+            ownsInputTensor = true;
+        }
 
+        try {
             // 3. 运行推理
             Map<String, OnnxTensor> inputs = new HashMap<>();
-            String inputName = ortSession.getInputNames().iterator().next();
             inputs.put(inputName, inputTensor);
 
-            OrtSession.Result results = ortSession.run(inputs);
-
-            // 4. 获取输出 - 直接使用rawOutput避免错误的类型转换
-            Object rawOutput = results.get(0).getValue();
-            float[] flatOutput = flattenOutput(rawOutput);
-
-            // 5. 如果需要，转置输出
-            // YOLOv11输出格式: [1, numClasses+4, numBoxes] -> 需要转置为 [numBoxes, numClasses+4]
-            int numBoxes = flatOutput.length / (numClasses + 4);
-            if (needsTranspose && numBoxes > 0) {
-                flatOutput = YOLOv11Utils.transposeOutput(flatOutput, numClasses + 4, numBoxes);
+            try (OrtSession.Result results = ortSession.run(inputs, runOptions)) {
+                // 4-6. 直接按原生布局解码输出，无展平/转置拷贝
+                return outputDecoder.decode(
+                        (OnnxTensor) results.get(0),
+                        INPUT_SIZE,
+                        originalWidth,
+                        originalHeight,
+                        CONF_THRESHOLD,
+                        IOU_THRESHOLD,
+                        CLASS_NAMES
+                );
             }
-
-            // 6. 后处理
-            List<Detection> detections = YOLOv11Utils.postprocess(
-                    flatOutput,
-                    numClasses,
-                    INPUT_SIZE,
-                    originalWidth,
-                    originalHeight,
-                    CONF_THRESHOLD,
-                    IOU_THRESHOLD,
-                    CLASS_NAMES
-            );
-
+        } finally {
             // 7. 释放资源
-            inputTensor.close();
-            results.close();
+            if (ownsInputTensor) {
+                inputTensor.close();
+            }
+        }
+    }
 
-            // 8. 转换为ChartResult
-            return convertToChartResult(screenshot, detections, originalWidth, originalHeight);
+    private ResolutionController newResolutionController() {
+        int[] sizes = new int[sizedSessions.size()];
+        int i = 0;
+        for (int size : sizedSessions.keySet()) {
+            sizes[i++] = size;
+        }
+        return new ResolutionController(context, sizes, latencyBudgetMs);
+    }
 
-        } catch (Exception e) {
-            Log.e(TAG, "Error during inference", e);
-            // 出错时回退到Demo检测器
-            return new DemoChartDetector().detectSingleChart(screenshot);
+    private static RectF findChartBox(List<Detection> detections) {
+        for (Detection det : detections) {
+            if (det.classId == 0) return det.boundingBox;
         }
+        return null;
     }
 
     /**
-     * 将输出展平为一维数组
+     * 级联检测
+     * 1. 用最小的输入尺寸在全屏上找图表区域（元素框在此分辨率下不可靠，丢弃）
+     * 2. 每个图表区域外扩后直接letterbox到合适的输入尺寸，只在该区域上检测元素
+     * 未找到图表时返回粗检结果
      */
-    private float[] flattenOutput(Object output) {
-        if (output instanceof float[]) {
-            return (float[]) output;
-        } else if (output instanceof float[][]) {
-            float[][] arr = (float[][]) output;
-            int total = 0;
-            for (float[] row : arr) total += row.length;
-            float[] result = new float[total];
-            int idx = 0;
-            for (float[] row : arr) {
-                System.arraycopy(row, 0, result, idx, row.length);
-                idx += row.length;
+    private List<Detection> detectCascade(Bitmap screenshot) throws OrtException {
+        SizedSession coarse = sessionForSize(COARSE_INPUT_SIZE);
+        List<Detection> coarseDetections = runSized(coarse, screenshot, null);
+
+        List<Detection> result = new ArrayList<>();
+        for (Detection det : coarseDetections) {
+            if (det.classId == 0 && result.size() < MAX_CASCADE_CHARTS) {
+                result.add(det);
             }
-            return result;
-        } else if (output instanceof float[][][]) {
-            float[][][] arr = (float[][][]) output;
-            List<Float> list = new ArrayList<>();
-            for (float[][] plane : arr) {
-                for (float[] row : plane) {
-                    for (float val : row) {
-                        list.add(val);
-                    }
-                }
+        }
+        if (result.isEmpty()) {
+            return coarseDetections;
+        }
+
+        // 粗检已确定图表区域，异步调用方可以先行处理（精检只补充元素）
+        DetectionHandle handle = activeHandle;
+        if (handle != null) {
+            handle.publishChartRect(ChartResultBuilder.chartRect(result,
+                    screenshot.getWidth(), screenshot.getHeight()));
+        }
+
+        List<Rect> regions = new ArrayList<>();
+        for (Detection chart : result) {
+            RectF box = chart.boundingBox;
+            float marginX = box.width() * CASCADE_CROP_MARGIN;
+            float marginY = box.height() * CASCADE_CROP_MARGIN;
+            Rect region = new Rect(
+                    Math.max(0, (int) (box.left - marginX)),
+                    Math.max(0, (int) (box.top - marginY)),
+                    Math.min(screenshot.getWidth(), (int) Math.ceil(box.right + marginX)),
+                    Math.min(screenshot.getHeight(), (int) Math.ceil(box.bottom + marginY)));
+            if (region.width() > 1 && region.height() > 1) {
+                regions.add(region);
             }
-            float[] result = new float[list.size()];
-            for (int i = 0; i < list.size(); i++) {
-                result[i] = list.get(i);
+        }
+
+        // 2. 精检：多个图表且有批量模型时一次推理，否则逐个区域选尺寸推理
+        //    区域内的整体图表框由粗检给出，精检只取元素
+        List<List<Detection>> perRegion;
+        if (regions.size() > 1 && ensureBatchSession()) {
+            perRegion = detectBatch(screenshot, regions);
+        } else {
+            perRegion = new ArrayList<>(regions.size());
+            for (Rect region : regions) {
+                List<Detection> dets = runSized(sessionForRegion(region), screenshot, region);
+                offset(dets, region);
+                perRegion.add(dets);
             }
-            return result;
         }
-        // 默认返回空数组
-        return new float[0];
+        for (List<Detection> dets : perRegion) {
+            for (Detection det : dets) {
+                if (det.classId != 0) result.add(det);
+            }
+        }
+        return result;
     }
 
     /**
-     * 将检测结果转换为ChartResult
+     * 批量检测同一张图上的多个区域（例如多个图表，或长页面的分块）
+     * 所有区域打包为一个 [N, 3, 640, 640] 输入只推理一次，结果按区域拆分并映射回原图坐标
+     *
+     * @param source 原图
+     * @param regions 原图中的区域
+     * @return 与regions一一对应的检测结果
      */
-    private ChartResult convertToChartResult(Bitmap screenshot, List<Detection> detections,
-                                             int width, int height) {
-        if (detections.isEmpty()) {
-            Log.d(TAG, "No detections found");
-            return null;
+    public synchronized List<List<Detection>> detectBatch(Bitmap source, List<Rect> regions)
+            throws OrtException {
+        List<Bitmap> images = new ArrayList<>(regions.size());
+        for (int i = 0; i < regions.size(); i++) {
+            images.add(source);
         }
+        return detectBatch(images, regions);
+    }
 
-        // 找到主图表区域（classId == 0）
-        Detection chartDetection = null;
-        for (Detection det : detections) {
-            if (det.classId == 0) { // "chart" 类别
-                chartDetection = det;
-                break;
+    /**
+     * 批量检测多张图片，结果为各自图片内的坐标
+     *
+     * @param crops 待检测的图片（需为软件位图）
+     * @return 与crops一一对应的检测结果
+     */
+    public synchronized List<List<Detection>> detectBatch(List<Bitmap> crops) throws OrtException {
+        return detectBatch(crops, null);
+    }
+
+    /**
+     * @param regions 每张图中的检测区域，为null时检测整张图
+     */
+    private List<List<Detection>> detectBatch(List<Bitmap> images, List<Rect> regions)
+            throws OrtException {
+        if (!isInitialized) {
+            throw new IllegalStateException("Model not initialized");
+        }
+        List<List<Detection>> results = new ArrayList<>(images.size());
+        SizedSession main = sizedSessions.get(INPUT_SIZE);
+        if (!ensureBatchSession()) {
+            // 没有动态批维度的模型：逐张推理
+            for (int i = 0; i < images.size(); i++) {
+                Rect region = regions != null ? regions.get(i) : null;
+                List<Detection> dets = runSized(main, images.get(i), region);
+                offset(dets, region);
+                results.add(dets);
             }
+            return results;
         }
 
-        // 如果没有检测到图表区域，使用所有检测的边界框
-        Rect chartRect;
-        if (chartDetection != null) {
-            chartRect = rectFToRect(chartDetection.boundingBox);
-        } else {
-            // 计算所有检测的包围盒
-            float minX = width, minY = height, maxX = 0, maxY = 0;
-            for (Detection det : detections) {
-                minX = Math.min(minX, det.boundingBox.left);
-                minY = Math.min(minY, det.boundingBox.top);
-                maxX = Math.max(maxX, det.boundingBox.right);
-                maxY = Math.max(maxY, det.boundingBox.bottom);
+        int plane = 3 * INPUT_SIZE * INPUT_SIZE;
+        for (int start = 0; start < images.size(); start += MAX_BATCH_SIZE) {
+            int n = Math.min(MAX_BATCH_SIZE, images.size() - start);
+
+            // 1. 每张图直接letterbox进批量缓冲区的对应切片
+            for (int i = 0; i < n; i++) {
+                Rect region = regions != null ? regions.get(start + i) : null;
+                batchInput.clear();
+                batchInput.position(i * plane);
+                batchInput.limit((i + 1) * plane);
+                main.letterbox.fill(images.get(start + i), region, batchInput.slice());
             }
-            chartRect = new Rect((int) minX, (int) minY, (int) maxX, (int) maxY);
-        }
+            batchInput.clear();
+            batchInput.limit(n * plane);
 
-        // 裁剪图表区域
-        Bitmap chartBitmap = cropBitmap(screenshot, chartRect);
+            // 2. 一次推理，按批内序号拆分解码
+            long[] shape = {n, 3, INPUT_SIZE, INPUT_SIZE};
+            try (OnnxTensor tensor = OnnxTensor.createTensor(ortEnv, batchInput, shape);
+                 OrtSession.Result output = batchSession.run(
+                         Collections.singletonMap(batchInputName, tensor), runOptions)) {
+                OnnxTensor outTensor = (OnnxTensor) output.get(0);
+                FloatBuffer data = outTensor.getFloatBuffer();
+                long[] outShape = outTensor.getInfo().getShape();
+                for (int i = 0; i < n; i++) {
+                    Bitmap image = images.get(start + i);
+                    Rect region = regions != null ? regions.get(start + i) : null;
+                    int width = region != null ? region.width() : image.getWidth();
+                    int height = region != null ? region.height() : image.getHeight();
+                    List<Detection> dets = outputDecoder.decode(data, outShape, i,
+                            INPUT_SIZE, width, height, CONF_THRESHOLD, IOU_THRESHOLD, CLASS_NAMES);
+                    offset(dets, region);
+                    results.add(dets);
+                }
+            }
+        }
+        return results;
+    }
 
-        // 转换检测结果为NodeSpec列表
-        List<NodeSpec> nodes = new ArrayList<>();
-        int nodeId = 100;
+    /**
+     * 懒加载批量模型（yolov11n_chart_batch.onnx，批维度动态），缺失时只检查一次
+     */
+    private boolean ensureBatchSession() {
+        if (batchSession != null) return true;
+        if (batchModelMissing) return false;
+        String asset = suffixedAsset(activePrecision.assetName, "batch");
+        if (!assetExists(asset)) {
+            Log.i(TAG, "No batch model bundled (" + asset + "), batches run sequentially");
+            batchModelMissing = true;
+            return false;
+        }
+        try {
+            batchSession = openSession(activeProvider, asset, modelCache.getModelFile(asset), null);
+            batchInputName = batchSession.getInputNames().iterator().next();
+            batchInput = ByteBuffer.allocateDirect(MAX_BATCH_SIZE * 3 * INPUT_SIZE * INPUT_SIZE * 4)
+                    .order(ByteOrder.nativeOrder())
+                    .asFloatBuffer();
+            return true;
+        } catch (Exception e) {
+            Log.w(TAG, "Failed to load batch model", e);
+            batchModelMissing = true;
+            closeQuietly(batchSession);
+            batchSession = null;
+            return false;
+        }
+    }
 
+    /**
+     * 区域内坐标平移回原图坐标
+     */
+    private static void offset(List<Detection> detections, Rect region) {
+        if (region == null) return;
         for (Detection det : detections) {
-            // 跳过整体图表框
-            if (det.classId == 0) continue;
+            det.boundingBox.offset(region.left, region.top);
+        }
+    }
 
-            Rect hitRect = rectFToRect(det.boundingBox);
-            String label = generateLabel(det);
+    /**
+     * 在指定尺寸的会话上检测原图或其中一个区域，结果为该区域内的坐标
+     */
+    private List<Detection> runSized(SizedSession sized, Bitmap screenshot, Rect region)
+            throws OrtException {
+        sized.letterbox.fill(screenshot, region);
+        int width = region != null ? region.width() : screenshot.getWidth();
+        int height = region != null ? region.height() : screenshot.getHeight();
 
-            nodes.add(new NodeSpec(nodeId++, hitRect, label));
+        Map<String, OnnxTensor> inputs = new HashMap<>();
+        inputs.put(sized.inputName, sized.inputTensor);
+        try (OrtSession.Result results = sized.session.run(inputs, runOptions)) {
+            return outputDecoder.decode(
+                    (OnnxTensor) results.get(0),
+                    sized.inputSize,
+                    width,
+                    height,
+                    CONF_THRESHOLD,
+                    IOU_THRESHOLD,
+                    CLASS_NAMES
+            );
         }
-
-        return new ChartResult(chartBitmap, chartRect, nodes);
     }
 
     /**
-     * 生成无障碍朗读标签
+     * 已加载的不小于目标尺寸的最小会话；都更小时取最大的
      */
-    private String generateLabel(Detection det) {
-        switch (det.classId) {
-            case 1: // bar
-                return String.format(Locale.getDefault(),
-                        "柱状图柱子，置信度%.0f%%", det.confidence * 100);
-            case 2: // line_point
-                return String.format(Locale.getDefault(),
-                        "折线图数据点，置信度%.0f%%", det.confidence * 100);
-            case 3: // pie_slice
-                return String.format(Locale.getDefault(),
-                        "饼图扇区，置信度%.0f%%", det.confidence * 100);
-            case 4: // axis_label
-                return String.format(Locale.getDefault(),
-                        "坐标轴标签，置信度%.0f%%", det.confidence * 100);
-            case 5: // legend
-                return String.format(Locale.getDefault(),
-                        "图例，置信度%.0f%%", det.confidence * 100);
-            case 6: // title
-                return String.format(Locale.getDefault(),
-                        "图表标题，置信度%.0f%%", det.confidence * 100);
-            case 7: // data_label
-                return String.format(Locale.getDefault(),
-                        "数据标签，置信度%.0f%%", det.confidence * 100);
-            default:
-                return String.format(Locale.getDefault(),
-                        "%s，置信度%.0f%%", det.className, det.confidence * 100);
-        }
+    private SizedSession sessionForSize(int size) {
+        Map.Entry<Integer, SizedSession> entry = sizedSessions.ceilingEntry(size);
+        return entry != null ? entry.getValue() : sizedSessions.lastEntry().getValue();
     }
 
     /**
-     * RectF转Rect
+     * 精检尺寸：区域长边小于模型尺寸时不必放大到640，选能容纳长边的最小尺寸
      */
-    private Rect rectFToRect(RectF rectF) {
-        return new Rect(
-                (int) rectF.left,
-                (int) rectF.top,
-                (int) rectF.right,
-                (int) rectF.bottom
-        );
+    private SizedSession sessionForRegion(Rect region) {
+        return sessionForSize(Math.max(region.width(), region.height()));
     }
 
     /**
-     * 裁剪Bitmap
+     * 将截图预处理进复用缓冲区，并返回基于该缓冲区的输入张量
+     * 直接内存+原生字节序的FloatBuffer会被ONNX Runtime直接引用，不再额外拷贝
      */
-    private Bitmap cropBitmap(Bitmap source, Rect rect) {
-        // 确保裁剪区域在图像范围内
-        int x = Math.max(0, rect.left);
-        int y = Math.max(0, rect.top);
-        int width = Math.min(rect.width(), source.getWidth() - x);
-        int height = Math.min(rect.height(), source.getHeight() - y);
+    private OnnxTensor obtainPooledInputTensor(Bitmap screenshot) throws OrtException {
+        OnnxTensor tensor = ensurePooledInputTensor();
+        letterboxBuffer.fill(screenshot);
+        return tensor;
+    }
 
-        if (width <= 0 || height <= 0) {
-            return source;
+    private OnnxTensor ensurePooledInputTensor() throws OrtException {
+        if (letterboxBuffer == null) {
+            letterboxBuffer = new LetterboxBuffer(INPUT_SIZE);
         }
+        if (pooledInputTensor == null) {
+            long[] inputShape = {1, 3, INPUT_SIZE, INPUT_SIZE};
+            pooledInputTensor = OnnxTensor.createTensor(ortEnv,
+                    letterboxBuffer.getInput(), inputShape);
+        }
+        return pooledInputTensor;
+    }
 
-        return Bitmap.createBitmap(source, x, y, width, height);
+    /**
+     * 终止正在进行的推理（可在任意线程调用，不等待检测锁）
+     * 被终止的 {@link #detectSingleChart(Bitmap)} 返回null，{@link #detectObjects(Bitmap)} 抛出OrtException；
+     * 之后的检测不受影响
+     */
+    public void cancel() {
+        cancelRequested = true;
+        OrtSession.RunOptions options = runOptions;
+        if (options != null) {
+            try {
+                options.setTerminate(true);
+            } catch (OrtException e) {
+                Log.w(TAG, "Failed to set terminate flag", e);
+            }
+        }
     }
 
     /**
      * 释放资源
      */
-    public void release() {
+    public synchronized void release() {
         try {
+            // 主尺寸的会话与缓冲区由下面的字段负责关闭
+            for (SizedSession sized : sizedSessions.values()) {
+                if (sized.inputSize != INPUT_SIZE) sized.close();
+            }
+            sizedSessions.clear();
+            resolutionController = null;
+            if (batchSession != null) {
+                batchSession.close();
+                batchSession = null;
+                batchInput = null;
+            }
+            batchModelMissing = false;
+            if (pooledInputTensor != null) {
+                pooledInputTensor.close();
+                pooledInputTensor = null;
+            }
+            if (letterboxBuffer != null) {
+                letterboxBuffer.release();
+                letterboxBuffer = null;
+            }
             if (ortSession != null) {
                 ortSession.close();
                 ortSession = null;
             }
+            if (runOptions != null) {
+                runOptions.close();
+                runOptions = null;
+            }
             if (ortEnv != null) {
                 ortEnv.close();
                 ortEnv = null;
@@ -388,9 +1156,109 @@ public class YOLOv11Detector implements ChartDetector {
 
     /**
      * 设置是否需要转置输出
+     * 解码器会根据输出形状自动判断布局，此设置仅在形状无法判断时生效
+     */
+    public synchronized void setNeedsTranspose(boolean needsTranspose) {
+        outputDecoder.setChannelMajorFallback(needsTranspose);
+    }
+
+    /**
+     * 设置是否使用复用缓冲区的零拷贝预处理（默认开启）
      */
-    public void setNeedsTranspose(boolean needsTranspose) {
-        this.needsTranspose = needsTranspose;
+    public synchronized void setPooledPreprocessing(boolean enabled) {
+        this.usePooledPreprocessing = enabled;
+    }
+
+    /**
+     * 设置是否使用级联检测：先以低分辨率全屏找图表，再只在图表区域上检测元素
+     * 需要额外的 yolov11n_chart_320.onnx / _480.onnx，缺失时以已有尺寸替代
+     */
+    public synchronized void setCascadeMode(boolean enabled) {
+        this.cascadeMode = enabled;
+        if (enabled && isInitialized) {
+            loadSizedSessions();
+        }
+    }
+
+    /**
+     * 设置是否按延迟预算自适应选择输入尺寸（320/480/640中已打包的尺寸）
+     * 级联模式开启时不生效
+     *
+     * @param budgetMs 单帧推理的延迟预算
+     */
+    public synchronized void setAdaptiveResolution(boolean enabled, long budgetMs) {
+        this.adaptiveResolution = enabled;
+        this.latencyBudgetMs = budgetMs;
+        if (!enabled) {
+            resolutionController = null;
+        } else if (isInitialized) {
+            loadSizedSessions();
+            resolutionController = newResolutionController();
+        }
+    }
+
+    /**
+     * 获取最近一帧的检测统计（包括本帧选用的输入尺寸），尚未检测时返回null
+     */
+    public synchronized FrameStats getLastFrameStats() {
+        return lastFrameStats;
+    }
+
+    /**
+     * 设置模型精度变体，在下次 {@link #initialize()} 时生效
+     */
+    public synchronized void setPrecision(ModelPrecision precision) {
+        setPrecision(precision, false);
+    }
+
+    /**
+     * 设置模型精度变体，并可要求先通过精度门槛校验
+     * 校验时非FP32变体在内置图片集上相对FP32的召回率低于门槛会被拒绝并回退FP32（结果按应用版本缓存）
+     */
+    public synchronized void setPrecision(ModelPrecision precision, boolean validate) {
+        this.requestedPrecision = precision;
+        this.validatePrecision = validate;
+    }
+
+    /**
+     * 获取实际使用的精度变体
+     */
+    public synchronized ModelPrecision getActivePrecision() {
+        return activePrecision;
+    }
+
+    /**
+     * 设置执行提供程序的探测顺序，在下次 {@link #initialize()} 时生效
+     * CPU不在列表中时仍会作为兜底
+     */
+    public synchronized void setExecutionProviders(List<ExecutionProvider> providers) {
+        this.providerChain = new ArrayList<>(providers);
+    }
+
+    /**
+     * 获取当前使用的执行提供程序
+     */
+    public synchronized ExecutionProvider getActiveProvider() {
+        return activeProvider;
+    }
+
+    /**
+     * 获取最近一次初始化的耗时统计，未初始化时返回null
+     */
+    public synchronized InitStats getInitStats() {
+        return initStats;
+    }
+
+    /**
+     * 主尺寸（640）会话，供 {@link DetectionPipeline} 共享；未初始化时为null
+     * OrtSession.run 可并发调用，流水线关闭前不能 {@link #release()}
+     */
+    synchronized OrtSession getMainSession() {
+        return isInitialized ? ortSession : null;
+    }
+
+    synchronized String getMainInputName() {
+        return inputName;
     }
 
     /**
@@ -0,0 +1,313 @@
+package com.eagle.android.detector;
+
+import android.content.Context;
+import android.graphics.Bitmap;
+import android.graphics.RectF;
+import android.os.Looper;
+import android.util.Log;
+
+import com.eagle.android.model.ChartResult;
+
+import java.io.File;
+import java.nio.FloatBuffer;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+
+import ai.onnxruntime.OnnxJavaType;
+import ai.onnxruntime.OnnxTensor;
+import ai.onnxruntime.OrtEnvironment;
+import ai.onnxruntime.OrtException;
+import ai.onnxruntime.OrtSession;
+
+/**
+ * 基于端到端YOLOv11模型的图表检测器
+ *
+ * 模型由 scripts/export_yolov11_onnx.py 的 --end2end 参数导出：
+ * - 输入：uint8 NHWC [1, S, S, 4]，即letterbox位图的RGBA原始字节，归一化与通道重排在图内完成
+ * - 输出：float [K, 6]，每行 x1, y1, x2, y2, score, classId（模型输入坐标），已在图内完成NMS与Top-K
+ * Java侧只负责letterbox绘制与坐标映射，逐像素、逐锚点的计算都交给原生内核；输入张量是FP32的四分之一。
+ */
+public class YOLOv11EndToEndDetector implements ChartDetector {
+
+    private static final String TAG = "YOLOv11E2EDetector";
+
+    public static final String MODEL_FILE = "yolov11n_chart_e2e.onnx";
+    private static final int INPUT_SIZE = 640;            // 与导出时的 --imgsz 一致
+    private static final float CONF_THRESHOLD = 0.25f;    // 图内已按导出阈值过滤，这里兜底
+    private static final int BOX_STRIDE = 6;
+
+    private final Context context;
+    private final ModelCache modelCache;
+    private OrtEnvironment ortEnv;
+    private OrtSession ortSession;
+    private String inputName;
+    private boolean isInitialized = false;
+
+    // 复用的letterbox与uint8输入张量（零拷贝）
+    private LetterboxBuffer letterboxBuffer;
+    private OnnxTensor inputTensor;
+
+    private ExecutionProvider provider = ExecutionProvider.CPU;
+
+    // 推理取消：RunOptions的终止标志可从其他线程设置
+    private volatile OrtSession.RunOptions runOptions;
+    private volatile boolean cancelRequested = false;
+    private volatile DetectionHandle activeHandle;
+
+    public YOLOv11EndToEndDetector(Context context) {
+        this.context = context.getApplicationContext();
+        this.modelCache = new ModelCache(this.context);
+    }
+
+    /**
+     * 初始化ONNX Runtime会话，应在后台线程调用
+     */
+    public synchronized boolean initialize() {
+        if (isInitialized) {
+            return true;
+        }
+        if (Looper.myLooper() == Looper.getMainLooper()) {
+            Log.w(TAG, "initialize() called on main thread, model loading will block UI");
+        }
+
+        try {
+            File modelFile = modelCache.getModelFile(MODEL_FILE);
+            ortEnv = OrtEnvironment.getEnvironment();
+            runOptions = new OrtSession.RunOptions();
+            ortSession = openSession(provider, modelFile);
+            inputName = ortSession.getInputNames().iterator().next();
+
+            letterboxBuffer = new LetterboxBuffer(INPUT_SIZE);
+            long[] inputShape = {1, INPUT_SIZE, INPUT_SIZE, 4};
+            inputTensor = OnnxTensor.createTensor(ortEnv,
+                    letterboxBuffer.getPixelInput(), inputShape, OnnxJavaType.UINT8);
+
+            isInitialized = true;
+            Log.i(TAG, "End-to-end model loaded on " + provider);
+            return true;
+
+        } catch (Exception e) {
+            Log.e(TAG, "Failed to initialize end-to-end model", e);
+            release();
+            return false;
+        }
+    }
+
+    /**
+     * 创建会话，提供程序不可用时回退CPU
+     * 优先加载已缓存的优化计算图（跳过图优化）；否则按路径打开模型并保存优化结果
+     * NMS等后处理节点由ONNX Runtime自动分配到CPU
+     */
+    private OrtSession openSession(ExecutionProvider provider, File modelFile) throws OrtException {
+        File optimizedFile = modelCache.getOptimizedModelFile(MODEL_FILE, provider.cacheKey);
+        try {
+            if (optimizedFile.isFile()) {
+                try (OrtSession.SessionOptions options = new OrtSession.SessionOptions()) {
+                    options.setOptimizationLevel(OrtSession.SessionOptions.OptLevel.NO_OPT);
+                    provider.configure(options);
+                    try {
+                        return ortEnv.createSession(optimizedFile.getPath(), options);
+                    } catch (OrtException e) {
+                        // 缓存损坏（例如写入时进程被杀），删除后重新生成
+                        Log.w(TAG, "Optimized model cache invalid, rebuilding", e);
+                        modelCache.invalidate(optimizedFile);
+                    }
+                }
+            }
+            try (OrtSession.SessionOptions options = new OrtSession.SessionOptions()) {
+                options.setOptimizationLevel(provider.optLevel);
+                options.setOptimizedModelFilePath(optimizedFile.getPath());
+                provider.configure(options);
+                return ortEnv.createSession(modelFile.getPath(), options);
+            }
+        } catch (OrtException | RuntimeException e) {
+            if (provider == ExecutionProvider.CPU) throw e;
+            Log.w(TAG, "Provider " + provider + " unavailable, using CPU: " + e);
+            this.provider = ExecutionProvider.CPU;
+            return openSession(ExecutionProvider.CPU, modelFile);
+        }
+    }
+
+    @Override
+    public synchronized ChartResult detectSingleChart(Bitmap screenshot) {
+        if (screenshot == null) {
+            Log.w(TAG, "Screenshot is null");
+            return null;
+        }
+        if (!isInitialized && !initialize()) {
+            Log.e(TAG, "Model not initialized, falling back to demo detector");
+            return new DemoChartDetector().detectSingleChart(screenshot);
+        }
+
+        try {
+            List<Detection> detections = detectObjects(screenshot);
+            return ChartResultBuilder.build(screenshot, detections);
+        } catch (Exception e) {
+            if (cancelRequested) {
+                Log.d(TAG, "Inference cancelled");
+                return null;
+            }
+            Log.e(TAG, "Error during inference", e);
+            return new DemoChartDetector().detectSingleChart(screenshot);
+        }
+    }
+
+    /**
+     * 异步检测：取消或超时会终止正在进行的推理，图表区域在生成节点前报告
+     */
+    @Override
+    public DetectionHandle detectAsync(Bitmap screenshot, long timeoutMs,
+                                       DetectionHandle.Callback callback) {
+        DetectionHandle handle = new DetectionHandle(callback);
+        handle.setCanceller(() -> {
+            if (activeHandle == handle) cancel();
+        });
+        AsyncDetection.submit(handle, timeoutMs, screenshot, () -> runAsync(handle, screenshot));
+        return handle;
+    }
+
+    private synchronized void runAsync(DetectionHandle handle, Bitmap screenshot) {
+        if (handle.isDone()) return;
+        if (screenshot == null || (!isInitialized && !initialize())) {
+            handle.complete(detectSingleChart(screenshot));
+            return;
+        }
+
+        try {
+            // 与YOLOv11Detector相同：清标志在公开句柄之前
+            resetCancel();
+            activeHandle = handle;
+            if (handle.isDone()) return;
+            List<Detection> detections = runDetection(screenshot);
+            handle.publishChartRect(ChartResultBuilder.chartRect(detections,
+                    screenshot.getWidth(), screenshot.getHeight()));
+            if (handle.isDone()) return;
+            handle.complete(ChartResultBuilder.build(screenshot, detections));
+        } catch (Exception e) {
+            if (cancelRequested) {
+                Log.d(TAG, "Inference cancelled");
+                handle.cancel();
+                return;
+            }
+            Log.e(TAG, "Error during inference", e);
+            handle.complete(new DemoChartDetector().detectSingleChart(screenshot));
+        } finally {
+            activeHandle = null;
+        }
+    }
+
+    /**
+     * 运行检测并返回最终检测结果（原图坐标，按得分降序）
+     */
+    public synchronized List<Detection> detectObjects(Bitmap screenshot) throws OrtException {
+        if (!isInitialized) {
+            throw new IllegalStateException("Model not initialized");
+        }
+        resetCancel();
+        return runDetection(screenshot);
+    }
+
+    private void resetCancel() throws OrtException {
+        cancelRequested = false;
+        runOptions.setTerminate(false);
+    }
+
+    private List<Detection> runDetection(Bitmap screenshot) throws OrtException {
+        int width = screenshot.getWidth();
+        int height = screenshot.getHeight();
+
+        // 1. letterbox后直接拷贝RGBA字节，张量引用同一块直接内存
+        letterboxBuffer.fillPixels(screenshot);
+        float scale = letterboxBuffer.getScale();
+        int padX = letterboxBuffer.getPadX();
+        int padY = letterboxBuffer.getPadY();
+
+        // 2. 推理并读取 [K, 6] 的最终框
+        try (OrtSession.Result results = ortSession.run(
+                Collections.singletonMap(inputName, inputTensor), runOptions)) {
+            OnnxTensor output = (OnnxTensor) results.get(0);
+            FloatBuffer data = output.getFloatBuffer();
+            int count = data.remaining() / BOX_STRIDE;
+
+            List<Detection> detections = new ArrayList<>(count);
+            String[] classNames = YOLOv11Detector.CLASS_NAMES;
+            for (int k = 0; k < count; k++) {
+                int base = k * BOX_STRIDE;
+                float score = data.get(base + 4);
+                if (score < CONF_THRESHOLD) continue;
+                int classId = (int) data.get(base + 5);
+                String className = classId >= 0 && classId < classNames.length
+                        ? classNames[classId]
+                        : "class_" + classId;
+
+                // 3. 模型输入坐标映射回原图
+                RectF box = new RectF(
+                        clamp((data.get(base) - padX) / scale, width),
+                        clamp((data.get(base + 1) - padY) / scale, height),
+                        clamp((data.get(base + 2) - padX) / scale, width),
+                        clamp((data.get(base + 3) - padY) / scale, height));
+                detections.add(new Detection(classId, className, score, box));
+            }
+            Collections.sort(detections, (a, b) -> Float.compare(b.confidence, a.confidence));
+            return detections;
+        }
+    }
+
+    private static float clamp(float v, int max) {
+        return Math.max(0, Math.min(v, max));
+    }
+
+    /**
+     * 设置执行提供程序，在下次 {@link #initialize()} 时生效（不可用时回退CPU）
+     */
+    public synchronized void setExecutionProvider(ExecutionProvider provider) {
+        this.provider = provider;
+    }
+
+    /**
+     * 终止正在进行的推理（可在任意线程调用），被终止的检测返回null
+     */
+    public void cancel() {
+        cancelRequested = true;
+        OrtSession.RunOptions options = runOptions;
+        if (options != null) {
+            try {
+                options.setTerminate(true);
+            } catch (OrtException e) {
+                Log.w(TAG, "Failed to set terminate flag", e);
+            }
+        }
+    }
+
+    /**
+     * 释放资源
+     */
+    public synchronized void release() {
+        try {
+            if (inputTensor != null) {
+                inputTensor.close();
+                inputTensor = null;
+            }
+            if (letterboxBuffer != null) {
+                letterboxBuffer.release();
+                letterboxBuffer = null;
+            }
+            if (ortSession != null) {
+                ortSession.close();
+                ortSession = null;
+            }
+            if (runOptions != null) {
+                runOptions.close();
+                runOptions = null;
+            }
+            isInitialized = false;
+        } catch (Exception e) {
+            Log.e(TAG, "Error releasing resources", e);
+        }
+    }
+
+    public boolean isModelLoaded() {
+        return isInitialized;
+    }
+}
@@ -0,0 +1,203 @@
+package com.eagle.android.detector;
+
+import java.nio.FloatBuffer;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+
+import ai.onnxruntime.OnnxTensor;
+
+/**
+ * YOLOv11原始输出解码器
+ *
+ * 直接在ONNX输出的原生布局上读取数据，不再展平、装箱或转置：
+ * - 通道优先 [1, 4 + numClasses, numAnchors]（YOLOv11默认导出）
+ * - 锚点优先 [1, numAnchors, 4 + numClasses]
+ * 按类别逐行顺序扫描求每个锚点的最大得分，超过阈值的锚点写入 {@link DetectionBuffer}，
+ * 经网格NMS与Top-K截断后只为最终保留的框生成检测对象。
+ * 非线程安全，暂存数组在帧间复用。
+ */
+public class YOLOv11OutputDecoder {
+
+    public static final int DEFAULT_MAX_CANDIDATES = 3000; // NMS前最多保留的候选数
+    public static final int DEFAULT_MAX_DETECTIONS = 300;  // NMS后最多保留的检测数
+
+    private final int numClasses;
+    private final DetectionBuffer candidates = new DetectionBuffer();
+    private int maxCandidates = DEFAULT_MAX_CANDIDATES;
+    private int maxDetections = DEFAULT_MAX_DETECTIONS;
+
+    // 每个锚点的最大得分与对应类别（帧间复用）
+    private float[] maxScores = new float[0];
+    private int[] bestClasses = new int[0];
+
+    // 形状无法判断时是否按通道优先布局解析
+    private boolean channelMajorFallback = true;
+
+    public YOLOv11OutputDecoder(int numClasses) {
+        this.numClasses = numClasses;
+    }
+
+    /**
+     * 解码输出张量，坐标映射回原图（考虑letterbox的缩放与填充）
+     *
+     * @param output 模型输出张量
+     * @param inputSize 模型输入尺寸
+     * @param originalWidth 原始图像宽度
+     * @param originalHeight 原始图像高度
+     * @param confThreshold 置信度阈值
+     * @param iouThreshold NMS的IoU阈值
+     * @param classNames 类别名称数组
+     * @return NMS后的检测结果
+     */
+    public List<Detection> decode(OnnxTensor output,
+                                  int inputSize,
+                                  int originalWidth,
+                                  int originalHeight,
+                                  float confThreshold,
+                                  float iouThreshold,
+                                  String[] classNames) {
+        return decode(output.getFloatBuffer(), output.getInfo().getShape(), 0,
+                inputSize, originalWidth, originalHeight, confThreshold, iouThreshold, classNames);
+    }
+
+    /**
+     * 解码批量输出 [N, ...] 中的第 batchIndex 张图
+     *
+     * @param data 整个输出张量的数据（{@link OnnxTensor#getFloatBuffer()} 每次调用都会拷贝，批量时只取一次）
+     * @param shape 输出张量形状
+     * @param batchIndex 批内序号
+     */
+    public List<Detection> decode(FloatBuffer data,
+                                  long[] shape,
+                                  int batchIndex,
+                                  int inputSize,
+                                  int originalWidth,
+                                  int originalHeight,
+                                  float confThreshold,
+                                  float iouThreshold,
+                                  String[] classNames) {
+        int stride = numClasses + 4;
+        int batch = shape != null && shape.length == 3 ? (int) Math.max(1, shape[0]) : 1;
+        int itemLength = data.capacity() / batch;
+        data.clear();
+        data.position(batchIndex * itemLength);
+        data.limit((batchIndex + 1) * itemLength);
+        data = data.slice();
+
+        int total = data.remaining();
+        int numAnchors = total / stride;
+        if (numAnchors <= 0) {
+            return new ArrayList<>();
+        }
+
+        boolean channelMajor = isChannelMajor(shape, stride);
+        ensureCapacity(numAnchors);
+
+        // 1. 逐类别扫描求每个锚点的最大得分
+        Arrays.fill(maxScores, 0, numAnchors, 0f);
+        Arrays.fill(bestClasses, 0, numAnchors, 0);
+        if (channelMajor) {
+            // 每个类别占一行，行内连续读取
+            for (int c = 0; c < numClasses; c++) {
+                int base = (4 + c) * numAnchors;
+                for (int a = 0; a < numAnchors; a++) {
+                    float score = data.get(base + a);
+                    if (score > maxScores[a]) {
+                        maxScores[a] = score;
+                        bestClasses[a] = c;
+                    }
+                }
+            }
+        } else {
+            for (int a = 0; a < numAnchors; a++) {
+                int base = a * stride + 4;
+                for (int c = 0; c < numClasses; c++) {
+                    float score = data.get(base + c);
+                    if (score > maxScores[a]) {
+                        maxScores[a] = score;
+                        bestClasses[a] = c;
+                    }
+                }
+            }
+        }
+
+        // 2. 只为通过阈值的锚点读取框并映射回原图
+        float scale = Math.min(
+                (float) inputSize / originalWidth,
+                (float) inputSize / originalHeight
+        );
+        float padX = (inputSize - (int) (originalWidth * scale)) / 2;
+        float padY = (inputSize - (int) (originalHeight * scale)) / 2;
+
+        candidates.clear();
+        for (int a = 0; a < numAnchors; a++) {
+            float score = maxScores[a];
+            if (score < confThreshold) {
+                continue;
+            }
+
+            float cx, cy, w, h;
+            if (channelMajor) {
+                cx = data.get(a);
+                cy = data.get(numAnchors + a);
+                w = data.get(2 * numAnchors + a);
+                h = data.get(3 * numAnchors + a);
+            } else {
+                int base = a * stride;
+                cx = data.get(base);
+                cy = data.get(base + 1);
+                w = data.get(base + 2);
+                h = data.get(base + 3);
+            }
+
+            float x1 = clamp((cx - w / 2 - padX) / scale, originalWidth);
+            float y1 = clamp((cy - h / 2 - padY) / scale, originalHeight);
+            float x2 = clamp((cx + w / 2 - padX) / scale, originalWidth);
+            float y2 = clamp((cy + h / 2 - padY) / scale, originalHeight);
+
+            candidates.add(x1, y1, x2, y2, score, bestClasses[a]);
+        }
+
+        // 3. 网格NMS + Top-K，仅为保留的框创建对象
+        candidates.nms(iouThreshold, maxCandidates, maxDetections, numClasses);
+        return candidates.toDetections(classNames);
+    }
+
+    /**
+     * 根据输出形状判断布局
+     */
+    private boolean isChannelMajor(long[] shape, int stride) {
+        if (shape != null && shape.length == 3) {
+            if (shape[1] == stride) return true;
+            if (shape[2] == stride) return false;
+        }
+        return channelMajorFallback;
+    }
+
+    private void ensureCapacity(int numAnchors) {
+        if (maxScores.length < numAnchors) {
+            maxScores = new float[numAnchors];
+            bestClasses = new int[numAnchors];
+        }
+    }
+
+    private static float clamp(float v, int max) {
+        return Math.max(0, Math.min(v, max));
+    }
+
+    /**
+     * 设置NMS前后的Top-K上限
+     */
+    public void setTopK(int maxCandidates, int maxDetections) {
+        this.maxCandidates = maxCandidates;
+        this.maxDetections = maxDetections;
+    }
+
+    /**
+     * 设置形状无法判断时的默认布局
+     */
+    public void setChannelMajorFallback(boolean channelMajor) {
+        this.channelMajorFallback = channelMajor;
+    }
+}
@@ -3,6 +3,8 @@ package com.eagle.android.detector;
 import android.graphics.Bitmap;
 import android.graphics.RectF;
 
+import com.eagle.android.util.BitmapPool;
+
 import java.nio.FloatBuffer;
 import java.util.ArrayList;
 import java.util.Collections;
@@ -45,9 +47,7 @@ public class YOLOv11Utils {
             inputData[2 * inputSize * inputSize + i] = (pixel & 0xFF) / 255.0f;      // B
         }
 
-        if (letterboxed != bitmap) {
-            letterboxed.recycle();
-        }
+        BitmapPool.get().release(letterboxed);
 
         return inputData;
     }
@@ -59,7 +59,7 @@ public class YOLOv11Utils {
      * @param source 源图像
      * @param targetWidth 目标宽度
      * @param targetHeight 目标高度
-     * @return letterbox处理后的图像
+     * @return letterbox处理后的图像（从 {@link BitmapPool} 借出，用完后归还）
      */
     private static Bitmap createLetterboxBitmap(Bitmap source, int targetWidth, int targetHeight) {
         int sourceWidth = source.getWidth();
@@ -74,11 +74,8 @@ public class YOLOv11Utils {
         int scaledWidth = (int) (sourceWidth * scale);
         int scaledHeight = (int) (sourceHeight * scale);
 
-        // 缩放图像
-        Bitmap scaled = Bitmap.createScaledBitmap(source, scaledWidth, scaledHeight, true);
-
-        // 创建目标大小的bitmap，填充灰色背景（114, 114, 114）
-        Bitmap letterbox = Bitmap.createBitmap(targetWidth, targetHeight, Bitmap.Config.ARGB_8888);
+        // 借出目标大小的bitmap，填充灰色背景（114, 114, 114）
+        Bitmap letterbox = BitmapPool.get().acquire(targetWidth, targetHeight);
         android.graphics.Canvas canvas = new android.graphics.Canvas(letterbox);
         canvas.drawColor(0xFF727272); // 灰色背景 (114, 114, 114)
 
@@ -86,12 +83,10 @@ public class YOLOv11Utils {
         int left = (targetWidth - scaledWidth) / 2;
         int top = (targetHeight - scaledHeight) / 2;
 
-        // 将缩放后的图像绘制到中心
-        canvas.drawBitmap(scaled, left, top, null);
-
-        if (scaled != source) {
-            scaled.recycle();
-        }
+        // 缩放并绘制到中心（双线性过滤），不产生中间缩放位图
+        canvas.drawBitmap(source, null,
+                new RectF(left, top, left + scaledWidth, top + scaledHeight),
+                new android.graphics.Paint(android.graphics.Paint.FILTER_BITMAP_FLAG));
 
         return letterbox;
     }
@@ -9,7 +9,11 @@ public class ChartResult {
     public final Bitmap chartBitmap; // 裁剪出的图表图像（用于小窗展示）
     public final Rect chartRectOnScreen; // 图表在屏幕上的矩形
     public final List<NodeSpec> nodes; // 每个元素的屏幕坐标与朗读文案
+    public final long frameSeq; // 产生该结果的截图帧序号（0表示未编号），用于丢弃过期结果
     public ChartResult(Bitmap bmp, Rect rect, List<NodeSpec> nodes) {
-        this.chartBitmap = bmp; this.chartRectOnScreen = rect; this.nodes = nodes;
+        this(bmp, rect, nodes, 0L);
     }
-}
\ No newline at end of file
+    public ChartResult(Bitmap bmp, Rect rect, List<NodeSpec> nodes, long frameSeq) {
+        this.chartBitmap = bmp; this.chartRectOnScreen = rect; this.nodes = nodes; this.frameSeq = frameSeq;
+    }
+}
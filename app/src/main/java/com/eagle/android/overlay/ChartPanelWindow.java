@@ -11,6 +11,7 @@ import android.widget.FrameLayout;
 
 import com.eagle.android.model.NodeSpec;
 import com.eagle.android.service.ChartA11yService;
+import com.eagle.android.util.BitmapPool;
 
 import java.util.List;
 
@@ -21,6 +22,8 @@ public class ChartPanelWindow {
     private final ChartA11yService.ChartGestureCallback gestureCallback;
     private ChartPanelView view;
     private WindowManager.LayoutParams lp;
+    // 正在展示的图表位图，展示期间持有一个位图池引用
+    private Bitmap shownBmp;
 
     public interface Tapper { boolean tap(int x, int y); }
 
@@ -66,6 +69,7 @@ public class ChartPanelWindow {
         wm.addView(view, lp);
 
         view.bindData(bmp, chartRectOnScreen, nodes, summary);
+        bindBitmap(bmp);
 
         // 按钮测量完成后，用真实 top/bottom 占位精确高度
         ViewTreeObserver.OnGlobalLayoutListener once = new ViewTreeObserver.OnGlobalLayoutListener() {
@@ -90,6 +94,7 @@ public class ChartPanelWindow {
     public void update(Bitmap bmp, Rect chartRectOnScreen, List<NodeSpec> nodes, CharSequence summary) {
         if (view != null) {
             view.bindData(bmp, chartRectOnScreen, nodes, summary);
+            bindBitmap(bmp);
             // 如更换了不同尺寸的 bmp，可复用 show() 里的精确期逻辑再算一次高度
         }
     }
@@ -99,6 +104,14 @@ public class ChartPanelWindow {
 
     public void hide() {
         if (view != null) { wm.removeView(view); view = null; lp = null; }
+        bindBitmap(null);
+    }
+
+    private void bindBitmap(Bitmap bmp) {
+        if (bmp == shownBmp) return;
+        BitmapPool.get().retain(bmp);
+        BitmapPool.get().release(shownBmp);
+        shownBmp = bmp;
     }
 
     private int dp(int v) { return Math.round(v * ctx.getResources().getDisplayMetrics().density); }
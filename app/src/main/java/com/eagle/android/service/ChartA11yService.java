@@ -7,6 +7,7 @@ import android.accessibilityservice.GestureDescription;
 import android.content.Intent;
 import android.content.SharedPreferences;
 import android.graphics.Bitmap;
+import android.graphics.Canvas;
 import android.graphics.Path;
 import android.graphics.Rect;
 import android.graphics.Region;
@@ -15,19 +16,27 @@ import android.os.Build;
 import android.os.Handler;
 import android.os.Looper;
 import android.os.SystemClock;
+import android.util.Log;
 import android.view.Display;
 import android.view.KeyEvent;
 import android.view.accessibility.AccessibilityEvent;
 import android.view.accessibility.AccessibilityManager;
 import android.view.accessibility.AccessibilityNodeInfo;
+import android.view.accessibility.AccessibilityWindowInfo;
 import android.widget.Toast;
 
 import androidx.annotation.NonNull;
 
+import com.eagle.android.a11y.ChartCandidateFinder;
 import com.eagle.android.a11y.ReadingOrderHelper;
 import com.eagle.android.detector.ChartDetector;
 import com.eagle.android.detector.DemoChartDetector;
+import com.eagle.android.detector.DetectionHandle;
+import com.eagle.android.detector.FrameChangeDetector;
+import com.eagle.android.detector.ModelPrecision;
+import com.eagle.android.detector.ResolutionController;
 import com.eagle.android.detector.YOLOv11Detector;
+import com.eagle.android.detector.YOLOv11EndToEndDetector;
 import com.eagle.android.model.ChartResult;
 import com.eagle.android.model.NodeSpec;
 import com.eagle.android.overlay.ChartPanelWindow;
@@ -37,8 +46,12 @@ import com.eagle.android.overlay.DebugMarkOverlay;
 import com.eagle.android.overlay.FocusSwitchOverlay;
 import com.eagle.android.overlay.SimpleOverLay;
 import com.eagle.android.overlay.SimpleVirtualNodeOverlay;
+import com.eagle.android.util.BitmapPool;
 
+import java.util.ArrayList;
+import java.util.HashSet;
 import java.util.List;
+import java.util.Set;
 import java.util.concurrent.ExecutorService;
 import java.util.concurrent.Executors;
 
@@ -50,6 +63,8 @@ import java.util.concurrent.Executors;
  */
 public class ChartA11yService extends AccessibilityService {
 
+    private static final String TAG = "ChartA11yService";
+
     public static final String ACTION_SHOW_MOCK_ACCESS_OVERLAY =
             "com.eagle.android.service.action.SHOW_MOCK_ACCESS_OVERLAY";
 
@@ -69,6 +84,7 @@ public class ChartA11yService extends AccessibilityService {
     private final ExecutorService io = Executors.newSingleThreadExecutor();
     private ChartDetector detector;
     private YOLOv11Detector yoloDetector; // YOLOv11检测器实例
+    private YOLOv11EndToEndDetector endToEndDetector; // 端到端模型检测器（可选）
     private ChartAccessOverlayManager demoAccessOverlayManager;
 
     // 是否使用YOLOv11检测器（可通过设置切换）
@@ -77,12 +93,42 @@ public class ChartA11yService extends AccessibilityService {
     // 截屏节流
     private static final long SHOT_INTERVAL_MS = 1000;
     private long lastShotAt = 0L;
+    // 窗口级截图（偏好 capture_window_scoped，默认开启）：只截活动应用窗口
+    private boolean windowScopedCapture = true;
+    // 候选提名（偏好 detector_candidate_proposal，默认开启）：无障碍树里没有疑似图表的节点就不截图推理，
+    // 有候选时只检测候选区域的并集（外扩 CANDIDATE_MARGIN_PX）
+    private boolean candidateProposal = true;
+    private static final int CANDIDATE_MARGIN_PX = 16;
+    // 按界面记录检测结论：已知无图表的界面退避一段时间不再分析，已知有图表的界面先用缓存区域提示
+    private ScreenChartCache screenCache;
 
     // 自动检测去抖/最小间隔
     private static final long DETECT_DEBOUNCE_MS = 250;
     private static final long DETECT_MIN_INTERVAL_MS = 650;
+    // 滚动停止多久后才重新检测（滚动期间靠位移平移缓存结果）
+    private static final long SCROLL_SETTLE_MS = 400;
+    private long lastScrollAt = 0L;
+    // 事件未携带滚动位移时 getScrollDeltaX/Y 的返回值
+    private static final int SCROLL_DELTA_UNDEFINED = -1;
     private long lastDetectAt = 0L;
     private final Runnable detectRunnable = this::detectOnce;
+    // 内容变化事件合并：安静 DETECT_DEBOUNCE_MS 后处理，持续变化时最多等待 CONTENT_MAX_WAIT_MS
+    private static final long CONTENT_MAX_WAIT_MS = 1500;
+    private EventCoalescer contentEvents;
+
+    // 最新优先调度：同一时间只有一次截图+推理在进行，期间的新触发合并为一个待执行请求
+    private boolean detectInFlight = false;
+    private boolean detectPending = false;
+    // 帧序号：每次截图递增；序号小于 staleBeforeSeq 的结果已过期（窗口切换/滚动平移之后），不再应用
+    private long frameSeq = 0L;
+    private long appliedSeq = 0L;
+    private volatile long staleBeforeSeq = 0L;
+    // 进行中的异步检测，窗口切换时取消；超过截止时间的检测直接放弃
+    private static final long DETECT_TIMEOUT_MS = 3000;
+    private volatile DetectionHandle inFlightHandle;
+
+    // 截图变化门控：画面未变或变化不在图表区域内时沿用上次结果（仅在io线程使用）
+    private final FrameChangeDetector frameGate = new FrameChangeDetector();
 
     private ChartResult curResult;
     // 提示虚拟结点 Overlay
@@ -105,6 +151,8 @@ public class ChartA11yService extends AccessibilityService {
         super.onServiceConnected();
 
         mainHandler = new Handler(Looper.getMainLooper());
+        contentEvents = new EventCoalescer(mainHandler, getPackageName(),
+                DETECT_DEBOUNCE_MS, CONTENT_MAX_WAIT_MS, this::onContentSettled);
 
         // 初始化检测器
         initializeDetector();
@@ -154,6 +202,9 @@ public class ChartA11yService extends AccessibilityService {
         // tap模拟点击操作 - 修改为传入手势回调
         panel = new ChartPanelWindow(this, this::tap, chartGestureCallback);
         SharedPreferences sp = getSharedPreferences("a11y_prefs", MODE_PRIVATE);
+        windowScopedCapture = sp.getBoolean("capture_window_scoped", true);
+        candidateProposal = sp.getBoolean("detector_candidate_proposal", true);
+        screenCache = new ScreenChartCache(this);
 
 // 顶层开关
         boolean volumeEnabled  = sp.getBoolean("feature_shortcut_volume_enabled", false);
@@ -453,8 +504,28 @@ public class ChartA11yService extends AccessibilityService {
     private void initializeDetector() {
         if (USE_YOLO_DETECTOR) {
             yoloDetector = new YOLOv11Detector(this);
+            // 低精度变体需先通过相对FP32的召回率校验
+            yoloDetector.setPrecision(readDetectorPrecision(), true);
+            SharedPreferences sp = getSharedPreferences("a11y_prefs", MODE_PRIVATE);
+            boolean endToEnd = sp.getBoolean("detector_end_to_end", false);
+            yoloDetector.setCascadeMode(sp.getBoolean("detector_cascade", false));
+            yoloDetector.setAdaptiveResolution(
+                    sp.getBoolean("detector_adaptive_resolution", false),
+                    sp.getInt("detector_latency_budget_ms", (int) ResolutionController.DEFAULT_BUDGET_MS));
             // 异步初始化模型
             io.execute(() -> {
+                // 端到端模型（uint8输入、图内NMS）可用时优先使用
+                if (endToEnd) {
+                    YOLOv11EndToEndDetector e2e = new YOLOv11EndToEndDetector(this);
+                    if (e2e.initialize()) {
+                        mainHandler.post(() -> {
+                            endToEndDetector = e2e;
+                            detector = e2e;
+                            Toast.makeText(this, "YOLOv11端到端模型加载成功", Toast.LENGTH_SHORT).show();
+                        });
+                        return;
+                    }
+                }
                 boolean success = yoloDetector.initialize();
                 mainHandler.post(() -> {
                     if (success) {
@@ -474,6 +545,28 @@ public class ChartA11yService extends AccessibilityService {
         }
     }
 
+    /**
+     * 读取模型精度设置（"FP32" / "FP16" / "INT8"），无效值按FP32处理
+     */
+    private ModelPrecision readDetectorPrecision() {
+        String value = getSharedPreferences("a11y_prefs", MODE_PRIVATE)
+                .getString("detector_precision", ModelPrecision.FP32.name());
+        try {
+            return ModelPrecision.valueOf(value);
+        } catch (IllegalArgumentException e) {
+            return ModelPrecision.FP32;
+        }
+    }
+
+    @Override
+    public void onTrimMemory(int level) {
+        super.onTrimMemory(level);
+        if (level >= TRIM_MEMORY_RUNNING_LOW) {
+            // 空闲的截图/裁剪缓冲区可以随时重新分配
+            BitmapPool.get().clear();
+        }
+    }
+
     // ============ 修改 onDestroy 方法 ============
     @Override
     public void onDestroy() {
@@ -487,6 +580,10 @@ public class ChartA11yService extends AccessibilityService {
             yoloDetector.release();
             yoloDetector = null;
         }
+        if (endToEndDetector != null) {
+            endToEndDetector.release();
+            endToEndDetector = null;
+        }
 
         if (ab != null && abCb != null) ab.unregisterAccessibilityButtonCallback(abCb);
         io.shutdownNow();
@@ -494,6 +591,12 @@ public class ChartA11yService extends AccessibilityService {
             demoAccessOverlayManager.dismissAccessView();
         }
         if (panel != null && panel.isShowing()) panel.hide();
+        setLastChartBmp(null);
+        if (screenCache != null) screenCache.flush();
+        if (contentEvents != null) {
+            contentEvents.clear();
+            Log.i(TAG, "contentEvents: " + contentEvents);
+        }
 //        if (debugMarkOverlay != null) debugMarkOverlay.hide();
 //        if(simpleOverLay != null) simpleOverLay.hide();
 //        if (hintOverlay != null && hintOverlay.isShowing()) hintOverlay.hide();
@@ -561,13 +664,26 @@ public class ChartA11yService extends AccessibilityService {
     // 监听页面变化 → 去抖检测
     @Override
     public void onAccessibilityEvent(AccessibilityEvent event) {
-        if (event == null) return;
+        if (event == null || contentEvents == null) return;
+        // 图表面板、悬浮层与Toast引起的事件不触发检测
+        if (!contentEvents.accept(event)) return;
         int t = event.getEventType();
         switch (t) {
             case AccessibilityEvent.TYPE_WINDOW_STATE_CHANGED:
+                // 窗口切换：进行中的推理针对的是旧画面，直接终止；旧窗口的内容变化不再处理
+                invalidateInFlight(true);
+                contentEvents.clear();
+                applyScreenHint();
+                scheduleDetect();
+                break;
             case AccessibilityEvent.TYPE_WINDOW_CONTENT_CHANGED:
+                contentEvents.offer(event);
+                break;
+            case AccessibilityEvent.TYPE_WINDOWS_CHANGED:
+                refreshOverlayWindowIds();
+                break;
             case AccessibilityEvent.TYPE_VIEW_SCROLLED:
-                scheduleDetect();
+                onViewScrolled(event);
                 break;
 //            case AccessibilityEvent.TYPE_VIEW_ACCESSIBILITY_FOCUSED: {
 //                AccessibilityNodeInfo src = event.getSource();
@@ -637,30 +753,124 @@ public class ChartA11yService extends AccessibilityService {
     }
 
     // —— 截屏（API 30–34 兼容签名）——
-    interface ScreenshotCb { void onBmp(Bitmap bmp); }
+    // frameOnScreen：截图左上角在屏幕上的位置与尺寸（整屏截图为 0,0 起的显示区域）
+    interface ScreenshotCb { void onBmp(Bitmap bmp, Rect frameOnScreen); }
     private void takeScreenshotSafe(ScreenshotCb cb) {
         if (Build.VERSION.SDK_INT < Build.VERSION_CODES.R) {
-            cb.onBmp(null); // <30 请自行接入 MediaProjection 回退
+            cb.onBmp(null, null); // <30 请自行接入 MediaProjection 回退
             return;
         }
         long now = SystemClock.uptimeMillis();
-        if (now - lastShotAt < SHOT_INTERVAL_MS) { cb.onBmp(null); return; }
+        if (now - lastShotAt < SHOT_INTERVAL_MS) { cb.onBmp(null, null); return; }
         lastShotAt = now;
 
+        // 窗口级截图：只截当前应用窗口，不含状态栏、输入法与我们自己的悬浮层
+        AccessibilityWindowInfo appWindow = windowScopedCapture ? findActiveAppWindow() : null;
+        if (appWindow == null) {
+            takeDisplayScreenshot(null, cb);
+            return;
+        }
+        Rect windowBounds = new Rect();
+        appWindow.getBoundsInScreen(windowBounds);
+        int windowId = appWindow.getId();
+        appWindow.recycle();
+        if (windowBounds.isEmpty()) {
+            takeDisplayScreenshot(null, cb);
+            return;
+        }
+
+        if (Build.VERSION.SDK_INT >= Build.VERSION_CODES.UPSIDE_DOWN_CAKE) {
+            takeScreenshotOfWindow(windowId, getMainExecutor(),
+                    new AccessibilityService.TakeScreenshotCallback() {
+                        @Override public void onSuccess(AccessibilityService.ScreenshotResult result) {
+                            Bitmap bmp = copyScreenshot(result);
+                            if (bmp == null) { cb.onBmp(null, null); return; }
+                            cb.onBmp(bmp, new Rect(windowBounds.left, windowBounds.top,
+                                    windowBounds.left + bmp.getWidth(), windowBounds.top + bmp.getHeight()));
+                        }
+                        // 窗口不允许截图（例如 FLAG_SECURE）或已消失时退回整屏截图再裁剪
+                        @Override public void onFailure(int errorCode) { takeDisplayScreenshot(windowBounds, cb); }
+                    });
+        } else {
+            takeDisplayScreenshot(windowBounds, cb);
+        }
+    }
+
+    /**
+     * 整屏截图；crop不为null时裁剪到该屏幕区域（裁剪图从位图池借出，整屏拷贝随即归还）
+     */
+    private void takeDisplayScreenshot(Rect crop, ScreenshotCb cb) {
         takeScreenshot(Display.DEFAULT_DISPLAY, getMainExecutor(),
                 new AccessibilityService.TakeScreenshotCallback() {
                     @Override public void onSuccess(AccessibilityService.ScreenshotResult result) {
-                        HardwareBuffer hb = result.getHardwareBuffer();
-                        if (hb == null) { cb.onBmp(null); return; }
-                        Bitmap hw = Bitmap.wrapHardwareBuffer(hb, result.getColorSpace());
-                        Bitmap copy = (hw != null) ? hw.copy(Bitmap.Config.ARGB_8888, false) : null;
-                        try { hb.close(); } catch (Throwable ignored) {}
-                        cb.onBmp(copy);
+                        Bitmap full = copyScreenshot(result);
+                        if (full == null) { cb.onBmp(null, null); return; }
+                        Rect frame = new Rect(0, 0, full.getWidth(), full.getHeight());
+                        Bitmap bmp = cropFrame(full, frame, crop);
+                        cb.onBmp(bmp, frame);
                     }
-                    @Override public void onFailure(int errorCode) { cb.onBmp(null); }
+                    @Override public void onFailure(int errorCode) { cb.onBmp(null, null); }
                 });
     }
 
+    /**
+     * 把截图裁剪到屏幕区域crop（裁剪图从位图池借出，原图随即归还）
+     * frameOnScreen 传入截图在屏幕上的位置，返回时更新为裁剪后的位置；crop为null或不需要裁剪时原样返回
+     */
+    private static Bitmap cropFrame(Bitmap bmp, Rect frameOnScreen, Rect crop) {
+        Rect region = new Rect(frameOnScreen);
+        if (crop == null || !region.intersect(crop) || region.equals(frameOnScreen)) {
+            return bmp;
+        }
+        Rect src = new Rect(region);
+        src.offset(-frameOnScreen.left, -frameOnScreen.top);
+        Bitmap cropped = BitmapPool.get().acquire(src.width(), src.height());
+        new Canvas(cropped).drawBitmap(bmp, src, new Rect(0, 0, src.width(), src.height()), null);
+        BitmapPool.get().release(bmp);
+        frameOnScreen.set(region);
+        return cropped;
+    }
+
+    /**
+     * 硬件位图无法绘制到软件画布，只能拷贝；拷贝由检测链路按引用计数归还（见 BitmapPool）
+     */
+    private static Bitmap copyScreenshot(AccessibilityService.ScreenshotResult result) {
+        HardwareBuffer hb = result.getHardwareBuffer();
+        if (hb == null) return null;
+        Bitmap hw = Bitmap.wrapHardwareBuffer(hb, result.getColorSpace());
+        Bitmap copy = (hw != null) ? hw.copy(Bitmap.Config.ARGB_8888, false) : null;
+        if (hw != null) hw.recycle();
+        try { hb.close(); } catch (Throwable ignored) {}
+        return copy;
+    }
+
+    /**
+     * 当前活动的应用窗口（有输入焦点或处于活动状态），没有时取面积最大的应用窗口
+     */
+    private AccessibilityWindowInfo findActiveAppWindow() {
+        List<AccessibilityWindowInfo> windows = getWindows();
+        AccessibilityWindowInfo best = null;
+        int bestArea = -1;
+        Rect bounds = new Rect();
+        for (AccessibilityWindowInfo w : windows) {
+            if (w.getType() != AccessibilityWindowInfo.TYPE_APPLICATION) continue;
+            if (w.isActive() || w.isFocused()) {
+                best = w;
+                break;
+            }
+            w.getBoundsInScreen(bounds);
+            int area = bounds.width() * bounds.height();
+            if (area > bestArea) {
+                bestArea = area;
+                best = w;
+            }
+        }
+        for (AccessibilityWindowInfo w : windows) {
+            if (w != best) w.recycle();
+        }
+        return best;
+    }
+
     // —— 手势回放到原屏 —— //
     public boolean tap(int x, int y) {
         Path p = new Path(); p.moveTo(x, y);
@@ -672,53 +882,330 @@ public class ChartA11yService extends AccessibilityService {
     // 自动检测 + 提示虚拟结点
     // =========================
     private void scheduleDetect() {
+        scheduleDetect(DETECT_DEBOUNCE_MS);
+    }
+
+    private void scheduleDetect(long delayMs) {
         if (mainHandler == null) return;
         // 取消前一个任务
         mainHandler.removeCallbacks(detectRunnable);
-        // 开启新任务 在250ms后执行
-        mainHandler.postDelayed(detectRunnable, DETECT_DEBOUNCE_MS);
+        // 开启新任务 在delayMs后执行；正在滚动时推迟到滚动停止后
+        long settleLeft = SCROLL_SETTLE_MS - (SystemClock.uptimeMillis() - lastScrollAt);
+        mainHandler.postDelayed(detectRunnable, Math.max(delayMs, settleLeft));
+    }
+
+    /**
+     * 一批内容变化合并完成（去抖已在合并器中完成）：变化都来自不可见节点时不检测
+     */
+    private boolean onContentSettled(Rect dirtyRegion, int eventCount) {
+        if (dirtyRegion != null && dirtyRegion.isEmpty()) return false;
+        scheduleDetect(0);
+        return true;
+    }
+
+    /**
+     * 记录无障碍悬浮窗口（包括我们自己的面板）的id，这些窗口的事件不触发检测
+     */
+    private void refreshOverlayWindowIds() {
+        Set<Integer> ids = new HashSet<>();
+        for (AccessibilityWindowInfo w : getWindows()) {
+            if (w.getType() == AccessibilityWindowInfo.TYPE_ACCESSIBILITY_OVERLAY) {
+                ids.add(w.getId());
+            }
+            w.recycle();
+        }
+        contentEvents.setOverlayWindowIds(ids);
+    }
+
+    /**
+     * 滚动时按滚动位移平移缓存的图表区域与结点，不等待重新检测
+     * 图表仍在滚动容器内时，只在滚动停止后再检测一次；图表滚出视口则清除缓存并立即安排检测
+     */
+    private void onViewScrolled(AccessibilityEvent event) {
+        lastScrollAt = SystemClock.uptimeMillis();
+        int dx = event.getScrollDeltaX();
+        int dy = event.getScrollDeltaY();
+        AccessibilityNodeInfo source = event.getSource();
+        if (lastChartRect == null || source == null
+                || (dx == SCROLL_DELTA_UNDEFINED && dy == SCROLL_DELTA_UNDEFINED)) {
+            recycleNode(source);
+            scheduleDetect();
+            return;
+        }
+        Rect container = new Rect();
+        source.getBoundsInScreen(container);
+        recycleNode(source);
+
+        // 图表不在这个滚动容器里（例如另一个列表在滚动），缓存不受影响
+        if (!container.contains(lastChartRect.centerX(), lastChartRect.centerY())) {
+            scheduleDetect();
+            return;
+        }
+
+        // 内容向下滚动（delta为正）时，屏幕上的内容向上移动
+        // 只有两个方向同时为-1才表示未携带位移（见上），单个方向的-1是真实的1像素滚动
+        int offsetX = -dx;
+        int offsetY = -dy;
+        Rect moved = new Rect(lastChartRect);
+        moved.offset(offsetX, offsetY);
+        if (!Rect.intersects(moved, container)) {
+            // 图表已滚出视口
+            clearCachedResultAndHint();
+            lastScrollAt = 0L;
+            scheduleDetect();
+            return;
+        }
+
+        // 滚动前截取的帧坐标已过时
+        invalidateInFlight(false);
+        lastChartRect = moved;
+        if (lastNodes != null) {
+            List<NodeSpec> shifted = new ArrayList<>(lastNodes.size());
+            for (NodeSpec n : lastNodes) {
+                Rect r = new Rect(n.rectScreen);
+                r.offset(offsetX, offsetY);
+                shifted.add(new NodeSpec(n.id, r, n.label));
+            }
+            lastNodes = shifted;
+        }
+        scheduleDetect();
     }
 
     private void detectOnce() {
+        if (panel != null && panel.isShowing()) return; // 已在图表模式，不重复提示
+
+        // 节流窗口内不丢弃请求，推迟到窗口结束再执行
         long now = SystemClock.uptimeMillis();
-        if (now - lastDetectAt < DETECT_MIN_INTERVAL_MS) return;
-        lastDetectAt = now;
+        long readyAt = Math.max(lastDetectAt + DETECT_MIN_INTERVAL_MS, lastShotAt + SHOT_INTERVAL_MS);
+        if (now < readyAt) {
+            mainHandler.removeCallbacks(detectRunnable);
+            mainHandler.postDelayed(detectRunnable, readyAt - now);
+            return;
+        }
+        // 上一帧仍在进行：合并为一个待执行请求，完成后立即再跑一次
+        if (detectInFlight) {
+            detectPending = true;
+            return;
+        }
+        AccessibilityNodeInfo root = getRootInActiveWindow();
+        final String screenKey = ScreenChartCache.keyOf(root);
+        // 已知无图表的界面：退避期内不截图
+        if (screenCache.isKnownChartFree(screenKey, System.currentTimeMillis())) {
+            recycleNode(root);
+            lastDetectAt = now;
+            if (lastChartRect != null) clearCachedResultAndHint();
+            return;
+        }
+        // 候选提名：无障碍树里没有疑似图表的节点时，跳过截图与推理
+        // 遍历被预算截断时候选不完整，按整帧检测，也不把界面记为无图表
+        Rect detectRegion = null;
+        if (candidateProposal && root != null) {
+            ChartCandidateFinder.Proposal proposal = proposeCandidates(root);
+            if (!proposal.truncated) {
+                if (proposal.isEmpty()) {
+                    recycleNode(root);
+                    lastDetectAt = now;
+                    screenCache.record(screenKey, null, System.currentTimeMillis());
+                    if (lastChartRect != null) clearCachedResultAndHint();
+                    return;
+                }
+                detectRegion = new Rect(proposal.union);
+                detectRegion.inset(-CANDIDATE_MARGIN_PX, -CANDIDATE_MARGIN_PX);
+            }
+        }
+        recycleNode(root);
+        final Rect candidateRegion = detectRegion;
 
-        if (panel != null && panel.isShowing()) return; // 已在图表模式，不重复提示
+        detectInFlight = true;
+        lastDetectAt = now;
+        final long seq = ++frameSeq;
 
-        takeScreenshotSafe(bmp -> {
-            if (bmp == null) { clearCachedResultAndHint(); return; }
+        takeScreenshotSafe((shot, frameOnScreen) -> {
+            // 截图失败时保留缓存结果
+            if (shot == null) { onDetectFinished(); return; }
+            final Rect chartRect = lastChartRect != null ? new Rect(lastChartRect) : null;
             io.execute(() -> {
-                ChartResult res = detector.detectSingleChart(bmp);
-                mainHandler.post(() -> {
-                    if (res != null && res.chartRectOnScreen != null && res.nodes != null && !res.nodes.isEmpty()) {
-                        cacheResult(res); // 你原本的缓存图像/节点可保留
-//                        announce("已检测到图表");
-//                        onChartDetected(res.chartRectOnScreen);
-                    } else {
-                        // 清理
-//                        recycleNode(prevNode); prevNode = null;
-//                        recycleNode(nextNode); nextNode = null;
-//                        armedFromPrev = false;
-//                        if (simpleOverLay != null) simpleOverLay.setOverlayFocusable(false);
-//                        if (debugMarkOverlay != null) debugMarkOverlay.hide();
-                    }
-                });
+                // 只检测候选区域的并集
+                final Bitmap bmp = cropFrame(shot, frameOnScreen, candidateRegion);
+                // 检测器输出截图坐标；窗口级截图与候选裁剪需平移回屏幕坐标
+                final int offsetX = frameOnScreen.left;
+                final int offsetY = frameOnScreen.top;
+                if (chartRect != null) chartRect.offset(-offsetX, -offsetY);
+                if (seq < staleBeforeSeq) {
+                    // 排队期间窗口已切换
+                    BitmapPool.get().release(bmp);
+                    mainHandler.post(this::onDetectFinished);
+                    return;
+                }
+                if (!frameGate.shouldAnalyze(bmp, chartRect)) {
+                    // 与上次分析的帧相比没有有效变化，缓存的结果仍然有效
+                    BitmapPool.get().release(bmp);
+                    mainHandler.post(this::onDetectFinished);
+                    return;
+                }
+                inFlightHandle = detector.detectAsync(bmp, DETECT_TIMEOUT_MS,
+                        new DetectionHandle.Callback() {
+                            @Override
+                            public void onChartRect(Rect chartRectInFrame) {
+                                chartRectInFrame.offset(offsetX, offsetY);
+                                mainHandler.post(() -> onChartLocated(seq, chartRectInFrame));
+                            }
+
+                            @Override
+                            public void onResult(ChartResult res) {
+                                final ChartResult result = res == null ? null
+                                        : toScreenResult(res, offsetX, offsetY, seq);
+                                mainHandler.post(() -> {
+                                    recordScreen(screenKey, seq, result);
+                                    applyResult(result);
+                                    onDetectFinished();
+                                });
+                            }
+
+                            @Override
+                            public void onFailure(Throwable error) {
+                                // 取消或超时：保留缓存结果
+                                mainHandler.post(ChartA11yService.this::onDetectFinished);
+                            }
+                        });
+                // 检测期间由检测器持有截图引用，这里归还自己的引用
+                BitmapPool.get().release(bmp);
             });
         });
+    }
+
+    /**
+     * 遍历活动窗口提名图表候选（root由调用方回收）
+     */
+    private ChartCandidateFinder.Proposal proposeCandidates(AccessibilityNodeInfo root) {
+        return ChartCandidateFinder.propose(root,
+                getResources().getDisplayMetrics().widthPixels,
+                getResources().getDisplayMetrics().heightPixels);
+    }
+
+    /**
+     * 进入界面时查界面缓存：已知有图表则立即以缓存区域作为图表位置（进入图表模式仍需等确认检测完成），
+     * 随后的检测负责确认或推翻
+     */
+    private void applyScreenHint() {
+        if (screenCache == null) return;
+        AccessibilityNodeInfo root = getRootInActiveWindow();
+        String screenKey = ScreenChartCache.keyOf(root);
+        recycleNode(root);
+        ScreenChartCache.Entry entry = screenCache.get(screenKey);
+        if (entry == null || !entry.hasChart || entry.chartRect.equals(lastChartRect)) return;
+        lastChartRect = new Rect(entry.chartRect);
+        lastNodes = null;
+        setLastChartBmp(null);
+        io.execute(frameGate::reset); // 提示区域不是由上一帧得出的，下一帧必须检测
+    }
+
+    /**
+     * 把一帧的检测结论写入界面缓存；过期帧（窗口已切换）不记录
+     * 没有检测到图表时，只来自界面缓存的提示区域（尚无结点）随之撤销
+     */
+    private void recordScreen(String screenKey, long seq, ChartResult res) {
+        if (seq < staleBeforeSeq) return;
+        boolean found = res != null && res.chartRectOnScreen != null
+                && res.nodes != null && !res.nodes.isEmpty();
+        screenCache.record(screenKey, found ? res.chartRectOnScreen : null, System.currentTimeMillis());
+        if (!found && lastChartRect != null && lastNodes == null) {
+            clearCachedResultAndHint();
+        }
+    }
+
+    /**
+     * 把截图坐标的检测结果平移到屏幕坐标，并标记帧序号
+     */
+    private static ChartResult toScreenResult(ChartResult res, int dx, int dy, long seq) {
+        Rect chartRect = res.chartRectOnScreen;
+        List<NodeSpec> nodes = res.nodes;
+        if ((dx != 0 || dy != 0) && chartRect != null) {
+            chartRect = new Rect(chartRect);
+            chartRect.offset(dx, dy);
+            if (nodes != null) {
+                List<NodeSpec> shifted = new ArrayList<>(nodes.size());
+                for (NodeSpec n : nodes) {
+                    Rect r = new Rect(n.rectScreen);
+                    r.offset(dx, dy);
+                    shifted.add(new NodeSpec(n.id, r, n.label));
+                }
+                nodes = shifted;
+            }
+        }
+        return new ChartResult(res.chartBitmap, chartRect, nodes, seq);
+    }
 
+    /**
+     * 图表区域先于元素结果到达：若与缓存的图表不相交，缓存的结点属于另一张图表，立即丢弃，
+     * 避免在完整结果到达前进入图表模式时展示旧图表
+     */
+    private void onChartLocated(long seq, Rect chartRectOnScreen) {
+        if (seq < staleBeforeSeq || seq <= appliedSeq) return;
+        if (lastChartRect != null && !Rect.intersects(lastChartRect, chartRectOnScreen)) {
+            lastChartRect = null;
+            lastNodes = null;
+            setLastChartBmp(null);
+        }
+    }
+
+    /**
+     * 应用检测结果：过期或比已应用结果更旧的帧直接丢弃（归还其图表位图）
+     */
+    private void applyResult(ChartResult res) {
+        if (res == null) return;
+        if (res.frameSeq >= staleBeforeSeq && res.frameSeq > appliedSeq
+                && res.chartRectOnScreen != null && res.nodes != null && !res.nodes.isEmpty()) {
+            appliedSeq = res.frameSeq;
+            cacheResult(res); // 你原本的缓存图像/节点可保留
+//            announce("已检测到图表");
+//            onChartDetected(res.chartRectOnScreen);
+            return;
+        }
+        BitmapPool.get().release(res.chartBitmap);
+    }
+
+    private void onDetectFinished() {
+        inFlightHandle = null;
+        detectInFlight = false;
+        if (detectPending) {
+            detectPending = false;
+            scheduleDetect();
+        }
+    }
+
+    /**
+     * 已发起的帧全部作废；abortInference为true时同时终止正在进行的推理
+     */
+    private void invalidateInFlight(boolean abortInference) {
+        staleBeforeSeq = frameSeq + 1;
+        if (!abortInference) return;
+        DetectionHandle handle = inFlightHandle;
+        if (handle != null) {
+            handle.cancel();
+        }
     }
 
     private void cacheResult(ChartResult res) {
         lastChartRect = new Rect(res.chartRectOnScreen);
         lastNodes = res.nodes;
-        lastChartBmp = res.chartBitmap;
+        setLastChartBmp(res.chartBitmap); // 结果的位图引用转交给缓存
+    }
+
+    /**
+     * 替换缓存的图表位图（接管调用方的一个引用）并归还旧位图；正在展示的位图由面板另外持有引用
+     */
+    private void setLastChartBmp(Bitmap bmp) {
+        Bitmap old = lastChartBmp;
+        lastChartBmp = bmp;
+        BitmapPool.get().release(old);
     }
 
     private void clearCachedResultAndHint() {
         lastChartRect = null;
         lastNodes = null;
-        lastChartBmp = null;
+        setLastChartBmp(null);
+        io.execute(frameGate::reset); // 缓存已清空，下一帧必须重新检测
 //        if (hintOverlay != null && hintOverlay.isShowing()) hintOverlay.hide();
     }
 
@@ -0,0 +1,168 @@
+package com.eagle.android.service;
+
+import android.graphics.Rect;
+import android.os.Handler;
+import android.os.SystemClock;
+import android.view.accessibility.AccessibilityEvent;
+import android.view.accessibility.AccessibilityNodeInfo;
+
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.Map;
+import java.util.Set;
+
+/**
+ * 合并内容变化事件风暴
+ *
+ * 动画控件会持续发出 TYPE_WINDOW_CONTENT_CHANGED，逐个事件重置去抖会让检测一直推迟。合并规则：
+ * - 来自本应用（图表面板、悬浮层、Toast）以及无障碍悬浮窗口的事件直接丢弃
+ * - 其余事件按 (窗口id, 变化类型) 分组，累计事件源的屏幕区域作为脏区
+ * - 安静 quietMs 后统一处理一次；自第一个待处理事件起最多等待 maxWaitMs，事件不断也不会饿死检测
+ * 只在主线程使用。
+ */
+class EventCoalescer {
+
+    // 每组最多查询几次事件源（每次都是一次跨进程调用），超出后该组脏区按整屏计算
+    private static final int MAX_SOURCE_LOOKUPS_PER_GROUP = 8;
+
+    /**
+     * 合并后的回调
+     */
+    interface Listener {
+        /**
+         * @param dirtyRegion 所有变化的屏幕区域并集；有事件无法定位时为null（按整屏处理）
+         * @param eventCount 本批合并的事件数
+         * @return 是否据此安排了检测
+         */
+        boolean onContentSettled(Rect dirtyRegion, int eventCount);
+    }
+
+    private static final class Group {
+        int events;
+        int lookups;
+        Rect dirty;            // 已定位事件源的并集
+        boolean unbounded;     // 有事件无法定位
+    }
+
+    private final Handler handler;
+    private final String ownPackage;
+    private final long quietMs;
+    private final long maxWaitMs;
+    private final Listener listener;
+    private final Runnable flushRunnable = this::flush;
+
+    // key = 窗口id << 32 | 变化类型
+    private final Map<Long, Group> groups = new HashMap<>();
+    private long firstPendingAt = 0L;
+    private Set<Integer> overlayWindowIds = Collections.emptySet();
+
+    // 统计
+    private int received = 0;
+    private int dropped = 0;
+    private int coalesced = 0;
+    private int acted = 0;
+
+    EventCoalescer(Handler handler, String ownPackage, long quietMs, long maxWaitMs, Listener listener) {
+        this.handler = handler;
+        this.ownPackage = ownPackage;
+        this.quietMs = quietMs;
+        this.maxWaitMs = maxWaitMs;
+        this.listener = listener;
+    }
+
+    /**
+     * 每个事件都先经过这里：计数，并判断是否来自我们自己
+     *
+     * @return false 表示事件应被忽略
+     */
+    boolean accept(AccessibilityEvent event) {
+        received++;
+        CharSequence pkg = event.getPackageName();
+        if ((pkg != null && ownPackage.contentEquals(pkg))
+                || overlayWindowIds.contains(event.getWindowId())) {
+            dropped++;
+            return false;
+        }
+        return true;
+    }
+
+    /**
+     * 更新无障碍悬浮窗口的id（窗口列表变化时由服务刷新）
+     */
+    void setOverlayWindowIds(Set<Integer> ids) {
+        overlayWindowIds = ids != null ? new HashSet<>(ids) : Collections.<Integer>emptySet();
+    }
+
+    /**
+     * 加入一个内容变化事件，安排合并处理
+     */
+    void offer(AccessibilityEvent event) {
+        long key = ((long) event.getWindowId() << 32) | (event.getContentChangeTypes() & 0xFFFFFFFFL);
+        Group group = groups.get(key);
+        if (group == null) {
+            group = new Group();
+            groups.put(key, group);
+        } else {
+            coalesced++;
+        }
+        group.events++;
+        addSourceBounds(group, event);
+
+        long now = SystemClock.uptimeMillis();
+        if (firstPendingAt == 0L) firstPendingAt = now;
+        handler.removeCallbacks(flushRunnable);
+        handler.postAtTime(flushRunnable, Math.min(now + quietMs, firstPendingAt + maxWaitMs));
+    }
+
+    private static void addSourceBounds(Group group, AccessibilityEvent event) {
+        if (group.unbounded) return;
+        if (group.lookups++ >= MAX_SOURCE_LOOKUPS_PER_GROUP) {
+            group.unbounded = true;
+            return;
+        }
+        AccessibilityNodeInfo source = event.getSource();
+        if (source == null) {
+            group.unbounded = true;
+            return;
+        }
+        Rect bounds = new Rect();
+        source.getBoundsInScreen(bounds);
+        source.recycle();
+        // 不可见/无尺寸的节点变化不影响画面
+        if (bounds.isEmpty()) return;
+        if (group.dirty == null) group.dirty = bounds;
+        else group.dirty.union(bounds);
+    }
+
+    /**
+     * 丢弃待处理的事件（例如窗口已切换，检测另行安排）
+     */
+    void clear() {
+        handler.removeCallbacks(flushRunnable);
+        groups.clear();
+        firstPendingAt = 0L;
+    }
+
+    private void flush() {
+        if (groups.isEmpty()) return;
+        Rect dirty = new Rect();
+        boolean unbounded = false;
+        int events = 0;
+        for (Group g : groups.values()) {
+            events += g.events;
+            unbounded |= g.unbounded;
+            if (g.dirty != null) dirty.union(g.dirty);
+        }
+        clear();
+        if (listener.onContentSettled(unbounded ? null : dirty, events)) {
+            acted++;
+        }
+    }
+
+    @Override
+    public String toString() {
+        return "EventCoalescer{received=" + received + ", dropped=" + dropped
+                + ", coalesced=" + coalesced + ", acted=" + acted + "}";
+    }
+}
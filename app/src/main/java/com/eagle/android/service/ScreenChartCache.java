@@ -0,0 +1,195 @@
+package com.eagle.android.service;
+
+import android.content.Context;
+import android.content.SharedPreferences;
+import android.graphics.Rect;
+import android.view.accessibility.AccessibilityNodeInfo;
+import android.view.accessibility.AccessibilityWindowInfo;
+
+import com.eagle.android.a11y.NodeTraversal;
+
+import org.json.JSONArray;
+import org.json.JSONException;
+import org.json.JSONObject;
+
+import java.util.ArrayDeque;
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.Map;
+
+/**
+ * 按界面记录是否出现过图表
+ *
+ * 界面键 = 包名 + 窗口标题/面板标题 + 无障碍树顶部几层的结构哈希（类名与子节点数），
+ * 同一界面滚动、数据刷新时键不变，换页面时键改变。
+ * - 已知无图表的界面在 {@link #CHART_FREE_BACKOFF_MS} 内不再分析
+ * - 已知有图表的界面可以立即用缓存的区域给出提示，再在后台确认
+ * 最多保留 {@link #MAX_ENTRIES} 个界面（LRU），持久化到SharedPreferences，服务重启后仍然有效。
+ * 仅在主线程使用。
+ */
+class ScreenChartCache {
+
+    static final long CHART_FREE_BACKOFF_MS = 60_000;
+    private static final int MAX_ENTRIES = 200;
+
+    // 结构哈希只看树的顶部，避免列表内容变化影响键
+    private static final int HASH_MAX_DEPTH = 3;
+    private static final int HASH_MAX_NODES = 48;
+
+    private static final String PREFS_NAME = "screen_chart_cache";
+    private static final String KEY_ENTRIES = "entries";
+
+    static final class Entry {
+        final boolean hasChart;
+        final Rect chartRect;   // 屏幕坐标，无图表时为null
+        final long analyzedAt;  // System.currentTimeMillis()
+
+        Entry(boolean hasChart, Rect chartRect, long analyzedAt) {
+            this.hasChart = hasChart;
+            this.chartRect = chartRect;
+            this.analyzedAt = analyzedAt;
+        }
+    }
+
+    private final SharedPreferences prefs;
+    private final LinkedHashMap<String, Entry> entries =
+            new LinkedHashMap<String, Entry>(64, 0.75f, true) {
+                @Override
+                protected boolean removeEldestEntry(Map.Entry<String, Entry> eldest) {
+                    return size() > MAX_ENTRIES;
+                }
+            };
+    // 内存中有未写盘的改动（只是分析时间更新）
+    private boolean dirty = false;
+
+    ScreenChartCache(Context context) {
+        this.prefs = context.getSharedPreferences(PREFS_NAME, Context.MODE_PRIVATE);
+        load();
+    }
+
+    /**
+     * 计算界面键；拿不到窗口内容时返回null
+     */
+    static String keyOf(AccessibilityNodeInfo root) {
+        if (root == null) return null;
+        StringBuilder key = new StringBuilder();
+        key.append(root.getPackageName()).append('|');
+
+        AccessibilityWindowInfo window = root.getWindow();
+        if (window != null) {
+            CharSequence title = window.getTitle();
+            if (title != null) key.append(title);
+            window.recycle();
+        }
+        key.append('|');
+        CharSequence pane = root.getPaneTitle();
+        if (pane != null) key.append(pane);
+        key.append('|');
+
+        // 按层遍历顶部节点，哈希类名与子节点数（按层而非深度优先：大的第一个子树不会占满节点数）
+        int hash = 17;
+        int visited = 0;
+        ArrayDeque<AccessibilityNodeInfo> queue = new ArrayDeque<>();
+        ArrayDeque<Integer> depths = new ArrayDeque<>();
+        queue.add(AccessibilityNodeInfo.obtain(root));
+        depths.add(0);
+        while (!queue.isEmpty()) {
+            AccessibilityNodeInfo n = queue.poll();
+            int depth = depths.poll();
+            if (visited++ < HASH_MAX_NODES) {
+                CharSequence cls = n.getClassName();
+                hash = 31 * hash + (cls != null ? cls.toString().hashCode() : 0);
+                hash = 31 * hash + n.getChildCount();
+                if (depth < HASH_MAX_DEPTH) {
+                    for (int i = 0; i < n.getChildCount(); i++) {
+                        AccessibilityNodeInfo c = NodeTraversal.getChild(n, i);
+                        if (c == null) continue;
+                        queue.add(c);
+                        depths.add(depth + 1);
+                    }
+                }
+            }
+            n.recycle();
+        }
+        return key.append(Integer.toHexString(hash)).toString();
+    }
+
+    Entry get(String key) {
+        return key != null ? entries.get(key) : null;
+    }
+
+    /**
+     * 已知无图表且仍在退避期内
+     */
+    boolean isKnownChartFree(String key, long nowMillis) {
+        Entry e = get(key);
+        return e != null && !e.hasChart && nowMillis - e.analyzedAt < CHART_FREE_BACKOFF_MS;
+    }
+
+    /**
+     * 记录一次分析结果；结论与上次相同时只更新内存，等 {@link #flush()} 再写盘
+     */
+    void record(String key, Rect chartRect, long nowMillis) {
+        if (key == null) return;
+        Entry old = entries.put(key, new Entry(chartRect != null,
+                chartRect != null ? new Rect(chartRect) : null, nowMillis));
+        boolean sameOutcome = old != null && (old.chartRect == null
+                ? chartRect == null : old.chartRect.equals(chartRect));
+        if (sameOutcome) {
+            dirty = true;
+        } else {
+            save();
+        }
+    }
+
+    /**
+     * 写出尚未持久化的改动（服务销毁时调用）
+     */
+    void flush() {
+        if (dirty) save();
+    }
+
+    private void load() {
+        String json = prefs.getString(KEY_ENTRIES, null);
+        if (json == null) return;
+        try {
+            JSONArray array = new JSONArray(json);
+            for (int i = 0; i < array.length(); i++) {
+                JSONObject o = array.getJSONObject(i);
+                Rect rect = null;
+                JSONArray r = o.optJSONArray("rect");
+                if (r != null && r.length() == 4) {
+                    rect = new Rect(r.getInt(0), r.getInt(1), r.getInt(2), r.getInt(3));
+                }
+                entries.put(o.getString("key"), new Entry(rect != null, rect, o.getLong("at")));
+            }
+        } catch (JSONException e) {
+            // 格式损坏：丢弃缓存
+            entries.clear();
+            prefs.edit().remove(KEY_ENTRIES).apply();
+        }
+    }
+
+    private void save() {
+        JSONArray array = new JSONArray();
+        try {
+            // 按访问顺序写出，加载后LRU顺序不变
+            Iterator<Map.Entry<String, Entry>> it = entries.entrySet().iterator();
+            while (it.hasNext()) {
+                Map.Entry<String, Entry> me = it.next();
+                JSONObject o = new JSONObject();
+                o.put("key", me.getKey());
+                o.put("at", me.getValue().analyzedAt);
+                Rect r = me.getValue().chartRect;
+                if (r != null) {
+                    o.put("rect", new JSONArray().put(r.left).put(r.top).put(r.right).put(r.bottom));
+                }
+                array.put(o);
+            }
+        } catch (JSONException e) {
+            return;
+        }
+        prefs.edit().putString(KEY_ENTRIES, array.toString()).apply();
+        dirty = false;
+    }
+}
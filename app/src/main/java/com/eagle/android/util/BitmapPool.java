@@ -0,0 +1,213 @@
+package com.eagle.android.util;
+
+import android.graphics.Bitmap;
+import android.graphics.Color;
+import android.util.Log;
+
+import java.util.ArrayDeque;
+import java.util.Collections;
+import java.util.IdentityHashMap;
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.Set;
+import java.util.WeakHashMap;
+
+/**
+ * 按尺寸复用的引用计数位图池
+ *
+ * 截图、letterbox画布与图表裁剪图都是几百KB到十几MB的原生内存，逐帧分配会让内存随画面变化持续增长，
+ * 并在分配时卡顿。位图池的规则：
+ * - {@link #acquire(int, int)} 借出一张ARGB_8888可变位图（引用计数为1），优先复用同尺寸的空闲位图
+ * - 需要跨线程/跨组件共享时 {@link #retain(Bitmap)}，每个持有者用完后 {@link #release(Bitmap)}
+ * - 计数归零时，可变位图回到空闲列表；不可变位图（例如截图拷贝）无法复用，立即回收
+ * - 空闲位图与借出位图的总大小超过预算时，按最久未用的尺寸淘汰空闲位图
+ * 池外分配的位图第一次 retain/release 时视为已有一个（调用方的）引用；已在空闲列表中的位图再次release会被忽略。
+ * 引用表对位图是弱引用，忘记归还的位图仍会被GC回收，只是不能复用。
+ * 线程安全。
+ */
+public final class BitmapPool {
+
+    private static final String TAG = "BitmapPool";
+
+    public static final long DEFAULT_BUDGET_BYTES = 48L * 1024 * 1024;
+
+    private static final BitmapPool INSTANCE = new BitmapPool(DEFAULT_BUDGET_BYTES);
+
+    private long budgetBytes;
+
+    // 借出中的位图 → 引用计数
+    private final WeakHashMap<Bitmap, int[]> refCounts = new WeakHashMap<>();
+    // 尺寸 → 空闲位图；访问顺序即淘汰顺序
+    private final LinkedHashMap<Long, ArrayDeque<Bitmap>> free = new LinkedHashMap<>(16, 0.75f, true);
+    // 空闲列表中的全部位图，用于识别重复release
+    private final Set<Bitmap> freeSet = Collections.newSetFromMap(new IdentityHashMap<>());
+    private long freeBytes = 0;
+
+    // 统计
+    private int hits = 0;
+    private int misses = 0;
+
+    public BitmapPool(long budgetBytes) {
+        this.budgetBytes = budgetBytes;
+    }
+
+    /**
+     * 进程内共享的位图池
+     */
+    public static BitmapPool get() {
+        return INSTANCE;
+    }
+
+    /**
+     * 借出一张指定尺寸的ARGB_8888可变位图，复用的位图已清为透明
+     */
+    public Bitmap acquire(int width, int height) {
+        Bitmap bitmap = null;
+        synchronized (this) {
+            ArrayDeque<Bitmap> list = free.get(key(width, height));
+            while (list != null && !list.isEmpty() && bitmap == null) {
+                Bitmap candidate = list.pollFirst();
+                freeSet.remove(candidate);
+                freeBytes -= bytes(candidate);
+                if (!candidate.isRecycled()) bitmap = candidate;
+            }
+            if (bitmap != null) {
+                hits++;
+                refCounts.put(bitmap, new int[]{1});
+            } else {
+                misses++;
+                // 先腾出预算再分配
+                trimToBudget((long) width * height * 4);
+            }
+        }
+        if (bitmap != null) {
+            bitmap.eraseColor(Color.TRANSPARENT);
+            return bitmap;
+        }
+        bitmap = Bitmap.createBitmap(width, height, Bitmap.Config.ARGB_8888);
+        synchronized (this) {
+            refCounts.put(bitmap, new int[]{1});
+        }
+        return bitmap;
+    }
+
+    /**
+     * 增加一个引用，返回同一张位图
+     */
+    public synchronized Bitmap retain(Bitmap bitmap) {
+        if (bitmap == null) return null;
+        int[] count = refCounts.get(bitmap);
+        if (count == null) {
+            // 池外位图：调用方持有的引用 + 本次
+            refCounts.put(bitmap, new int[]{2});
+        } else {
+            count[0]++;
+        }
+        return bitmap;
+    }
+
+    /**
+     * 释放一个引用；最后一个引用释放后位图回到池中或被回收，调用方不能再使用它
+     */
+    public void release(Bitmap bitmap) {
+        if (bitmap == null || bitmap.isRecycled()) return;
+        boolean recycle;
+        synchronized (this) {
+            int[] count = refCounts.get(bitmap);
+            if (count == null && freeSet.contains(bitmap)) {
+                // 重复释放：位图已在空闲列表中，再加入会被两个调用方同时借出
+                Log.w(TAG, "release of a bitmap already in the pool, ignored");
+                return;
+            }
+            if (count != null && --count[0] > 0) return;
+            refCounts.remove(bitmap);
+
+            if (bitmap.isMutable() && bitmap.getConfig() == Bitmap.Config.ARGB_8888) {
+                long k = key(bitmap.getWidth(), bitmap.getHeight());
+                ArrayDeque<Bitmap> list = free.get(k);
+                if (list == null) {
+                    list = new ArrayDeque<>();
+                    free.put(k, list);
+                }
+                list.addFirst(bitmap);
+                freeSet.add(bitmap);
+                freeBytes += bytes(bitmap);
+                trimToBudget(0);
+                recycle = false;
+            } else {
+                recycle = true;
+            }
+        }
+        if (recycle) {
+            bitmap.recycle();
+        }
+    }
+
+    /**
+     * 设置内存预算（借出 + 空闲），超出部分的空闲位图立即回收
+     */
+    public synchronized void setBudgetBytes(long budgetBytes) {
+        this.budgetBytes = budgetBytes;
+        trimToBudget(0);
+    }
+
+    /**
+     * 回收全部空闲位图（例如收到内存紧张回调时）
+     */
+    public synchronized void clear() {
+        for (ArrayDeque<Bitmap> list : free.values()) {
+            for (Bitmap b : list) b.recycle();
+        }
+        free.clear();
+        freeSet.clear();
+        freeBytes = 0;
+    }
+
+    public synchronized long getFreeBytes() {
+        return freeBytes;
+    }
+
+    public synchronized long getInUseBytes() {
+        long total = 0;
+        for (Bitmap b : refCounts.keySet()) {
+            if (b != null && !b.isRecycled()) total += bytes(b);
+        }
+        return total;
+    }
+
+    public synchronized int getHits() {
+        return hits;
+    }
+
+    public synchronized int getMisses() {
+        return misses;
+    }
+
+    /**
+     * 淘汰最久未用尺寸的空闲位图，直到 借出 + 空闲 + incoming 不超过预算
+     */
+    private void trimToBudget(long incomingBytes) {
+        if (freeBytes == 0) return;
+        long limit = budgetBytes - getInUseBytes() - incomingBytes;
+        Iterator<Map.Entry<Long, ArrayDeque<Bitmap>>> it = free.entrySet().iterator();
+        while (freeBytes > Math.max(0, limit) && it.hasNext()) {
+            ArrayDeque<Bitmap> list = it.next().getValue();
+            while (!list.isEmpty() && freeBytes > Math.max(0, limit)) {
+                Bitmap b = list.pollLast();
+                freeSet.remove(b);
+                freeBytes -= bytes(b);
+                b.recycle();
+            }
+            if (list.isEmpty()) it.remove();
+        }
+    }
+
+    private static long bytes(Bitmap b) {
+        return (long) b.getWidth() * b.getHeight() * 4;
+    }
+
+    private static long key(int width, int height) {
+        return ((long) width << 32) | (height & 0xFFFFFFFFL);
+    }
+}
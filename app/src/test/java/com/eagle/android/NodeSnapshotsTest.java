@@ -0,0 +1,163 @@
+package com.eagle.android;
+
+import org.junit.Before;
+import org.junit.Test;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+
+import static org.junit.Assert.*;
+
+/**
+ * NodeSnapshots 的句柄分配与增量比较
+ */
+public class NodeSnapshotsTest {
+
+    private NodeSnapshots snapshots;
+
+    @Before
+    public void setUp() {
+        snapshots = new NodeSnapshots();
+    }
+
+    private static NodeSnapshots.Record record(String id, String text, int top) {
+        return new NodeSnapshots.Record("android.widget.TextView", id, text, 0, top, 100, top + 50);
+    }
+
+    private static List<NodeSnapshots.Record> screen(NodeSnapshots.Record... records) {
+        return new ArrayList<>(Arrays.asList(records));
+    }
+
+    private static int[] handles(List<Integer> list) {
+        int[] result = new int[list.size()];
+        for (int i = 0; i < result.length; i++) result[i] = list.get(i);
+        return result;
+    }
+
+    /** 首次全量，返回其版本 */
+    private long sendFull(List<NodeSnapshots.Record> records) {
+        NodeSnapshots.Diff diff = snapshots.diff("2", records, -1);
+        assertTrue(diff.full);
+        return diff.gen;
+    }
+
+    @Test
+    public void firstSnapshotIsFullWithSequentialHandles() {
+        NodeSnapshots.Diff diff = snapshots.diff("2", screen(
+                record("a", "A", 0), record("b", "B", 100), record("c", "C", 200)), 5);
+
+        assertTrue(diff.full);
+        assertEquals(1, diff.gen);
+        assertArrayEquals(new int[]{0, 1, 2}, diff.order);
+        assertEquals("B", diff.record(1).text);
+    }
+
+    @Test
+    public void unchangedSnapshotKeepsGeneration() {
+        long gen = sendFull(screen(record("a", "A", 0), record("b", "B", 100)));
+
+        NodeSnapshots.Diff diff = snapshots.diff("2", screen(record("a", "A", 0), record("b", "B", 100)), gen);
+
+        assertFalse(diff.full);
+        assertEquals(gen, diff.base);
+        assertEquals(gen, diff.gen);
+        assertTrue(diff.added.isEmpty());
+        assertTrue(diff.changed.isEmpty());
+        assertTrue(diff.removed.isEmpty());
+        assertNull(diff.order);
+    }
+
+    @Test
+    public void textChangeKeepsHandle() {
+        long gen = sendFull(screen(record("a", "A", 0), record("b", "B", 100)));
+
+        NodeSnapshots.Diff diff = snapshots.diff("2", screen(record("a", "A", 0), record("b", "B2", 100)), gen);
+
+        assertFalse(diff.full);
+        assertEquals(gen + 1, diff.gen);
+        assertArrayEquals(new int[]{1}, handles(diff.changed));
+        assertEquals("B2", diff.record(1).text);
+        assertTrue(diff.added.isEmpty());
+        assertNull(diff.order);
+    }
+
+    @Test
+    public void removedRecordsAreReportedByHandle() {
+        long gen = sendFull(screen(record("a", "A", 0), record("b", "B", 100), record("c", "C", 200)));
+
+        NodeSnapshots.Diff diff = snapshots.diff("2", screen(record("a", "A", 0), record("c", "C", 200)), gen);
+
+        assertFalse(diff.full);
+        assertArrayEquals(new int[]{1}, handles(diff.removed));
+        // 删除不改变剩余记录的相对顺序
+        assertNull(diff.order);
+    }
+
+    @Test
+    public void addedRecordsGetNewHandlesAndOrder() {
+        long gen = sendFull(screen(record("a", "A", 0), record("b", "B", 100), record("c", "C", 200)));
+
+        NodeSnapshots.Diff diff = snapshots.diff("2", screen(
+                record("a", "A", 0), record("d", "D", 50), record("b", "B", 100), record("c", "C", 200)), gen);
+
+        assertFalse(diff.full);
+        assertArrayEquals(new int[]{3}, handles(diff.added));
+        assertArrayEquals(new int[]{0, 3, 1, 2}, diff.order);
+    }
+
+    @Test
+    public void reorderIsReported() {
+        long gen = sendFull(screen(record("a", "A", 0), record("b", "B", 100)));
+
+        NodeSnapshots.Diff diff = snapshots.diff("2", screen(record("b", "B", 100), record("a", "A", 0)), gen);
+
+        assertFalse(diff.full);
+        assertEquals(gen + 1, diff.gen);
+        assertArrayEquals(new int[]{1, 0}, diff.order);
+    }
+
+    @Test
+    public void duplicateKeysAreDistinguishedByOccurrence() {
+        long gen = sendFull(screen(record("a", "A", 0), record("a", "A", 0)));
+
+        NodeSnapshots.Diff diff = snapshots.diff("2", screen(record("a", "A", 0), record("a", "X", 0)), gen);
+
+        assertFalse(diff.full);
+        assertArrayEquals(new int[]{1}, handles(diff.changed));
+    }
+
+    @Test
+    public void staleClientGenerationForcesFull() {
+        long gen = sendFull(screen(record("a", "A", 0), record("b", "B", 100)));
+
+        NodeSnapshots.Diff diff = snapshots.diff("2", screen(record("a", "A", 0), record("b", "B", 100)), gen - 1);
+
+        assertTrue(diff.full);
+        assertEquals(gen + 1, diff.gen);
+        // 全量仍沿用已分配的句柄
+        assertArrayEquals(new int[]{0, 1}, diff.order);
+    }
+
+    @Test
+    public void mostlyNewRecordsForceFull() {
+        long gen = sendFull(screen(record("a", "A", 0), record("b", "B", 100)));
+
+        NodeSnapshots.Diff diff = snapshots.diff("2", screen(
+                record("a", "A", 0), record("x", "X", 300), record("y", "Y", 400)), gen);
+
+        assertTrue(diff.full);
+        assertArrayEquals(new int[]{0, 2, 3}, diff.order);
+    }
+
+    @Test
+    public void actionsAreTrackedSeparately() {
+        long gen = sendFull(screen(record("a", "A", 0)));
+
+        NodeSnapshots.Diff focus = snapshots.diff("1", screen(record("a", "A", 0)), gen);
+        assertTrue(focus.full);
+
+        NodeSnapshots.Diff nodes = snapshots.diff("2", screen(record("a", "A", 0)), gen);
+        assertFalse(nodes.full);
+    }
+}
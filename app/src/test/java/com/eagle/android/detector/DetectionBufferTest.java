@@ -0,0 +1,169 @@
+package com.eagle.android.detector;
+
+import org.junit.Before;
+import org.junit.Test;
+
+import java.util.List;
+
+import static org.junit.Assert.*;
+
+/**
+ * DetectionBuffer 的网格NMS
+ * （本地单元测试中 RectF 为桩类，只检查类别和得分）
+ */
+public class DetectionBufferTest {
+
+    private static final float IOU = 0.45f;
+    private static final String[] NAMES = {"bar", "line", "pie"};
+
+    private DetectionBuffer buffer;
+
+    @Before
+    public void setUp() {
+        buffer = new DetectionBuffer();
+    }
+
+    @Test
+    public void suppressesOverlappingBoxOfSameClass() {
+        buffer.add(100, 100, 200, 200, 0.9f, 0);
+        buffer.add(105, 105, 205, 205, 0.8f, 0);
+
+        assertEquals(1, buffer.nms(IOU, 100, 100, NAMES.length));
+        List<Detection> detections = buffer.toDetections(NAMES);
+        assertEquals(0.9f, detections.get(0).confidence, 0f);
+    }
+
+    @Test
+    public void keepsBoxesBelowIouThreshold() {
+        buffer.add(100, 100, 200, 200, 0.9f, 0);
+        buffer.add(150, 100, 250, 200, 0.8f, 0); // IoU = 1/3
+
+        assertEquals(2, buffer.nms(IOU, 100, 100, NAMES.length));
+    }
+
+    @Test
+    public void doesNotSuppressAcrossClasses() {
+        buffer.add(100, 100, 200, 200, 0.9f, 0);
+        buffer.add(100, 100, 200, 200, 0.8f, 1);
+
+        assertEquals(2, buffer.nms(IOU, 100, 100, NAMES.length));
+        List<Detection> detections = buffer.toDetections(NAMES);
+        assertEquals("bar", detections.get(0).className);
+        assertEquals("line", detections.get(1).className);
+    }
+
+    @Test
+    public void keepsHigherScoreRegardlessOfInsertOrder() {
+        buffer.add(100, 100, 200, 200, 0.3f, 2);
+        buffer.add(102, 102, 202, 202, 0.7f, 2);
+        buffer.add(300, 300, 400, 400, 0.5f, 2);
+
+        assertEquals(2, buffer.nms(IOU, 100, 100, NAMES.length));
+        List<Detection> detections = buffer.toDetections(NAMES);
+        assertEquals(0.7f, detections.get(0).confidence, 0f);
+        assertEquals(0.5f, detections.get(1).confidence, 0f);
+    }
+
+    @Test
+    public void suppressesBoxesSpanningManyGridCells() {
+        // 网格范围 1000x1000，每格62.5；两个大框各跨多格，在共享的格子里只比较一次
+        buffer.add(0, 0, 1000, 1000, 0.9f, 0);
+        buffer.add(40, 40, 960, 960, 0.8f, 0);
+        // 落在大框内部单个格子里的小框：与大框IoU很小，应保留
+        buffer.add(500, 500, 540, 540, 0.7f, 0);
+
+        assertEquals(2, buffer.nms(IOU, 100, 100, NAMES.length));
+        List<Detection> detections = buffer.toDetections(NAMES);
+        assertEquals(0.9f, detections.get(0).confidence, 0f);
+        assertEquals(0.7f, detections.get(1).confidence, 0f);
+    }
+
+    @Test
+    public void keepsBoxesThatOnlyShareBoundaryCell() {
+        // 右下框与左上框在角上相接，落入同一个格子但不相交
+        buffer.add(0, 0, 500, 500, 0.9f, 1);
+        buffer.add(10, 10, 510, 510, 0.8f, 1);
+        buffer.add(500, 500, 1000, 1000, 0.6f, 1);
+
+        assertEquals(2, buffer.nms(IOU, 100, 100, NAMES.length));
+    }
+
+    @Test
+    public void maxCandidatesDropsLowestScoresBeforeNms() {
+        for (int i = 0; i < 10; i++) {
+            float x = i * 100;
+            buffer.add(x, 0, x + 50, 50, 0.1f * (i + 1) - 0.05f, 0);
+        }
+
+        assertEquals(3, buffer.nms(IOU, 3, 100, NAMES.length));
+        List<Detection> detections = buffer.toDetections(NAMES);
+        assertEquals(0.95f, detections.get(0).confidence, 1e-6f);
+        assertEquals(0.85f, detections.get(1).confidence, 1e-6f);
+        assertEquals(0.75f, detections.get(2).confidence, 1e-6f);
+    }
+
+    @Test
+    public void maxDetectionsCapsKeptBoxes() {
+        for (int i = 0; i < 10; i++) {
+            float x = i * 100;
+            buffer.add(x, 0, x + 50, 50, 0.5f + i * 0.01f, i % NAMES.length);
+        }
+
+        assertEquals(4, buffer.nms(IOU, 100, 4, NAMES.length));
+        assertEquals(4, buffer.toDetections(NAMES).size());
+    }
+
+    @Test
+    public void suppressedCandidatesDoNotCountTowardsMaxDetections() {
+        buffer.add(0, 0, 100, 100, 0.9f, 0);
+        buffer.add(1, 1, 101, 101, 0.8f, 0);
+        buffer.add(200, 0, 300, 100, 0.7f, 0);
+
+        assertEquals(2, buffer.nms(IOU, 100, 2, NAMES.length));
+        assertEquals(0.7f, buffer.toDetections(NAMES).get(1).confidence, 0f);
+    }
+
+    @Test
+    public void skipsClassesOutOfRange() {
+        buffer.add(0, 0, 100, 100, 0.9f, NAMES.length);
+        buffer.add(200, 0, 300, 100, 0.8f, 0);
+
+        assertEquals(1, buffer.nms(IOU, 100, 100, NAMES.length));
+        assertEquals(0, buffer.toDetections(NAMES).get(0).classId);
+    }
+
+    @Test
+    public void clearResetsBetweenFrames() {
+        buffer.add(0, 0, 100, 100, 0.9f, 0);
+        assertEquals(1, buffer.nms(IOU, 100, 100, NAMES.length));
+
+        buffer.clear();
+        assertEquals(0, buffer.size());
+        assertEquals(0, buffer.nms(IOU, 100, 100, NAMES.length));
+        assertTrue(buffer.toDetections(NAMES).isEmpty());
+
+        // 复用的网格桶不应残留上一帧的框
+        buffer.add(0, 0, 100, 100, 0.5f, 0);
+        assertEquals(1, buffer.nms(IOU, 100, 100, NAMES.length));
+    }
+
+    @Test
+    public void growsBeyondInitialCapacity() {
+        for (int i = 0; i < 300; i++) {
+            float x = (i % 30) * 40;
+            float y = (i / 30) * 40;
+            buffer.add(x, y, x + 20, y + 20, 0.5f, 0);
+        }
+
+        assertEquals(300, buffer.size());
+        assertEquals(300, buffer.nms(IOU, 1000, 1000, NAMES.length));
+    }
+
+    @Test
+    public void unnamedClassFallsBackToId() {
+        buffer.add(0, 0, 100, 100, 0.9f, 1);
+        buffer.nms(IOU, 100, 100, NAMES.length);
+
+        assertEquals("class_1", buffer.toDetections(null).get(0).className);
+    }
+}
@@ -0,0 +1,80 @@
+package com.eagle.android.detector;
+
+import android.os.PowerManager;
+
+import org.junit.Test;
+
+import static org.junit.Assert.*;
+
+/**
+ * ResolutionController 的升降档逻辑（不考虑发热）
+ */
+public class ResolutionControllerTest {
+
+    private static final int[] SIZES = {320, 480, 640};
+    private static final long BUDGET_MS = 150;
+    private static final PowerManager NO_THERMAL = null;
+
+    @Test
+    public void startsAtLargestSize() {
+        ResolutionController controller = new ResolutionController(NO_THERMAL, SIZES, BUDGET_MS);
+        assertEquals(640, controller.choose());
+    }
+
+    @Test
+    public void stepsDownOneSizePerFrameWhenOverBudget() {
+        ResolutionController controller = new ResolutionController(NO_THERMAL, SIZES, BUDGET_MS);
+        controller.onFrame(controller.choose(), 400, null, 1080, 2400);
+        assertEquals(480, controller.choose());
+        controller.onFrame(480, 300, null, 1080, 2400);
+        assertEquals(320, controller.choose());
+        controller.onFrame(320, 200, null, 1080, 2400);
+        assertEquals(320, controller.choose());
+    }
+
+    @Test
+    public void staysWithinBudget() {
+        ResolutionController controller = new ResolutionController(NO_THERMAL, SIZES, BUDGET_MS);
+        for (int i = 0; i < 100; i++) {
+            controller.onFrame(controller.choose(), 60, null, 1080, 2400);
+        }
+        assertEquals(640, controller.getCurrentSize());
+    }
+
+    @Test
+    public void stepsBackUpAfterSpikeOnceMeasurementIsStale() {
+        ResolutionController controller = new ResolutionController(NO_THERMAL, SIZES, BUDGET_MS);
+        // 640 上一次耗时尖峰
+        controller.onFrame(controller.choose(), 200, null, 1080, 2400);
+        assertEquals(480, controller.choose());
+
+        // 480 有充足余量：40ms 外推到 640 约 71ms，低于 150 * 0.6
+        int frames = 0;
+        int size = 480;
+        while (size == 480 && frames < 10 * ResolutionController.STALE_FRAMES) {
+            controller.onFrame(size, 40, null, 1080, 2400);
+            size = controller.choose();
+            frames++;
+        }
+        assertEquals(640, size);
+        // 尖峰的实测值在过期前仍然有效
+        assertTrue(frames >= ResolutionController.STALE_FRAMES);
+        assertTrue(frames <= ResolutionController.STALE_FRAMES + 2);
+
+        // 回到640后的新实测取代过期值，不与尖峰混合
+        controller.onFrame(640, 80, null, 1080, 2400);
+        assertEquals(640, controller.choose());
+    }
+
+    @Test
+    public void doesNotStepUpWithoutHeadroom() {
+        ResolutionController controller = new ResolutionController(NO_THERMAL, SIZES, BUDGET_MS);
+        controller.onFrame(controller.choose(), 200, null, 1080, 2400);
+        assertEquals(480, controller.choose());
+        // 120ms 外推到 640 约 213ms，即使 640 的实测已过期也不升档
+        for (int i = 0; i < 3 * ResolutionController.STALE_FRAMES; i++) {
+            controller.onFrame(480, 120, null, 1080, 2400);
+            assertEquals(480, controller.choose());
+        }
+    }
+}
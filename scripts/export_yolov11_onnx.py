@@ -13,13 +13,42 @@ YOLOv11-nano 模型导出脚本
     --output: 输出的ONNX文件路径
     --imgsz: 输入图像尺寸 (默认640)
     --simplify: 是否简化ONNX模型 (推荐开启)
+    --precision: 额外导出的精度变体 fp32 / fp16 / int8-dynamic / int8-static (默认fp32)
+    --calib-images: int8-static 校准图片目录
+    --validate-images: 变体校验图片目录，变体相对FP32的召回率低于 --min-recall 时拒绝该变体
+    --min-recall: 召回率门槛 (默认0.9，与Android端 ModelVariantValidator 一致)
+
+精度变体示例:
+    python export_yolov11_onnx.py --weights best.pt --precision fp16 --validate-images ../app/src/main/res/drawable
+    python export_yolov11_onnx.py --weights best.pt --precision int8-static --calib-images calib/ --validate-images val/
+    变体保存为 yolov11n_chart_fp16.onnx / yolov11n_chart_int8.onnx，输入输出保持FP32
+
+级联检测 (--extra-sizes):
+    额外导出较小输入尺寸的静态模型，例如 --extra-sizes 320 480 生成
+    yolov11n_chart_320.onnx / yolov11n_chart_480.onnx，Android端级联模式用于全屏粗检与图表区域精检，
+    自适应分辨率模式按延迟预算在这些尺寸间切换
+
+批量检测 (--dynamic-batch):
+    额外导出批维度动态的 yolov11n_chart_batch.onnx，输入 [N, 3, imgsz, imgsz]，
+    Android端 detectBatch 把多个图表区域/长页面分块打包为一次推理
+
+端到端模型 (--end2end):
+    额外导出 yolov11n_chart_e2e.onnx，供Android端 YOLOv11EndToEndDetector 使用
+    - 输入 uint8 NHWC [1, imgsz, imgsz, 4]：letterbox位图的RGBA原始字节
+    - 图内完成取RGB、/255归一化、NHWC→NCHW，以及按类别NMS与Top-K
+    - 输出 float [K, 6]：x1, y1, x2, y2, score, class_id（模型输入坐标）
 """
 
 import argparse
+import os
 from pathlib import Path
 
+IMAGE_EXTS = ('.png', '.jpg', '.jpeg', '.bmp', '.webp')
+MATCH_IOU = 0.5  # 检测框匹配的IoU阈值
+
 
-def export_to_onnx(weights_path: str, output_path: str, imgsz: int = 640, simplify: bool = True):
+def export_to_onnx(weights_path: str, output_path: str, imgsz: int = 640, simplify: bool = True,
+                   dynamic: bool = False):
     """
     将YOLOv11模型导出为ONNX格式
 
@@ -28,6 +57,7 @@ def export_to_onnx(weights_path: str, output_path: str, imgsz: int = 640, simpli
         output_path: 输出ONNX文件路径
         imgsz: 输入图像尺寸
         simplify: 是否简化模型
+        dynamic: 是否导出动态维度（批量检测模型需要动态批维度）
     """
     try:
         from ultralytics import YOLO
@@ -49,7 +79,7 @@ def export_to_onnx(weights_path: str, output_path: str, imgsz: int = 640, simpli
         imgsz=imgsz,
         simplify=simplify,
         opset=12,  # ONNX Runtime Android支持的opset版本
-        dynamic=False,  # 移动端使用静态尺寸更高效
+        dynamic=dynamic,  # 移动端单张推理使用静态尺寸更高效；批量模型需要动态批维度
         half=False,  # 不使用FP16（某些设备可能不支持）
     )
 
@@ -69,6 +99,317 @@ def export_to_onnx(weights_path: str, output_path: str, imgsz: int = 640, simpli
     return False
 
 
+def variant_path(output_path: str, precision: str) -> str:
+    """精度变体的输出路径: yolov11n_chart.onnx -> yolov11n_chart_fp16.onnx / yolov11n_chart_int8.onnx"""
+    suffix = 'fp16' if precision == 'fp16' else 'int8'
+    path = Path(output_path)
+    return str(path.with_name(f"{path.stem}_{suffix}{path.suffix}"))
+
+
+def list_images(image_dir: str):
+    """列出目录中的图片"""
+    if not image_dir or not Path(image_dir).is_dir():
+        return []
+    return sorted(str(p) for p in Path(image_dir).iterdir() if p.suffix.lower() in IMAGE_EXTS)
+
+
+def letterbox(image_path: str, imgsz: int):
+    """
+    与Android端 LetterboxBuffer 一致的预处理: 等比缩放、居中、灰色(114)填充、RGB、0-1归一化、NCHW
+
+    Returns:
+        (输入张量 [1, 3, imgsz, imgsz], 缩放比例, x填充, y填充)
+    """
+    import numpy as np
+    from PIL import Image
+
+    image = Image.open(image_path).convert('RGB')
+    w, h = image.size
+    scale = min(imgsz / w, imgsz / h)
+    new_w, new_h = int(w * scale), int(h * scale)
+    pad_x, pad_y = (imgsz - new_w) // 2, (imgsz - new_h) // 2
+
+    canvas = Image.new('RGB', (imgsz, imgsz), (114, 114, 114))
+    canvas.paste(image.resize((new_w, new_h), Image.BILINEAR), (pad_x, pad_y))
+    data = np.asarray(canvas, dtype=np.float32) / 255.0
+    return data.transpose(2, 0, 1)[np.newaxis, ...].copy(), scale, pad_x, pad_y
+
+
+def export_fp16(fp32_path: str, output_path: str):
+    """FP16权重与计算，输入输出保持FP32（Android端预处理无需改动）"""
+    try:
+        import onnx
+        from onnxconverter_common import float16
+    except ImportError:
+        print("错误: 导出FP16需要 onnx 和 onnxconverter-common")
+        print("运行: pip install onnx onnxconverter-common")
+        return False
+
+    model = onnx.load(fp32_path)
+    model_fp16 = float16.convert_float_to_float16(model, keep_io_types=True)
+    onnx.save(model_fp16, output_path)
+    return True
+
+
+def export_int8(fp32_path: str, output_path: str, mode: str, calib_dir: str, imgsz: int):
+    """
+    INT8量化
+
+    Args:
+        mode: 'dynamic' 仅量化权重，运行时动态量化激活；'static' 使用校准图片统计激活范围（QDQ格式）
+        calib_dir: 静态量化的校准图片目录
+    """
+    try:
+        from onnxruntime.quantization import (CalibrationDataReader, QuantFormat,
+                                              QuantType, quantize_dynamic, quantize_static)
+    except ImportError:
+        print("错误: 导出INT8需要 onnxruntime")
+        print("运行: pip install onnxruntime")
+        return False
+
+    if mode == 'dynamic':
+        quantize_dynamic(fp32_path, output_path, weight_type=QuantType.QUInt8)
+        return True
+
+    images = list_images(calib_dir)
+    if not images:
+        print(f"错误: 静态量化需要校准图片，请通过 --calib-images 指定目录")
+        return False
+
+    import onnxruntime as ort
+    input_name = ort.InferenceSession(fp32_path, providers=['CPUExecutionProvider']).get_inputs()[0].name
+
+    class LetterboxReader(CalibrationDataReader):
+        def __init__(self):
+            self.iterator = iter(images)
+
+        def get_next(self):
+            path = next(self.iterator, None)
+            if path is None:
+                return None
+            return {input_name: letterbox(path, imgsz)[0]}
+
+    print(f"  - 校准图片: {len(images)} 张")
+    quantize_static(fp32_path, output_path, LetterboxReader(),
+                    quant_format=QuantFormat.QDQ,
+                    activation_type=QuantType.QUInt8,
+                    weight_type=QuantType.QInt8,
+                    per_channel=True)
+    return True
+
+
+def detect(session, image_path: str, imgsz: int, conf: float = 0.25, iou: float = 0.45):
+    """运行模型并解码为原图坐标的检测框 [(class_id, x1, y1, x2, y2), ...]"""
+    import numpy as np
+
+    tensor, scale, pad_x, pad_y = letterbox(image_path, imgsz)
+    output = session.run(None, {session.get_inputs()[0].name: tensor})[0][0]
+    if output.shape[0] > output.shape[1]:
+        output = output.T  # 统一为 [4 + num_classes, num_anchors]
+
+    scores = output[4:]
+    classes = scores.argmax(axis=0)
+    best = scores.max(axis=0)
+    keep = best >= conf
+
+    cx, cy, w, h = output[:4, keep]
+    boxes = np.stack([(cx - w / 2 - pad_x) / scale, (cy - h / 2 - pad_y) / scale,
+                      (cx + w / 2 - pad_x) / scale, (cy + h / 2 - pad_y) / scale], axis=1)
+    classes, best = classes[keep], best[keep]
+
+    # 按类别NMS
+    detections = []
+    for c in np.unique(classes):
+        idx = np.where(classes == c)[0]
+        idx = idx[np.argsort(-best[idx])]
+        while len(idx) > 0:
+            i = idx[0]
+            detections.append((int(c), *boxes[i]))
+            rest = idx[1:]
+            idx = rest[box_iou(boxes[i], boxes[rest]) <= iou]
+    return detections
+
+
+def box_iou(box, boxes):
+    """单个框与多个框的IoU"""
+    import numpy as np
+
+    x1 = np.maximum(box[0], boxes[:, 0])
+    y1 = np.maximum(box[1], boxes[:, 1])
+    x2 = np.minimum(box[2], boxes[:, 2])
+    y2 = np.minimum(box[3], boxes[:, 3])
+    inter = np.clip(x2 - x1, 0, None) * np.clip(y2 - y1, 0, None)
+    area = (box[2] - box[0]) * (box[3] - box[1])
+    areas = (boxes[:, 2] - boxes[:, 0]) * (boxes[:, 3] - boxes[:, 1])
+    union = area + areas - inter
+    return np.where(union > 0, inter / np.maximum(union, 1e-9), 0)
+
+
+def validate_variant(fp32_path: str, variant_path_: str, image_dir: str, imgsz: int, min_recall: float):
+    """
+    在图片集上对比变体与FP32的检测结果
+    以FP32检测为参考，同类别且IoU>=0.5视为命中，统计召回率
+
+    Returns:
+        召回率是否达到门槛（无图片或FP32无检测时视为通过）
+    """
+    import numpy as np
+    import onnxruntime as ort
+
+    images = list_images(image_dir)
+    if not images:
+        print("警告: 未提供校验图片，跳过精度校验")
+        return True
+
+    providers = ['CPUExecutionProvider']
+    reference = ort.InferenceSession(fp32_path, providers=providers)
+    candidate = ort.InferenceSession(variant_path_, providers=providers)
+
+    total, matched = 0, 0
+    for path in images:
+        expected = detect(reference, path, imgsz)
+        actual = detect(candidate, path, imgsz)
+        used = [False] * len(actual)
+        total += len(expected)
+        for ref in expected:
+            best, best_iou = -1, MATCH_IOU
+            for i, det in enumerate(actual):
+                if used[i] or det[0] != ref[0]:
+                    continue
+                overlap = box_iou(np.array(ref[1:]), np.array([det[1:]]))[0]
+                if overlap >= best_iou:
+                    best, best_iou = i, overlap
+            if best >= 0:
+                used[best] = True
+                matched += 1
+
+    recall = matched / total if total else 1.0
+    print(f"精度校验: {len(images)} 张图片, FP32检测 {total} 个, 变体命中 {matched} 个, 召回率 {recall:.3f}")
+    return recall >= min_recall
+
+
+def export_variant(fp32_path: str, precision: str, calib_dir: str, validate_dir: str,
+                   imgsz: int, min_recall: float):
+    """导出精度变体并校验，未通过校验的变体会被删除"""
+    output_path = variant_path(fp32_path, precision)
+    print(f"\n正在导出 {precision} 变体: {output_path}")
+
+    if precision == 'fp16':
+        success = export_fp16(fp32_path, output_path)
+    else:
+        success = export_int8(fp32_path, output_path, precision.split('-')[1], calib_dir, imgsz)
+    if not success:
+        return None
+
+    size_mb = os.path.getsize(output_path) / (1024 * 1024)
+    print(f"变体大小: {size_mb:.2f} MB")
+
+    if not validate_variant(fp32_path, output_path, validate_dir, imgsz, min_recall):
+        print(f"错误: 召回率低于门槛 {min_recall}，拒绝该变体")
+        os.remove(output_path)
+        return None
+    return output_path
+
+
+def build_end_to_end(fp32_path: str, output_path: str, imgsz: int,
+                     conf: float = 0.25, iou: float = 0.45, max_det: int = 300):
+    """
+    在FP32模型前后拼接预处理与后处理子图，生成端到端模型
+
+    Args:
+        conf: 图内NMS的置信度阈值
+        iou: 图内NMS的IoU阈值
+        max_det: 每个类别及最终输出的最大检测数
+    """
+    try:
+        import numpy as np
+        import onnx
+        from onnx import TensorProto, compose, helper, numpy_helper
+    except ImportError:
+        print("错误: 导出端到端模型需要 onnx")
+        return False
+
+    model = onnx.load(fp32_path)
+    in_name = model.graph.input[0].name
+    out_name = model.graph.output[0].name
+
+    def const(name, values, dtype=np.int64):
+        return numpy_helper.from_array(np.array(values, dtype=dtype), name)
+
+    def make_model(graph):
+        m = helper.make_model(graph, opset_imports=model.opset_import)
+        m.ir_version = model.ir_version
+        return m
+
+    # 预处理: uint8 [1, S, S, 4] (RGBA) -> float [1, 3, S, S] (RGB, 0-1)
+    pre = helper.make_graph(
+        [
+            helper.make_node('Slice', ['pixels', 'e2e_c0', 'e2e_c3', 'e2e_axis3'], ['e2e_rgb']),
+            helper.make_node('Cast', ['e2e_rgb'], ['e2e_rgb_f'], to=TensorProto.FLOAT),
+            helper.make_node('Div', ['e2e_rgb_f', 'e2e_255'], ['e2e_norm']),
+            helper.make_node('Transpose', ['e2e_norm'], ['e2e_pre_out'], perm=[0, 3, 1, 2]),
+        ],
+        'e2e_preprocess',
+        [helper.make_tensor_value_info('pixels', TensorProto.UINT8, [1, imgsz, imgsz, 4])],
+        [helper.make_tensor_value_info('e2e_pre_out', TensorProto.FLOAT, [1, 3, imgsz, imgsz])],
+        initializer=[const('e2e_c0', [0]), const('e2e_c3', [3]), const('e2e_axis3', [3]),
+                     const('e2e_255', 255.0, np.float32)],
+    )
+
+    # 后处理: [1, 4 + C, N] -> 按类别NMS -> Top-K -> [K, 6]
+    post = helper.make_graph(
+        [
+            helper.make_node('Slice', ['e2e_raw', 'e2e_0', 'e2e_4', 'e2e_axis1'], ['e2e_box_cm']),
+            helper.make_node('Transpose', ['e2e_box_cm'], ['e2e_boxes'], perm=[0, 2, 1]),
+            helper.make_node('Slice', ['e2e_raw', 'e2e_4', 'e2e_max', 'e2e_axis1'], ['e2e_scores']),
+            helper.make_node('NonMaxSuppression',
+                             ['e2e_boxes', 'e2e_scores', 'e2e_max_det', 'e2e_iou', 'e2e_conf'],
+                             ['e2e_selected'], center_point_box=1),
+            helper.make_node('Gather', ['e2e_selected', 'e2e_1s'], ['e2e_cls_idx'], axis=1),
+            helper.make_node('Gather', ['e2e_selected', 'e2e_2s'], ['e2e_box_idx'], axis=1),
+            helper.make_node('Reshape', ['e2e_boxes', 'e2e_shape_n4'], ['e2e_boxes_2d']),
+            helper.make_node('Gather', ['e2e_boxes_2d', 'e2e_box_idx'], ['e2e_sel_boxes'], axis=0),
+            helper.make_node('GatherND', ['e2e_scores', 'e2e_selected'], ['e2e_sel_scores']),
+            # Top-K: k = min(K, max_det)
+            helper.make_node('Shape', ['e2e_sel_scores'], ['e2e_count']),
+            helper.make_node('Min', ['e2e_count', 'e2e_max_det'], ['e2e_k']),
+            helper.make_node('TopK', ['e2e_sel_scores', 'e2e_k'], ['e2e_top_scores', 'e2e_top_idx']),
+            helper.make_node('Gather', ['e2e_sel_boxes', 'e2e_top_idx'], ['e2e_top_boxes'], axis=0),
+            helper.make_node('Gather', ['e2e_cls_idx', 'e2e_top_idx'], ['e2e_top_cls'], axis=0),
+            # cxcywh -> xyxy
+            helper.make_node('Slice', ['e2e_top_boxes', 'e2e_0', 'e2e_2', 'e2e_axis1'], ['e2e_xy']),
+            helper.make_node('Slice', ['e2e_top_boxes', 'e2e_2', 'e2e_4', 'e2e_axis1'], ['e2e_wh']),
+            helper.make_node('Mul', ['e2e_wh', 'e2e_half'], ['e2e_half_wh']),
+            helper.make_node('Sub', ['e2e_xy', 'e2e_half_wh'], ['e2e_x1y1']),
+            helper.make_node('Add', ['e2e_xy', 'e2e_half_wh'], ['e2e_x2y2']),
+            helper.make_node('Reshape', ['e2e_top_scores', 'e2e_shape_n1'], ['e2e_score_col']),
+            helper.make_node('Cast', ['e2e_top_cls'], ['e2e_cls_f'], to=TensorProto.FLOAT),
+            helper.make_node('Reshape', ['e2e_cls_f', 'e2e_shape_n1'], ['e2e_cls_col']),
+            helper.make_node('Concat', ['e2e_x1y1', 'e2e_x2y2', 'e2e_score_col', 'e2e_cls_col'],
+                             ['detections'], axis=1),
+        ],
+        'e2e_postprocess',
+        [helper.make_tensor_value_info('e2e_raw', TensorProto.FLOAT, None)],
+        [helper.make_tensor_value_info('detections', TensorProto.FLOAT, ['K', 6])],
+        initializer=[const('e2e_0', [0]), const('e2e_2', [2]), const('e2e_4', [4]),
+                     const('e2e_max', [2 ** 31 - 1]), const('e2e_axis1', [1]),
+                     const('e2e_1s', 1), const('e2e_2s', 2),
+                     const('e2e_shape_n4', [-1, 4]), const('e2e_shape_n1', [-1, 1]),
+                     const('e2e_max_det', [max_det]),
+                     const('e2e_iou', [iou], np.float32), const('e2e_conf', [conf], np.float32),
+                     const('e2e_half', 0.5, np.float32)],
+    )
+
+    merged = compose.merge_models(make_model(pre), model, io_map=[('e2e_pre_out', in_name)])
+    merged = compose.merge_models(merged, make_model(post), io_map=[(out_name, 'e2e_raw')])
+    onnx.checker.check_model(merged)
+    onnx.save(merged, output_path)
+
+    size_mb = os.path.getsize(output_path) / (1024 * 1024)
+    print(f"端到端模型已导出到: {output_path} ({size_mb:.2f} MB)")
+    return True
+
+
 def verify_onnx_model(onnx_path: str):
     """验证导出的ONNX模型"""
     try:
@@ -101,8 +442,12 @@ def verify_onnx_model(onnx_path: str):
     input_name = session.get_inputs()[0].name
     input_shape = session.get_inputs()[0].shape
 
-    # 创建随机输入
-    dummy_input = np.random.randn(*[1 if isinstance(d, str) else d for d in input_shape]).astype(np.float32)
+    # 创建随机输入（端到端模型为uint8像素输入）
+    dims = [1 if isinstance(d, str) else d for d in input_shape]
+    if session.get_inputs()[0].type == 'tensor(uint8)':
+        dummy_input = np.random.randint(0, 256, size=dims, dtype=np.uint8)
+    else:
+        dummy_input = np.random.randn(*dims).astype(np.float32)
     output = session.run(None, {input_name: dummy_input})
 
     print(f"推理成功! 输出形状: {[o.shape for o in output]}")
@@ -115,6 +460,15 @@ def main():
     parser.add_argument('--imgsz', type=int, default=640, help='输入图像尺寸')
     parser.add_argument('--simplify', action='store_true', default=True, help='简化ONNX模型')
     parser.add_argument('--verify', action='store_true', default=True, help='验证导出的模型')
+    parser.add_argument('--precision', type=str, default='fp32',
+                        choices=['fp32', 'fp16', 'int8-dynamic', 'int8-static'], help='额外导出的精度变体')
+    parser.add_argument('--calib-images', type=str, default=None, help='int8-static 校准图片目录')
+    parser.add_argument('--validate-images', type=str, default=None, help='变体精度校验图片目录')
+    parser.add_argument('--extra-sizes', type=int, nargs='*', default=[],
+                        help='额外导出的输入尺寸（级联检测使用），例如 320 480')
+    parser.add_argument('--dynamic-batch', action='store_true', help='额外导出批维度动态的批量检测模型')
+    parser.add_argument('--end2end', action='store_true', help='额外导出uint8输入、图内NMS的端到端模型')
+    parser.add_argument('--min-recall', type=float, default=0.9, help='变体相对FP32的最低召回率')
 
     args = parser.parse_args()
 
@@ -128,12 +482,58 @@ def main():
     if success and args.verify:
         verify_onnx_model(args.output)
 
+    variant = None
+    if success and args.precision != 'fp32':
+        variant = export_variant(args.output, args.precision, args.calib_images,
+                                 args.validate_images, args.imgsz, args.min_recall)
+        if variant and args.verify:
+            verify_onnx_model(variant)
+
+    sized_paths = []
+    for size in (args.extra_sizes if success else []):
+        if size == args.imgsz:
+            continue
+        sized_path = str(Path(args.output).with_name(f"{Path(args.output).stem}_{size}.onnx"))
+        print(f"\n正在导出 {size}x{size} 模型: {sized_path}")
+        if export_to_onnx(args.weights, sized_path, imgsz=size, simplify=args.simplify):
+            sized_paths.append(sized_path)
+
+    batch_path = None
+    if success and args.dynamic_batch:
+        batch_path = str(Path(args.output).with_name(Path(args.output).stem + '_batch.onnx'))
+        print(f"\n正在导出批量检测模型: {batch_path}")
+        if export_to_onnx(args.weights, batch_path, imgsz=args.imgsz, simplify=args.simplify, dynamic=True):
+            if args.verify:
+                verify_onnx_model(batch_path)
+        else:
+            batch_path = None
+
+    e2e_path = None
+    if success and args.end2end:
+        e2e_path = str(Path(args.output).with_name(Path(args.output).stem + '_e2e.onnx'))
+        if not build_end_to_end(args.output, e2e_path, args.imgsz):
+            e2e_path = None
+        elif args.verify:
+            verify_onnx_model(e2e_path)
+
     if success:
         print("\n" + "=" * 50)
         print("导出完成!")
         print("=" * 50)
         print(f"\n请将 {args.output} 复制到:")
         print("  app/src/main/assets/yolov11n_chart.onnx")
+        if variant:
+            print(f"  app/src/main/assets/{Path(variant).name}")
+            print("并在设置中将 detector_precision 设为对应精度 (FP16 / INT8)")
+        for sized_path in sized_paths:
+            print(f"  app/src/main/assets/{Path(sized_path).name}")
+        if sized_paths:
+            print("并在设置中开启 detector_cascade 或 detector_adaptive_resolution")
+        if batch_path:
+            print(f"  app/src/main/assets/{Path(batch_path).name}")
+        if e2e_path:
+            print(f"  app/src/main/assets/{Path(e2e_path).name}")
+            print("并在设置中开启 detector_end_to_end")
         print("\n然后重新构建Android应用。")
 
 